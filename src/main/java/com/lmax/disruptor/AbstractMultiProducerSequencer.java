@@ -0,0 +1,216 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * <p>Base class for the sequencers that support multiple publisher threads.  Provides the tracking of
+ * published slots through an {@link AvailabilityBuffer}, leaving the way sequences are claimed in
+ * {@link Sequencer#next(int)} to the subclasses.</p>
+ *
+ * <p> * Note on {@link Sequencer#getCursor()}:  With this sequencer the cursor value is updated after the call
+ * to {@link Sequencer#next()}, to determine the highest available sequence that can be read, then
+ * {@link Sequencer#getHighestPublishedSequence(long, long)} should be used.</p>
+ */
+abstract class AbstractMultiProducerSequencer extends AbstractSequencer {
+    protected final Sequence gatingSequenceCache = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+    //所有消费者共享的连续已发布序号，由最先扫描到的消费者推进，其他消费者只需从它之后开始扫描
+    private final Sequence publishedSequenceCache = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+
+    // availableBuffer tracks the state of each ringbuffer slot
+    // see FlagAvailabilityBuffer for more details on the approach
+    private AvailabilityBuffer availableBuffer;
+    private final AvailabilityTracking availabilityTracking;
+
+    AbstractMultiProducerSequencer(
+        int bufferSize,
+        final WaitStrategy waitStrategy,
+        final ProducerWaitStrategy producerWaitStrategy,
+        final AvailabilityTracking availabilityTracking) {
+        super(bufferSize, waitStrategy, producerWaitStrategy);
+        this.availableBuffer = AvailabilityBuffer.newInstance(availabilityTracking, bufferSize);
+        this.availabilityTracking = availabilityTracking;
+    }
+
+    /**
+     * Replace the availability buffer with one of the new size that has every sequence up to the cursor
+     * already published.
+     *
+     * @see AbstractSequencer#resize(int)
+     */
+    @Override
+    void resize(int newBufferSize) {
+        checkBufferSize(newBufferSize);
+        this.availableBuffer = AvailabilityBuffer.newInstance(availabilityTracking, newBufferSize, cursor.get());
+        super.resize(newBufferSize);
+    }
+
+    /**
+     * @see Sequencer#hasAvailableCapacity(int)
+     */
+    @Override
+    public boolean hasAvailableCapacity(final int requiredCapacity) {
+        return hasAvailableCapacity(requiredCapacity, cursor.get());
+    }
+
+    private boolean hasAvailableCapacity(final int requiredCapacity, long cursorValue) {
+        long wrapPoint = (cursorValue + requiredCapacity) - bufferSize;
+        long cachedGatingSequence = gatingSequenceCache.get();
+
+        if (wrapPoint > cachedGatingSequence || cachedGatingSequence > cursorValue) {
+            long minSequence = getMinimumGatingSequence(wrapPoint, cursorValue);
+            gatingSequenceCache.set(minSequence);
+
+            if (wrapPoint > minSequence) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @see Sequencer#claim(long)
+     */
+    @Override
+    public void claim(long sequence)
+    {
+        //cursor被直接设置，之前的序号视为已处理，缓存的已发布序号随之移动
+        publishedSequenceCache.set(sequence - 1);
+        cursor.set(sequence);
+    }
+
+    /**
+     * @see Sequencer#next()
+     */
+    @Override
+    public long next() {
+        return next(1);
+    }
+
+    /**
+     * @see Sequencer#tryNext()
+     */
+    @Override
+    public long tryNext() throws InsufficientCapacityException
+    {
+        return tryNext(1);
+    }
+
+    /**
+     * @see Sequencer#tryNext(int)
+     */
+    @Override
+    public long tryNext(int n) throws InsufficientCapacityException {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be > 0");
+        }
+
+        long current;
+        long next;
+
+        do {
+            current = cursor.get();
+            next = current + n;
+            if (!hasAvailableCapacity(n, current))
+            {
+                throw InsufficientCapacityException.INSTANCE;
+            }
+        }
+        while (!cursor.compareAndSet(current, next));
+
+        return next;
+    }
+
+    /**
+     * @see Sequencer#remainingCapacity()
+     */
+    @Override
+    public long remainingCapacity()
+    {
+        long produced = cursor.get();
+        long consumed = getMinimumGatingSequence(Long.MAX_VALUE, produced);
+        return getBufferSize() - (produced - consumed);
+    }
+
+    /**
+     * @see Sequencer#publish(long)
+     */
+    @Override
+    public void publish(final long sequence)
+    {
+        availableBuffer.setAvailable(sequence);
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    /**
+     * @see Sequencer#publish(long, long)
+     */
+    @Override
+    public void publish(long lo, long hi)
+    {
+        availableBuffer.setAvailable(lo, hi);
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    /**
+     * @see Sequencer#isAvailable(long)
+     */
+    @Override
+    public boolean isAvailable(long sequence)
+    {
+        return availableBuffer.isAvailable(sequence);
+    }
+
+    /**
+     * Consumers in a fan out ask for the same range, so the highest contiguous published sequence found by a
+     * scan is cached and shared.  A consumer only scans the slots past the cached value and advances it with
+     * what it finds, falling back to scanning its own range when the cached value is more than a lap behind or
+     * stops short of the lower bound, e.g. for a consumer added while sequences were still being published.
+     *
+     * @see Sequencer#getHighestPublishedSequence(long, long)
+     */
+    @Override
+    public long getHighestPublishedSequence(long lowerBound, long availableSequence) {
+        long cachedSequence = publishedSequenceCache.get();
+        if (cachedSequence >= availableSequence) {
+            return availableSequence;
+        }
+        //落后超过一圈时槽位可能已被下一圈覆盖，不能从缓存值开始扫描
+        if (availableSequence - cachedSequence > bufferSize) {
+            return availableBuffer.getHighestPublishedSequence(lowerBound, availableSequence);
+        }
+
+        long highestSequence = availableBuffer.getHighestPublishedSequence(cachedSequence + 1, availableSequence);
+        //只向前推进，失败说明其他消费者已经推进过了
+        while (highestSequence > cachedSequence &&
+            !publishedSequenceCache.compareAndSet(cachedSequence, highestSequence)) {
+            cachedSequence = publishedSequenceCache.get();
+        }
+
+        if (highestSequence >= lowerBound - 1) {
+            return highestSequence;
+        }
+        return availableBuffer.getHighestPublishedSequence(lowerBound, availableSequence);
+    }
+
+    /**
+     * @return the layout used to track published slots.
+     */
+    public AvailabilityTracking getAvailabilityTracking()
+    {
+        return availabilityTracking;
+    }
+}
@@ -18,8 +18,6 @@ package com.lmax.disruptor;
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
-import com.lmax.disruptor.util.Util;
-
 /**
  * Base class for the various sequencer types (single/multi).  Provides
  * common functionality like the management of gating sequences (add/remove) and
@@ -28,14 +26,20 @@ import com.lmax.disruptor.util.Util;
 public abstract class AbstractSequencer implements Sequencer {
     private static final AtomicReferenceFieldUpdater<AbstractSequencer, Sequence[]> SEQUENCE_UPDATER =
         AtomicReferenceFieldUpdater.newUpdater(AbstractSequencer.class, Sequence[].class, "gatingSequences");
-    //RingBuffer 大小
-    protected final int bufferSize;
+    private static final AtomicReferenceFieldUpdater<AbstractSequencer, MinimumSequenceTree> TREE_UPDATER =
+        AtomicReferenceFieldUpdater.newUpdater(AbstractSequencer.class, MinimumSequenceTree.class, "gatingSequenceTree");
+    //RingBuffer 大小，只会在RingBuffer#resize时改变
+    protected int bufferSize;
     //等待策略
     protected final WaitStrategy waitStrategy;
+    //生产者等待策略，RingBuffer已满时生产者的等待方式
+    protected final ProducerWaitStrategy producerWaitStrategy;
     //初始化一个Sequence，记录生产者位置
     protected final Sequence cursor = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
     //消费者Sequence数组
     protected volatile Sequence[] gatingSequences = new Sequence[0];
+    //消费者Sequence组成的最小值树，生产者通过它判断是否会发生环绕
+    private volatile MinimumSequenceTree gatingSequenceTree = new MinimumSequenceTree(gatingSequences);
 
     /**
      * Create with the specified buffer size and wait strategy.
@@ -44,6 +48,25 @@ public abstract class AbstractSequencer implements Sequencer {
      * @param waitStrategy The wait strategy used by this sequencer
      */
     public AbstractSequencer(int bufferSize, WaitStrategy waitStrategy) {
+        this(bufferSize, waitStrategy, new SleepingProducerWaitStrategy());
+    }
+
+    /**
+     * Create with the specified buffer size, wait strategy and producer wait strategy.
+     *
+     * @param bufferSize           The total number of entries, must be a positive power of 2.
+     * @param waitStrategy         The wait strategy used by this sequencer
+     * @param producerWaitStrategy The wait strategy used by publishers when the buffer is full
+     */
+    public AbstractSequencer(int bufferSize, WaitStrategy waitStrategy, ProducerWaitStrategy producerWaitStrategy) {
+        checkBufferSize(bufferSize);
+
+        this.bufferSize = bufferSize;
+        this.waitStrategy = waitStrategy;
+        this.producerWaitStrategy = producerWaitStrategy;
+    }
+
+    static void checkBufferSize(int bufferSize) {
         if (bufferSize < 1) {
             throw new IllegalArgumentException("bufferSize must not be less than 1");
         }
@@ -51,9 +74,19 @@ public abstract class AbstractSequencer implements Sequencer {
         if (Integer.bitCount(bufferSize) != 1) {
             throw new IllegalArgumentException("bufferSize must be a power of 2");
         }
+    }
 
-        this.bufferSize = bufferSize;
-        this.waitStrategy = waitStrategy;
+    /**
+     * Change the size of the buffer, carrying on the sequence numbering from the cursor.  Must only be
+     * called once every claimed sequence has been published and consumed, see {@link RingBuffer#resize(int)}.
+     *
+     * @param newBufferSize the new total number of entries, must be a positive power of 2.
+     */
+    void resize(int newBufferSize) {
+        checkBufferSize(newBufferSize);
+        this.bufferSize = newBufferSize;
+        //对cursor做一次volatile写，生产者和消费者在下一次读取cursor后就能看到新的大小
+        cursor.setVolatile(cursor.get());
     }
 
     /**
@@ -79,6 +112,7 @@ public abstract class AbstractSequencer implements Sequencer {
     @Override
     public final void addGatingSequences(Sequence... gatingSequences) {
         SequenceGroups.addSequences(this, SEQUENCE_UPDATER, this, gatingSequences);
+        updateGatingSequenceTree();
     }
 
     /**
@@ -87,7 +121,29 @@ public abstract class AbstractSequencer implements Sequencer {
     @Override
     public boolean removeGatingSequence(Sequence sequence)
     {
-        return SequenceGroups.removeSequence(this, SEQUENCE_UPDATER, sequence);
+        boolean removed = SequenceGroups.removeSequence(this, SEQUENCE_UPDATER, sequence);
+        updateGatingSequenceTree();
+        return removed;
+    }
+
+    /**
+     * Rebuild the gating sequence tree until it matches the current gating sequences, concurrent
+     * changes may have published a tree built from an older set.
+     */
+    private void updateGatingSequenceTree()
+    {
+        MinimumSequenceTree currentTree;
+        Sequence[] currentSequences;
+        do
+        {
+            currentTree = gatingSequenceTree;
+            currentSequences = gatingSequences;
+            if (currentTree.getSequences() == currentSequences)
+            {
+                break;
+            }
+        }
+        while (!TREE_UPDATER.compareAndSet(this, currentTree, new MinimumSequenceTree(currentSequences)));
     }
 
     /**
@@ -96,7 +152,30 @@ public abstract class AbstractSequencer implements Sequencer {
     @Override
     public long getMinimumSequence()
     {
-        return Util.getMinimumSequence(gatingSequences, cursor.get());
+        return gatingSequenceTree.getMinimumSequence(cursor.get());
+    }
+
+    /**
+     * @see Sequencer#getMinimumSequence(long)
+     */
+    @Override
+    public long getMinimumSequence(long required)
+    {
+        return getMinimumGatingSequence(required, cursor.get());
+    }
+
+    /**
+     * Get the minimum of the gating sequences, only reading the gating sequences that may not have reached
+     * the required sequence.  The value returned is at least <code>required</code> if every gating sequence
+     * has reached it, otherwise it is the current minimum.
+     *
+     * @param required the sequence that the gating sequences need to have reached, normally the wrap point.
+     * @param minimum  the value to use when it is lower than the gating sequences, normally the cursor.
+     * @return the smaller of <code>minimum</code> and the minimum of the gating sequences.
+     */
+    protected long getMinimumGatingSequence(long required, long minimum)
+    {
+        return gatingSequenceTree.getMinimumSequence(required, minimum);
     }
 
     /**
@@ -104,7 +183,7 @@ public abstract class AbstractSequencer implements Sequencer {
      */
     @Override
     public SequenceBarrier newBarrier(Sequence... sequencesToTrack) {
-        return new ProcessingSequenceBarrier(this, waitStrategy, cursor, sequencesToTrack);
+        return new ProcessingSequenceBarrier(this, waitStrategy, producerWaitStrategy, cursor, sequencesToTrack);
     }
 
     /**
@@ -124,6 +203,7 @@ public abstract class AbstractSequencer implements Sequencer {
     public String toString() {
         return "AbstractSequencer{" +
             "waitStrategy=" + waitStrategy +
+            ", producerWaitStrategy=" + producerWaitStrategy +
             ", cursor=" + cursor +
             ", gatingSequences=" + Arrays.toString(gatingSequences) +
             '}';
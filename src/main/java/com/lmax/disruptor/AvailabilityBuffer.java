@@ -0,0 +1,87 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * Tracks which slots of a multi producer ring buffer have been published, so that consumers can
+ * find the highest contiguous published sequence without a shared sequence between publishers.
+ *
+ * <p>Implementations rely on the sequencer never letting the cursor get more than one lap ahead of
+ * the slot being checked, see {@link FlagAvailabilityBuffer} for more details on the approach.</p>
+ */
+abstract class AvailabilityBuffer {
+    /**
+     * Create the availability buffer for the given tracking and buffer size.
+     *
+     * @param availabilityTracking the layout to use.
+     * @param bufferSize           the size of the ring buffer, must be a power of 2.
+     * @return the availability buffer.
+     */
+    static AvailabilityBuffer newInstance(final AvailabilityTracking availabilityTracking, final int bufferSize) {
+        return newInstance(availabilityTracking, bufferSize, Sequencer.INITIAL_CURSOR_VALUE);
+    }
+
+    /**
+     * Create the availability buffer for the given tracking and buffer size, with every sequence up to and
+     * including <code>publishedSequence</code> already marked as published.
+     *
+     * @param availabilityTracking the layout to use.
+     * @param bufferSize           the size of the ring buffer, must be a power of 2.
+     * @param publishedSequence    the highest sequence that has been published.
+     * @return the availability buffer.
+     */
+    static AvailabilityBuffer newInstance(
+        final AvailabilityTracking availabilityTracking, final int bufferSize, final long publishedSequence) {
+        switch (availabilityTracking) {
+            case FLAGS:
+                return new FlagAvailabilityBuffer(bufferSize, publishedSequence);
+            case BITMAP:
+                return new BitmapAvailabilityBuffer(bufferSize, publishedSequence);
+            default:
+                throw new IllegalStateException(availabilityTracking.toString());
+        }
+    }
+
+    /**
+     * Mark a sequence as published.
+     *
+     * @param sequence the published sequence.
+     */
+    abstract void setAvailable(long sequence);
+
+    /**
+     * Mark a range of sequences as published.
+     *
+     * @param lo first published sequence.
+     * @param hi last published sequence.
+     */
+    abstract void setAvailable(long lo, long hi);
+
+    /**
+     * @param sequence to check.
+     * @return true if the sequence has been published.
+     * @see Sequencer#isAvailable(long)
+     */
+    abstract boolean isAvailable(long sequence);
+
+    /**
+     * @param lowerBound        the sequence to start scanning from.
+     * @param availableSequence the sequence to scan to.
+     * @return the highest value that can be safely read, will be at least <code>lowerBound - 1</code>.
+     * @see Sequencer#getHighestPublishedSequence(long, long)
+     */
+    abstract long getHighestPublishedSequence(long lowerBound, long availableSequence);
+}
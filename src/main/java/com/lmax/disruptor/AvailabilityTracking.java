@@ -0,0 +1,36 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * Layout used by the multi producer sequencers to track which slots of the ring buffer have been published.
+ */
+public enum AvailabilityTracking
+{
+    /**
+     * One <code>int</code> flag per slot holding the number of times the buffer has wrapped.  Consumers check
+     * each published slot with a separate volatile read.
+     */
+    FLAGS,
+
+    /**
+     * One bit per slot packed into a <code>long[]</code>, flipped each time the buffer wraps.  Consumers check
+     * up to 64 slots per volatile read and batch publishers mark a whole range with a few word updates.  Uses
+     * 32 times less memory than {@link #FLAGS}, at the cost of an atomic add rather than an ordered store for
+     * each publish, as publishers share words.
+     */
+    BITMAP
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * <p>A reusable claim on a range of sequences, letting a publisher fill the preallocated events in place and
+ * publish them together without the translator or argument arrays needed by
+ * {@link EventSink#publishEvents(EventTranslator[])}.  Claiming, reading and publishing do not allocate, so a
+ * publisher can keep one instance for the life of its thread.</p>
+ *
+ * <pre>
+ * BatchClaim&lt;Event&gt; claim = ringBuffer.newBatchClaim();
+ * ...
+ * claim.claim(n);
+ * for (int i = 0; i &lt; claim.size(); i++) {
+ *     claim.get(i).setValue(values[i]);
+ * }
+ * claim.publish();
+ * </pre>
+ *
+ * <p>Every claimed sequence has to be published, consumers can not read past one that is not.  The events can
+ * be published in several steps with {@link #commit(int)}, and a new range can only be claimed once the
+ * current one has been published.</p>
+ *
+ * <p>Instances are not thread safe, each publishing thread should create its own from
+ * {@link RingBuffer#newBatchClaim()}.</p>
+ *
+ * @param <E> implementation storing the data for sharing during exchange or parallel coordination of an event.
+ */
+public final class BatchClaim<E>
+{
+    private final RingBuffer<E> ringBuffer;
+    //当前声明的区间[lo, hi]，nextToPublish之前的序号已经发布
+    private long lo = 0L;
+    private long hi = -1L;
+    private long nextToPublish = 0L;
+
+    BatchClaim(final RingBuffer<E> ringBuffer)
+    {
+        this.ringBuffer = ringBuffer;
+    }
+
+    /**
+     * Claim the next <code>n</code> sequences, waiting for the capacity to become available.
+     *
+     * @param n the number of sequences to claim.
+     * @return this claim, for chaining.
+     * @throws IllegalArgumentException if n is less than 1 or greater than the buffer size.
+     * @throws IllegalStateException if the current claim has not been fully published.
+     * @see RingBuffer#next(int)
+     */
+    public BatchClaim<E> claim(int n)
+    {
+        checkClaim(n);
+        setRange(ringBuffer.next(n), n);
+        return this;
+    }
+
+    /**
+     * Claim the next <code>n</code> sequences if the capacity is available, without waiting.
+     *
+     * @param n the number of sequences to claim.
+     * @return true if the sequences were claimed.
+     * @throws IllegalArgumentException if n is less than 1 or greater than the buffer size.
+     * @throws IllegalStateException if the current claim has not been fully published.
+     * @see RingBuffer#tryNext(int)
+     */
+    public boolean tryClaim(int n)
+    {
+        checkClaim(n);
+        try
+        {
+            setRange(ringBuffer.tryNext(n), n);
+            return true;
+        }
+        catch (InsufficientCapacityException e)
+        {
+            return false;
+        }
+    }
+
+    private void checkClaim(final int n)
+    {
+        if (n < 1 || n > ringBuffer.getBufferSize())
+        {
+            throw new IllegalArgumentException("n must be > 0 and <= " + ringBuffer.getBufferSize());
+        }
+        if (nextToPublish <= hi)
+        {
+            throw new IllegalStateException("Previous claim has " + remaining() + " unpublished sequences");
+        }
+    }
+
+    private void setRange(final long highSequence, final int n)
+    {
+        hi = highSequence;
+        lo = highSequence - (n - 1);
+        nextToPublish = lo;
+    }
+
+    /**
+     * @return the number of sequences in the current claim, including any that have been published.
+     */
+    public int size()
+    {
+        return (int) (hi - lo + 1);
+    }
+
+    /**
+     * Get the sequence at an offset into the current claim.
+     *
+     * @param index offset from the first claimed sequence.
+     * @return the sequence.
+     */
+    public long getSequence(int index)
+    {
+        if (index < 0 || index >= size())
+        {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size());
+        }
+        return lo + index;
+    }
+
+    /**
+     * Get the preallocated event at an offset into the current claim.
+     *
+     * @param index offset from the first claimed sequence.
+     * @return the event to fill in.
+     */
+    public E get(int index)
+    {
+        return ringBuffer.get(getSequence(index));
+    }
+
+    /**
+     * Publish the next <code>count</code> events of the claim that have not been published yet, leaving the
+     * rest claimed to be filled in and published later.
+     *
+     * @param count the number of events to publish.
+     * @throws IllegalArgumentException if count is less than 1 or greater than {@link #remaining()}.
+     */
+    public void commit(int count)
+    {
+        if (count < 1 || count > remaining())
+        {
+            throw new IllegalArgumentException("count must be > 0 and <= " + remaining());
+        }
+
+        final long first = nextToPublish;
+        nextToPublish += count;
+        ringBuffer.publish(first, nextToPublish - 1);
+    }
+
+    /**
+     * Publish every event of the claim that has not been published yet.
+     */
+    public void publish()
+    {
+        final int remaining = remaining();
+        if (remaining > 0)
+        {
+            commit(remaining);
+        }
+    }
+
+    /**
+     * @return the number of claimed sequences that have not been published yet.
+     */
+    public int remaining()
+    {
+        return (int) (hi - nextToPublish + 1);
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * An {@link EventHandler} that can take all of the events available to a {@link BatchEventProcessor} at once, as
+ * an {@link EventBatch} view over the ring buffer.  Useful for handlers that sort, aggregate or bulk-write their
+ * events, which would otherwise have to collect them one {@link EventHandler#onEvent(Object, long, boolean)} call
+ * at a time.
+ * <p>
+ * The {@link BatchEventProcessor} calls {@link #onBatch(EventBatch)} in place of <code>onEvent</code>, other
+ * processors keep calling <code>onEvent</code> for each event.  Progress part way through a batch can be reported
+ * with {@link EventBatch#commit(long)}, which is also where the processor resumes after an exception.
+ *
+ * @param <T> event implementation storing the data for sharing during exchange or parallel coordination of an event.
+ */
+public interface BatchEventHandler<T>
+    extends EventHandler<T>
+{
+    /**
+     * Called when a batch of events is available.  The batch is only valid until this method returns.
+     *
+     * @param batch the events available to the processor.
+     * @throws Exception if the BatchEventHandler would like the exception handled further up the chain.
+     */
+    void onBatch(EventBatch<? extends T> batch) throws Exception;
+}
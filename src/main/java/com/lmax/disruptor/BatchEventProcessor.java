@@ -24,6 +24,9 @@ import java.util.concurrent.atomic.AtomicInteger;
  * <p>
  * If the {@link EventHandler} also implements {@link LifecycleAware} it will be notified just after the thread
  * is started and just before the thread is shutdown.
+ * <p>
+ * If the {@link EventHandler} implements {@link BatchEventHandler} it is handed each batch of available events at
+ * once through {@link BatchEventHandler#onBatch(EventBatch)}.
  *
  * @param <T> event implementation storing the data for sharing during exchange or parallel coordination of an event.
  */
@@ -48,6 +51,11 @@ public final class BatchEventProcessor<T> implements EventProcessor {
     //超时处理器
     private final TimeoutHandler timeoutHandler;
     private final BatchStartAware batchStartAware;
+    //实现了BatchEventHandler时整批交给处理器，eventBatch在每一批之间复用
+    private final BatchEventHandler<? super T> batchEventHandler;
+    private final EventBatch<T> eventBatch;
+    //每一批最多处理的事件数，处理完一批就更新sequence，让生产者和下游尽早看到进度
+    private int maxBatchSize = Integer.MAX_VALUE;
 
     /**
      * Construct a {@link EventProcessor} that will automatically track the progress by updating its sequence when
@@ -69,6 +77,9 @@ public final class BatchEventProcessor<T> implements EventProcessor {
 
         batchStartAware = (eventHandler instanceof BatchStartAware) ? (BatchStartAware) eventHandler : null;
         timeoutHandler = (eventHandler instanceof TimeoutHandler) ? (TimeoutHandler) eventHandler : null;
+        batchEventHandler = (eventHandler instanceof BatchEventHandler) ?
+            (BatchEventHandler<? super T>) eventHandler : null;
+        eventBatch = (batchEventHandler != null) ? new EventBatch<T>(dataProvider, sequence) : null;
     }
 
     @Override
@@ -102,6 +113,24 @@ public final class BatchEventProcessor<T> implements EventProcessor {
         this.exceptionHandler = exceptionHandler;
     }
 
+    /**
+     * Limit the number of events processed before the progress of this processor is published.  When the processor
+     * has fallen behind, the available events are processed in batches of at most <code>maxBatchSize</code>, and
+     * its sequence is updated after each one so that publishers and dependent consumers can progress while it
+     * catches up.  Each batch is reported separately to {@link BatchStartAware} and with <code>endOfBatch</code>.
+     * Must be set before the processor is started.
+     *
+     * @param maxBatchSize the maximum number of events in a batch, unlimited by default.
+     * @throws IllegalArgumentException if maxBatchSize is less than 1.
+     */
+    public void setMaxBatchSize(final int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must not be less than 1");
+        }
+
+        this.maxBatchSize = maxBatchSize;
+    }
+
     /**
      * It is ok to have another thread rerun this method after a halt().
      *
@@ -116,7 +145,11 @@ public final class BatchEventProcessor<T> implements EventProcessor {
             try {
                 if (running.get() == RUNNING) {
                     //核心
-                    processEvents();
+                    if (batchEventHandler != null) {
+                        processBatches();
+                    } else {
+                        processEvents();
+                    }
                 }
             }
             finally {
@@ -139,23 +172,27 @@ public final class BatchEventProcessor<T> implements EventProcessor {
         T event = null;
         //下一个需要处理的位置
         long nextSequence = sequence.get() + 1L;
+        final long maxBatchSize = this.maxBatchSize;
 
         while (true) {
             try {
                 //根据下一个要处理的位置去sequenceBarrier获取可用的Sequence
                 final long availableSequence = sequenceBarrier.waitFor(nextSequence);
+                //超过maxBatchSize时只处理一部分，剩下的在下一轮处理，waitFor会立即返回并检查是否已经halt
+                final long endSequence = availableSequence - nextSequence < maxBatchSize ?
+                    availableSequence : nextSequence + maxBatchSize - 1;
                 if (batchStartAware != null) {
-                    batchStartAware.onBatchStart(availableSequence - nextSequence + 1);
+                    batchStartAware.onBatchStart(endSequence - nextSequence + 1);
                 }
 
                 //循环进行处理
-                while (nextSequence <= availableSequence) {
+                while (nextSequence <= endSequence) {
                     event = dataProvider.get(nextSequence);
-                    eventHandler.onEvent(event, nextSequence, nextSequence == availableSequence);
+                    eventHandler.onEvent(event, nextSequence, nextSequence == endSequence);
                     nextSequence++;
                 }
 
-                sequence.set(availableSequence);
+                sequence.set(endSequence);
             } catch (final TimeoutException e) {
                 notifyTimeout(sequence.get());
             } catch (final AlertException ex) {
@@ -170,6 +207,44 @@ public final class BatchEventProcessor<T> implements EventProcessor {
         }
     }
 
+    private void processBatches() {
+        long nextSequence = sequence.get() + 1L;
+        final long maxBatchSize = this.maxBatchSize;
+
+        while (true) {
+            try {
+                final long availableSequence = sequenceBarrier.waitFor(nextSequence);
+                if (nextSequence > availableSequence) {
+                    continue;
+                }
+                final long endSequence = availableSequence - nextSequence < maxBatchSize ?
+                    availableSequence : nextSequence + maxBatchSize - 1;
+                if (batchStartAware != null) {
+                    batchStartAware.onBatchStart(endSequence - nextSequence + 1);
+                }
+
+                //整批交给处理器
+                eventBatch.reset(nextSequence, endSequence);
+                batchEventHandler.onBatch(eventBatch);
+                nextSequence = endSequence + 1;
+
+                sequence.set(endSequence);
+            } catch (final TimeoutException e) {
+                notifyTimeout(sequence.get());
+            } catch (final AlertException ex) {
+                if (running.get() != RUNNING) {
+                    break;
+                }
+            } catch (final Throwable ex) {
+                //从第一个没有提交的事件之后继续，异常不是在onBatch中抛出时就是nextSequence
+                final long failedSequence = Math.max(nextSequence, eventBatch.getCommittedSequence() + 1);
+                exceptionHandler.handleEventException(ex, failedSequence, dataProvider.get(failedSequence));
+                sequence.set(failedSequence);
+                nextSequence = failedSequence + 1;
+            }
+        }
+    }
+
     private void earlyExit() {
         notifyStart();
         notifyShutdown();
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import sun.misc.Unsafe;
+
+import com.lmax.disruptor.util.Util;
+
+/**
+ * {@link AvailabilityBuffer} holding one bit per slot, packed into a <code>long[]</code>.
+ * <p>
+ * Rather than storing the lap number like {@link FlagAvailabilityBuffer}, each bit holds the parity of the
+ * lap that last published the slot, so publishing flips the bit once per trip around the ring buffer.  The
+ * bits start at the parity of lap -1 so nothing is available until the first lap publishes.
+ * <p>
+ * -- Only the publisher that claimed a sequence can flip its bit, and it can only have claimed it once the
+ * previous lap was published and consumed, so the current value of the bit is known.  Setting a known 0 bit
+ * is an add and clearing a known 1 bit is a subtract, neither of which can carry into the neighbouring bits,
+ * so publishers sharing a word mark their slots with a single fetch-and-add rather than a compare-and-set loop.
+ * -- A range of sequences that falls in the same word and the same lap flips in one update, so publishing a
+ * batch touches one word per 64 slots.
+ * -- Consumers compare a whole word against the expected parity of every slot in it, checking up to 64
+ * slots per volatile read.
+ * <p>
+ * With only the parity kept, a slot published two laps behind looks the same as one published on the current
+ * lap.  This is safe for the in order scan in {@link #getHighestPublishedSequence(long, long)}, which stops at
+ * the first slot still holding the previous lap before reaching one that could be mistaken.
+ */
+final class BitmapAvailabilityBuffer extends AvailabilityBuffer {
+    private static final Unsafe UNSAFE = Util.getUnsafe();
+    private static final long BASE = UNSAFE.arrayBaseOffset(long[].class);
+    private static final long SCALE = UNSAFE.arrayIndexScale(long[].class);
+    private static final int BITS_PER_WORD = 64;
+    private static final int WORD_SHIFT = 6;
+    private static final int BIT_MASK = BITS_PER_WORD - 1;
+
+    private final long[] availableBitmap;
+    private final int bufferSize;
+    private final int indexMask;
+    private final int indexShift;
+
+    BitmapAvailabilityBuffer(final int bufferSize, final long publishedSequence) {
+        this.availableBitmap = new long[(bufferSize + BIT_MASK) >>> WORD_SHIFT];
+        this.bufferSize = bufferSize;
+        this.indexMask = bufferSize - 1;
+        this.indexShift = Util.log2(bufferSize);
+        initialiseAvailableBitmap(publishedSequence);
+    }
+
+    /**
+     * @return the size of the ring buffer this tracks.
+     */
+    int getBufferSize() {
+        return bufferSize;
+    }
+
+    private void initialiseAvailableBitmap(final long publishedSequence) {
+        // each bit starts at the parity of the last lap published to its slot, lap -1 is odd so a new
+        // ring buffer starts with every slot in use set
+        long[] initialWords = new long[availableBitmap.length];
+        for (int index = 0; index < bufferSize; index++) {
+            if (isOddLap(publishedSequence - ((publishedSequence - index) & indexMask))) {
+                initialWords[index >>> WORD_SHIFT] |= 1L << (index & BIT_MASK);
+            }
+        }
+        for (int i = availableBitmap.length - 1; i != 0; i--) {
+            UNSAFE.putOrderedLong(availableBitmap, wordAddress(i), initialWords[i]);
+        }
+        UNSAFE.putOrderedLong(availableBitmap, wordAddress(0), initialWords[0]);
+    }
+
+    @Override
+    void setAvailable(final long sequence)
+    {
+        int index = calculateIndex(sequence);
+        flip(index, 1L << (index & BIT_MASK), isOddLap(sequence));
+    }
+
+    @Override
+    void setAvailable(final long lo, final long hi)
+    {
+        long sequence = lo;
+        while (sequence <= hi)
+        {
+            int index = calculateIndex(sequence);
+            int length = chunkLength(index, hi - sequence + 1);
+            flip(index, chunkMask(index, length), isOddLap(sequence));
+            sequence += length;
+        }
+    }
+
+    private void flip(final int index, final long mask, final boolean oddLap)
+    {
+        // 这些位当前都是上一圈的奇偶值，加/减mask只会翻转这些位，不会进位影响其他生产者的位
+        UNSAFE.getAndAddLong(availableBitmap, wordAddress(index >>> WORD_SHIFT), oddLap ? mask : -mask);
+    }
+
+    @Override
+    boolean isAvailable(final long sequence)
+    {
+        int index = calculateIndex(sequence);
+        long word = UNSAFE.getLongVolatile(availableBitmap, wordAddress(index >>> WORD_SHIFT));
+        return (((word >>> (index & BIT_MASK)) & 1L) != 0) == isOddLap(sequence);
+    }
+
+    @Override
+    long getHighestPublishedSequence(final long lowerBound, final long availableSequence) {
+        long sequence = lowerBound;
+        while (sequence <= availableSequence) {
+            int index = calculateIndex(sequence);
+            int length = chunkLength(index, availableSequence - sequence + 1);
+            long mask = chunkMask(index, length);
+            long word = UNSAFE.getLongVolatile(availableBitmap, wordAddress(index >>> WORD_SHIFT));
+            //一次比较一个字中的所有位，找出第一个还停留在上一圈的位置
+            long unavailable = (word ^ (isOddLap(sequence) ? mask : 0L)) & mask;
+            if (unavailable != 0) {
+                return sequence + (Long.numberOfTrailingZeros(unavailable) - (index & BIT_MASK)) - 1;
+            }
+            sequence += length;
+        }
+        return availableSequence;
+    }
+
+    /**
+     * Number of sequences from the given index, up to <code>remaining</code>, that share both a word and a lap.
+     */
+    private int chunkLength(final int index, final long remaining)
+    {
+        int length = Math.min(BITS_PER_WORD - (index & BIT_MASK), bufferSize - index);
+        return remaining < length ? (int) remaining : length;
+    }
+
+    private static long chunkMask(final int index, final int length)
+    {
+        long bits = length == BITS_PER_WORD ? -1L : (1L << length) - 1;
+        return bits << (index & BIT_MASK);
+    }
+
+    private boolean isOddLap(final long sequence)
+    {
+        return ((sequence >>> indexShift) & 1L) != 0;
+    }
+
+    private int calculateIndex(final long sequence)
+    {
+        return ((int) sequence) & indexMask;
+    }
+
+    private static long wordAddress(final int word)
+    {
+        return (word * SCALE) + BASE;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.lmax.disruptor.util.Util.awaitNanos;
+
+/**
+ * Blocking strategy that uses a lock and condition variable for publishers waiting on a full ring buffer.
+ * <p>
+ * Consumers signal the publishers each time they wait on a {@link SequenceBarrier} created by the sequencer,
+ * i.e. just after they have advanced their {@link Sequence}.  As with {@link LiteBlockingWaitStrategy} the
+ * signal is elided unless a publisher is actually waiting.  Publishers also wake up after the given timeout,
+ * so gating sequences that are advanced without going through a barrier (e.g. an {@link EventPoller}) are
+ * still observed.
+ * <p>
+ * This strategy can be used when CPU resource is more important than the latency of a publisher
+ * recovering from a full ring buffer.
+ */
+public final class BlockingProducerWaitStrategy implements ProducerWaitStrategy {
+    private static final long DEFAULT_TIMEOUT_MILLIS = 1L;
+
+    private final Object mutex = new Object();
+    private final AtomicBoolean signalNeeded = new AtomicBoolean(false);
+    private final long timeoutInNanos;
+
+    public BlockingProducerWaitStrategy()
+    {
+        this(DEFAULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public BlockingProducerWaitStrategy(final long timeout, final TimeUnit units)
+    {
+        timeoutInNanos = units.toNanos(timeout);
+    }
+
+    @Override
+    public long waitFor(final long wrapPoint, final Sequencer sequencer) {
+        long minSequence;
+        if (wrapPoint > (minSequence = sequencer.getMinimumSequence(wrapPoint))) {
+            boolean interrupted = false;
+            synchronized (mutex) {
+                //与LiteBlockingWaitStrategy相同，先设置signalNeeded再检查，避免丢失消费者的唤醒
+                do {
+                    signalNeeded.getAndSet(true);
+                    if (wrapPoint <= (minSequence = sequencer.getMinimumSequence(wrapPoint))) {
+                        break;
+                    }
+                    try {
+                        awaitNanos(mutex, timeoutInNanos);
+                    } catch (final InterruptedException e) {
+                        interrupted = true;
+                    }
+                } while (wrapPoint > (minSequence = sequencer.getMinimumSequence(wrapPoint)));
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return minSequence;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+        if (signalNeeded.get() && signalNeeded.getAndSet(false)) {
+            synchronized (mutex) {
+                mutex.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BlockingProducerWaitStrategy{" +
+            "mutex=" + mutex +
+            ", signalNeeded=" + signalNeeded +
+            ", timeoutInNanos=" + timeoutInNanos +
+            '}';
+    }
+}
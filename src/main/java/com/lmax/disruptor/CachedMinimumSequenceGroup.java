@@ -0,0 +1,139 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.Arrays;
+
+import sun.misc.Unsafe;
+
+import com.lmax.disruptor.util.Util;
+
+/**
+ * Hides a group of Sequences behind a single Sequence, like {@link FixedSequenceGroup}, but remembers the last
+ * value read from each sequence.  Sequences only move forward, so a remembered value is a lower bound and a
+ * sequence remembered above the last minimum cannot be holding the group back.  {@link #get()} only reads the
+ * sequences that were at the last minimum, and returns a lower bound of the group's minimum that rises as
+ * those sequences move forward.
+ *
+ * <p>Used by {@link ProcessingSequenceBarrier} for joins after several event processors, where the wait strategy
+ * calls {@link #get()} on every spin and would otherwise read the cache line of every upstream sequence.</p>
+ */
+public final class CachedMinimumSequenceGroup extends Sequence
+{
+    private static final Unsafe UNSAFE = Util.getUnsafe();
+    private static final long BASE = UNSAFE.arrayBaseOffset(long[].class);
+    private static final long SCALE = UNSAFE.arrayIndexScale(long[].class);
+
+    private final Sequence[] sequences;
+    // 每个序列上一次读到的值，barrier可能被多个WorkProcessor共享，使用原子读写避免long被拆分
+    private final long[] lowerBounds;
+    private volatile long cachedMinimum = Long.MIN_VALUE;
+
+    /**
+     * Constructor
+     *
+     * @param sequences the list of sequences to be tracked under this sequence group
+     */
+    public CachedMinimumSequenceGroup(Sequence[] sequences)
+    {
+        this.sequences = Arrays.copyOf(sequences, sequences.length);
+        this.lowerBounds = new long[sequences.length];
+        Arrays.fill(lowerBounds, Long.MIN_VALUE);
+    }
+
+    /**
+     * Get a lower bound of the minimum sequence value for the group, reading only the sequences that may be
+     * holding it back.
+     *
+     * @return the minimum sequence value for the group, or a lower value while the sequences holding back the
+     * last minimum have not been read again.
+     */
+    @Override
+    public long get()
+    {
+        final long lastMinimum = cachedMinimum;
+        long minimum = Long.MAX_VALUE;
+        for (int i = 0; i < sequences.length; i++)
+        {
+            final long address = BASE + i * SCALE;
+            long value = UNSAFE.getLongVolatile(lowerBounds, address);
+            //只有停留在上次最小值的序列可能仍在拖后腿，其余序列的下界已经更大，不需要读取它们的缓存行
+            if (value <= lastMinimum)
+            {
+                value = sequences[i].get();
+                UNSAFE.putOrderedLong(lowerBounds, address, value);
+            }
+            minimum = Math.min(minimum, value);
+        }
+
+        if (minimum != lastMinimum)
+        {
+            cachedMinimum = minimum;
+        }
+        return minimum;
+    }
+
+    @Override
+    public String toString()
+    {
+        return Arrays.toString(sequences);
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void set(long value)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public boolean compareAndSet(long expectedValue, long newValue)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public long incrementAndGet()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public long addAndGet(long increment)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public long getAndAdd(long increment)
+    {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * <p>Hands out sequences to a single publishing thread from a block claimed up front, so that a publisher
+ * only updates the shared cursor once per <code>reservationSize</code> events rather than once per event.</p>
+ *
+ * <p>Sequences that have been reserved but not yet handed out are already claimed on the ring buffer, so
+ * consumers can not read past them until they are published.  {@link #flush()} publishes the unused part of
+ * the reservation, writing the tombstone translator into each of those slots so that event handlers can
+ * recognise and skip them.</p>
+ *
+ * <p>So that a publisher that goes idle does not stall consumers at the gap it leaves behind, the reservation
+ * can be flushed from another thread.  Each call to {@link #run()} flushes the reservation if no sequence has been
+ * handed out since the previous call, so the reservation is meant to be scheduled at a fixed rate, for example
+ * with {@link java.util.concurrent.ScheduledExecutorService#scheduleAtFixedRate(Runnable, long, long, java.util.concurrent.TimeUnit)},
+ * which bounds how long consumers can stall to about two periods.  The publisher can still flush itself before
+ * going idle to fill the gap straight away.</p>
+ *
+ * <p>Apart from {@link #flush()} and {@link #run()}, instances are not thread safe, each publishing thread should
+ * create its own from {@link RingBuffer#newClaimReservation(int, EventTranslator)}.</p>
+ *
+ * @param <E> implementation storing the data for sharing during exchange or parallel coordination of an event.
+ */
+public final class ClaimReservation<E> implements Runnable
+{
+    private final RingBuffer<E> ringBuffer;
+    private final int reservationSize;
+    private final EventTranslator<E> tombstoneTranslator;
+    //本地预留区间[nextSequence, limit]，分配序号时只CAS自己的nextSequence，不写ring buffer的共享变量
+    //flush可能来自其他线程，它把nextSequence直接CAS到limit + 1，拿走剩下的序号
+    private final Sequence nextSequence = new Sequence(0L);
+    private volatile long limit = -1L;
+    //上一次run()时看到的nextSequence，只由调度线程读写
+    private long lastSeenSequence = -1L;
+
+    ClaimReservation(
+        final RingBuffer<E> ringBuffer, final int reservationSize, final EventTranslator<E> tombstoneTranslator)
+    {
+        if (reservationSize < 1)
+        {
+            throw new IllegalArgumentException("reservationSize must not be less than 1");
+        }
+        if (reservationSize > ringBuffer.getBufferSize())
+        {
+            throw new IllegalArgumentException("reservationSize must not be greater than the buffer size");
+        }
+
+        this.ringBuffer = ringBuffer;
+        this.reservationSize = reservationSize;
+        this.tombstoneTranslator = tombstoneTranslator;
+    }
+
+    /**
+     * Get the next sequence from the reservation, claiming a new block from the ring buffer
+     * once the current one has been used up.
+     *
+     * @return the claimed sequence value
+     * @see RingBuffer#next()
+     */
+    public long next()
+    {
+        while (true)
+        {
+            final long sequence = nextSequence.get();
+            if (sequence > limit)
+            {
+                //先设置nextSequence再设置limit，flush不会看到新的limit配上旧的nextSequence
+                final long hi = ringBuffer.next(reservationSize);
+                nextSequence.set(hi - (reservationSize - 1));
+                limit = hi;
+                continue;
+            }
+            if (nextSequence.compareAndSet(sequence, sequence + 1L))
+            {
+                return sequence;
+            }
+            //剩下的序号被flush拿走了，重新申请一块
+        }
+    }
+
+    /**
+     * Get the event for a sequence handed out by {@link #next()}.
+     *
+     * @param sequence for the event
+     * @return the event for the given sequence
+     */
+    public E get(long sequence)
+    {
+        return ringBuffer.get(sequence);
+    }
+
+    /**
+     * Publish a sequence handed out by {@link #next()}.
+     *
+     * @param sequence the sequence to publish.
+     */
+    public void publish(long sequence)
+    {
+        ringBuffer.publish(sequence);
+    }
+
+    /**
+     * Publish an event using the next sequence from the reservation.
+     *
+     * @param translator The user specified translation for the event
+     */
+    public void publishEvent(EventTranslator<E> translator)
+    {
+        final long sequence = next();
+        try
+        {
+            translator.translateTo(get(sequence), sequence);
+        }
+        finally
+        {
+            publish(sequence);
+        }
+    }
+
+    /**
+     * Publish the sequences that have been reserved but not handed out, filling each of them
+     * with the tombstone translator.  The next call to {@link #next()} will claim a new block.
+     * May be called from any thread.
+     */
+    public void flush()
+    {
+        long lo;
+        long hi;
+        do
+        {
+            lo = nextSequence.get();
+            hi = limit;
+            if (lo > hi)
+            {
+                return;
+            }
+        }
+        while (!nextSequence.compareAndSet(lo, hi + 1L));
+
+        try
+        {
+            for (long sequence = lo; sequence <= hi; sequence++)
+            {
+                tombstoneTranslator.translateTo(ringBuffer.get(sequence), sequence);
+            }
+        }
+        finally
+        {
+            ringBuffer.publish(lo, hi);
+        }
+    }
+
+    /**
+     * Flush the reservation if no sequence has been handed out since the previous call.  Must only be run by one
+     * thread at a time.
+     */
+    @Override
+    public void run()
+    {
+        final long sequence = nextSequence.get();
+        if (sequence == lastSeenSequence)
+        {
+            flush();
+        }
+        lastSeenSequence = sequence;
+    }
+
+    /**
+     * @return the number of sequences reserved but not yet handed out.
+     */
+    public int remaining()
+    {
+        return (int) Math.max(0L, limit - nextSequence.get() + 1);
+    }
+
+    /**
+     * @return the number of sequences claimed from the ring buffer at a time.
+     */
+    public int getReservationSize()
+    {
+        return reservationSize;
+    }
+}
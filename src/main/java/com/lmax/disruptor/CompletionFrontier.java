@@ -0,0 +1,103 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tracks the completion of the events of a {@link WorkerPool} in a bitmap, and advances a single sequence over the
+ * contiguous run of completed events.  Workers finish events in any order, but the frontier only moves past a
+ * sequence once it and every sequence before it have been completed, so dependent consumers gating on it see the
+ * events in publish order.
+ * <p>
+ * The bitmap is a {@link BitmapAvailabilityBuffer} with completion in place of publication.  The ring buffer must
+ * gate on the frontier, so a slot is not reused before its previous lap has been completed.  After
+ * {@link RingBuffer#resize(int)} the bitmap is rebuilt for the new size by the first event completed.
+ */
+final class CompletionFrontier
+{
+    private final Sequence frontier = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+    //WorkerPool的workSequence，已经被领取的最大序号，扫描不会超过它
+    private final Sequence workSequence;
+    //ring buffer的大小会因为resize改变
+    private final Sequenced sequenced;
+    private final AtomicReference<BitmapAvailabilityBuffer> completed = new AtomicReference<>();
+
+    CompletionFrontier(final Sequenced sequenced, final Sequence workSequence)
+    {
+        this.sequenced = sequenced;
+        this.workSequence = workSequence;
+        reset(Sequencer.INITIAL_CURSOR_VALUE);
+    }
+
+    /**
+     * @return the sequence of the highest event that has been completed along with every event before it.
+     */
+    Sequence getSequence()
+    {
+        return frontier;
+    }
+
+    /**
+     * Treat every sequence up to and including <code>sequence</code> as completed.  Must not be called while
+     * workers are running.
+     *
+     * @param sequence the highest completed sequence.
+     */
+    void reset(final long sequence)
+    {
+        completed.set(new BitmapAvailabilityBuffer(sequenced.getBufferSize(), sequence));
+        frontier.set(sequence);
+    }
+
+    /**
+     * Mark an event as completed and move the frontier over any run of completed events that it closes.
+     *
+     * @param sequence of the completed event.
+     */
+    void complete(final long sequence)
+    {
+        final BitmapAvailabilityBuffer completed = completedForCurrentSize();
+        completed.setAvailable(sequence);
+
+        //每个worker都是先标记再扫描，所以最后一个补上空缺的worker一定能看到后面已经完成的序号
+        long current = frontier.get();
+        while (true)
+        {
+            final long highest = completed.getHighestPublishedSequence(current + 1L, workSequence.get());
+            if (highest <= current || frontier.compareAndSet(current, highest))
+            {
+                return;
+            }
+            current = frontier.get();
+        }
+    }
+
+    private BitmapAvailabilityBuffer completedForCurrentSize()
+    {
+        final BitmapAvailabilityBuffer current = completed.get();
+        final int bufferSize = sequenced.getBufferSize();
+        if (current.getBufferSize() == bufferSize)
+        {
+            return current;
+        }
+
+        //resize要等frontier追上cursor，这时旧的位图已经没有未完成的序号，从frontier开始换成新大小的位图
+        //只有一个worker能换成功，其他worker用它换上的位图
+        completed.compareAndSet(current, new BitmapAvailabilityBuffer(bufferSize, frontier.get()));
+        return completed.get();
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import sun.misc.Unsafe;
+
+import com.lmax.disruptor.util.ThreadHints;
+import com.lmax.disruptor.util.Util;
+
+/**
+ * <p>A single producer ring buffer that keeps only the latest event for each key.  When an event is published for
+ * a key whose previous event has not been read by any consumer yet, the new event is translated in place over the
+ * previous one instead of claiming a new slot, so the number of unread events is bounded by the number of
+ * distinct keys rather than by how far the consumers have fallen behind.</p>
+ *
+ * <p>Consumers use the ring buffer as their {@link DataProvider} with a barrier from {@link #newBarrier(Sequence...)},
+ * e.g. through a {@link BatchEventProcessor}.  Reading a slot through {@link #get(long)} marks it as taken, after
+ * which it is never overwritten, so every consumer sees either the event as it was first read or a later event in
+ * a new slot, and none of them miss the latest value.  Conflation only takes place while no consumer has reached
+ * the previous event, so a slow consumer sharing the ring buffer with a fast one still gates the producer, give it
+ * a conflating ring buffer of its own instead.</p>
+ *
+ * <p>Translators must overwrite every field of the event, as the event may hold an older value for the same key.
+ * Publishing must only be done from a single thread.  The producer remembers the last sequence of a key only until
+ * its slot is reused by a later sequence, so at most as many keys as the buffer size are held at any time, however
+ * many distinct keys are published.</p>
+ *
+ * @param <K> the type of the conflation key.
+ * @param <E> implementation storing the data for sharing during exchange or parallel coordination of an event.
+ */
+public final class ConflatingRingBuffer<K, E> implements DataProvider<E>, Cursored
+{
+    private static final Unsafe UNSAFE = Util.getUnsafe();
+    private static final long BASE = UNSAFE.arrayBaseOffset(long[].class);
+    private static final long SCALE = UNSAFE.arrayIndexScale(long[].class);
+    //槽位已被消费者读取或尚未发布，生产者不能再覆盖
+    private static final long TAKEN = Long.MIN_VALUE;
+
+    private final RingBuffer<E> ringBuffer;
+    private final int indexMask;
+    // 每个槽位的状态：等于序号表示已发布且未被读取，可以合并；等于~序号表示生产者正在覆盖；TAKEN表示不可合并
+    private final long[] slotStates;
+    //每个key最近一次发布使用的序号，只由生产者线程访问
+    private final Map<K, LastSequence<K>> lastSequences = new HashMap<K, LastSequence<K>>();
+    //每个槽位最近一次是哪个key发布的，槽位被复用时据此清理不再可能合并的key，只由生产者线程访问
+    private final LastSequence<K>[] slotOwners;
+
+    /**
+     * Create a conflating ring buffer.
+     *
+     * @param eventFactory to create the events for filling the ring buffer.
+     * @param bufferSize   number of elements to create within the ring buffer, must be a power of 2.
+     * @param waitStrategy used by consumers to wait for new events.
+     */
+    public ConflatingRingBuffer(final EventFactory<E> eventFactory, final int bufferSize, final WaitStrategy waitStrategy)
+    {
+        this.ringBuffer = RingBuffer.createSingleProducer(eventFactory, bufferSize, waitStrategy);
+        this.indexMask = bufferSize - 1;
+        this.slotStates = new long[bufferSize];
+        this.slotOwners = newLastSequences(bufferSize);
+        for (int i = 0; i < bufferSize; i++)
+        {
+            UNSAFE.putOrderedLong(slotStates, address(i), TAKEN);
+        }
+    }
+
+    /**
+     * Publish an event for a key, replacing the previous event for the key if no consumer has read it yet.
+     *
+     * @param key        the conflation key.
+     * @param translator The user specified translation for the event
+     * @return true if the event replaced an unread event rather than taking a new slot.
+     */
+    public boolean publishEvent(final K key, final EventTranslator<E> translator)
+    {
+        final LastSequence<K> lastSequence = lastSequenceFor(key);
+        final long sequence = lastSequence.sequence;
+        if (tryOpenForRewrite(sequence))
+        {
+            try
+            {
+                translator.translateTo(ringBuffer.get(sequence), sequence);
+            }
+            finally
+            {
+                reopen(sequence);
+            }
+            return true;
+        }
+
+        final long nextSequence = claim(lastSequence);
+        try
+        {
+            translator.translateTo(ringBuffer.get(nextSequence), nextSequence);
+        }
+        finally
+        {
+            reopen(nextSequence);
+            lastSequence.sequence = nextSequence;
+            ringBuffer.publish(nextSequence);
+        }
+        return false;
+    }
+
+    /**
+     * Publish an event for a key, replacing the previous event for the key if no consumer has read it yet.
+     *
+     * @param <A> Class of the user supplied argument.
+     * @param key        the conflation key.
+     * @param translator The user specified translation for the event
+     * @param arg0       A user supplied argument.
+     * @return true if the event replaced an unread event rather than taking a new slot.
+     */
+    public <A> boolean publishEvent(final K key, final EventTranslatorOneArg<E, A> translator, final A arg0)
+    {
+        final LastSequence<K> lastSequence = lastSequenceFor(key);
+        final long sequence = lastSequence.sequence;
+        if (tryOpenForRewrite(sequence))
+        {
+            try
+            {
+                translator.translateTo(ringBuffer.get(sequence), sequence, arg0);
+            }
+            finally
+            {
+                reopen(sequence);
+            }
+            return true;
+        }
+
+        final long nextSequence = claim(lastSequence);
+        try
+        {
+            translator.translateTo(ringBuffer.get(nextSequence), nextSequence, arg0);
+        }
+        finally
+        {
+            reopen(nextSequence);
+            lastSequence.sequence = nextSequence;
+            ringBuffer.publish(nextSequence);
+        }
+        return false;
+    }
+
+    /**
+     * Publish an event for a key, replacing the previous event for the key if no consumer has read it yet.
+     *
+     * @param <A> Class of the user supplied argument.
+     * @param <B> Class of the user supplied argument.
+     * @param key        the conflation key.
+     * @param translator The user specified translation for the event
+     * @param arg0       A user supplied argument.
+     * @param arg1       A user supplied argument.
+     * @return true if the event replaced an unread event rather than taking a new slot.
+     */
+    public <A, B> boolean publishEvent(
+        final K key, final EventTranslatorTwoArg<E, A, B> translator, final A arg0, final B arg1)
+    {
+        final LastSequence<K> lastSequence = lastSequenceFor(key);
+        final long sequence = lastSequence.sequence;
+        if (tryOpenForRewrite(sequence))
+        {
+            try
+            {
+                translator.translateTo(ringBuffer.get(sequence), sequence, arg0, arg1);
+            }
+            finally
+            {
+                reopen(sequence);
+            }
+            return true;
+        }
+
+        final long nextSequence = claim(lastSequence);
+        try
+        {
+            translator.translateTo(ringBuffer.get(nextSequence), nextSequence, arg0, arg1);
+        }
+        finally
+        {
+            reopen(nextSequence);
+            lastSequence.sequence = nextSequence;
+            ringBuffer.publish(nextSequence);
+        }
+        return false;
+    }
+
+    /**
+     * Get the event for a sequence, marking it as taken so that the producer no longer replaces it.
+     *
+     * @param sequence for the event
+     * @return the event for the given sequence
+     */
+    @Override
+    public E get(final long sequence)
+    {
+        final long address = address((int) sequence & indexMask);
+        while (true)
+        {
+            final long state = UNSAFE.getLongVolatile(slotStates, address);
+            if (state == ~sequence)
+            {
+                //生产者正在原地覆盖，等它完成后再读取
+                ThreadHints.onSpinWait();
+                continue;
+            }
+            if (state != sequence || UNSAFE.compareAndSwapLong(slotStates, address, sequence, TAKEN))
+            {
+                return ringBuffer.get(sequence);
+            }
+        }
+    }
+
+    /**
+     * Create a new barrier for consumers of this ring buffer.
+     *
+     * @param sequencesToTrack the additional sequences to track
+     * @return A sequence barrier that will track the specified sequences.
+     * @see RingBuffer#newBarrier(Sequence...)
+     */
+    public SequenceBarrier newBarrier(final Sequence... sequencesToTrack)
+    {
+        return ringBuffer.newBarrier(sequencesToTrack);
+    }
+
+    /**
+     * Add the specified gating sequences to this instance of the Disruptor.
+     *
+     * @param gatingSequences The sequences to add.
+     * @see RingBuffer#addGatingSequences(Sequence...)
+     */
+    public void addGatingSequences(final Sequence... gatingSequences)
+    {
+        ringBuffer.addGatingSequences(gatingSequences);
+    }
+
+    /**
+     * Remove the specified sequence from this ringBuffer.
+     *
+     * @param sequence to be removed.
+     * @return <tt>true</tt> if this sequence was found, <tt>false</tt> otherwise.
+     * @see RingBuffer#removeGatingSequence(Sequence)
+     */
+    public boolean removeGatingSequence(final Sequence sequence)
+    {
+        return ringBuffer.removeGatingSequence(sequence);
+    }
+
+    /**
+     * Get the current cursor value for the ring buffer.
+     *
+     * @return The current cursor value
+     */
+    @Override
+    public long getCursor()
+    {
+        return ringBuffer.getCursor();
+    }
+
+    /**
+     * The size of the buffer.
+     *
+     * @return size of buffer
+     */
+    public int getBufferSize()
+    {
+        return ringBuffer.getBufferSize();
+    }
+
+    int getKeyCount()
+    {
+        return lastSequences.size();
+    }
+
+    private LastSequence<K> lastSequenceFor(final K key)
+    {
+        LastSequence<K> lastSequence = lastSequences.get(key);
+        if (lastSequence == null)
+        {
+            lastSequence = new LastSequence<K>(key);
+            lastSequences.put(key, lastSequence);
+        }
+        return lastSequence;
+    }
+
+    private long claim(final LastSequence<K> lastSequence)
+    {
+        final long nextSequence = ringBuffer.next();
+        final int index = (int) nextSequence & indexMask;
+        final LastSequence<K> previousOwner = slotOwners[index];
+        //上一个key最近的事件就在这个槽位里，槽位被复用后它不可能再合并，从表里移除，否则表会随key的个数无限增长
+        if (previousOwner != null && previousOwner != lastSequence &&
+            previousOwner.sequence == nextSequence - slotOwners.length)
+        {
+            lastSequences.remove(previousOwner.key);
+        }
+        slotOwners[index] = lastSequence;
+        return nextSequence;
+    }
+
+    private boolean tryOpenForRewrite(final long sequence)
+    {
+        //槽位被消费者读取或已被后面的序号复用时CAS失败，需要申请新的槽位
+        return sequence >= 0 &&
+            UNSAFE.compareAndSwapLong(slotStates, address((int) sequence & indexMask), sequence, ~sequence);
+    }
+
+    private void reopen(final long sequence)
+    {
+        UNSAFE.putLongVolatile(slotStates, address((int) sequence & indexMask), sequence);
+    }
+
+    private static long address(final int index)
+    {
+        return BASE + index * SCALE;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <K> LastSequence<K>[] newLastSequences(final int size)
+    {
+        return new LastSequence[size];
+    }
+
+    private static final class LastSequence<K>
+    {
+        private final K key;
+        private long sequence = Sequencer.INITIAL_CURSOR_VALUE;
+
+        private LastSequence(final K key)
+        {
+            this.key = key;
+        }
+    }
+}
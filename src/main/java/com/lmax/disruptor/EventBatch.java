@@ -0,0 +1,115 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * <p>A view of the range of sequences <code>[firstSequence, lastSequence]</code> handed to a
+ * {@link BatchEventHandler}.  The view reads the events straight from the {@link DataProvider} and is reused by
+ * its processor for every batch, so it must not be kept after {@link BatchEventHandler#onBatch(EventBatch)}
+ * returns.</p>
+ *
+ * <p>All events of the batch are treated as processed once <code>onBatch</code> returns.  A handler that finishes
+ * events part way through, for example after each write to an IO device, can release them to the consumers that
+ * depend on it earlier with {@link #commit(long)}.  If <code>onBatch</code> throws, the exception is reported for
+ * the first event that was not committed and the processor carries on after that event.</p>
+ *
+ * @param <T> event implementation storing the data for sharing during exchange or parallel coordination of an event.
+ */
+public final class EventBatch<T>
+{
+    private final DataProvider<T> dataProvider;
+    private final Sequence sequence;
+    private long firstSequence;
+    private long lastSequence;
+    //已经提交的最大序号，只由处理线程使用
+    private long committedSequence;
+
+    EventBatch(final DataProvider<T> dataProvider, final Sequence sequence)
+    {
+        this.dataProvider = dataProvider;
+        this.sequence = sequence;
+    }
+
+    void reset(final long firstSequence, final long lastSequence)
+    {
+        this.firstSequence = firstSequence;
+        this.lastSequence = lastSequence;
+        this.committedSequence = firstSequence - 1;
+    }
+
+    long getCommittedSequence()
+    {
+        return committedSequence;
+    }
+
+    /**
+     * @return the sequence of the first event in the batch.
+     */
+    public long getFirstSequence()
+    {
+        return firstSequence;
+    }
+
+    /**
+     * @return the sequence of the last event in the batch.
+     */
+    public long getLastSequence()
+    {
+        return lastSequence;
+    }
+
+    /**
+     * @return the number of events in the batch.
+     */
+    public int size()
+    {
+        return (int) (lastSequence - firstSequence + 1);
+    }
+
+    /**
+     * Get an event of the batch by its position.
+     *
+     * @param index of the event, from 0 to {@link #size()} - 1.
+     * @return the event at <code>getFirstSequence() + index</code>.
+     * @throws IndexOutOfBoundsException if the index is outside the batch.
+     */
+    public T get(final int index)
+    {
+        if (index < 0 || index > lastSequence - firstSequence)
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        return dataProvider.get(firstSequence + index);
+    }
+
+    /**
+     * Report that the events of the batch up to and including <code>sequence</code> have been processed, allowing
+     * the consumers that depend on this handler to progress.
+     *
+     * @param sequence of the last processed event.
+     * @throws IllegalArgumentException if the sequence is outside the batch or before an earlier commit.
+     */
+    public void commit(final long sequence)
+    {
+        if (sequence < committedSequence || sequence > lastSequence)
+        {
+            throw new IllegalArgumentException(
+                "sequence " + sequence + " is outside [" + committedSequence + ", " + lastSequence + "]");
+        }
+        committedSequence = sequence;
+        this.sequence.set(sequence);
+    }
+}
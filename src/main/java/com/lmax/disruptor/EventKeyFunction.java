@@ -0,0 +1,33 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * Extracts the key of an event, used to route all events with equal keys to the same partition of a
+ * {@link PartitionedEventProcessor} group so that they are handled in sequence order.
+ *
+ * @param <T> event implementation storing the data for sharing during exchange or parallel coordination of an event.
+ */
+public interface EventKeyFunction<T>
+{
+    /**
+     * Get the key of the event.  Keys are compared by their {@link Object#hashCode()} only.
+     *
+     * @param event the published event.
+     * @return the key of the event, must not be null.
+     */
+    Object getKey(T event);
+}
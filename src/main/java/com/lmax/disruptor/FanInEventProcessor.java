@@ -0,0 +1,490 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.lmax.disruptor.util.ThreadHints;
+
+/**
+ * <p>Merges the events of several input {@link RingBuffer}s into a single {@link EventHandler}, so that each
+ * publisher can have its own single producer ring buffer rather than contending on a shared multi producer one.</p>
+ *
+ * <p>Input rings are visited in round-robin order.  Each visit processes the events available on that ring, up to
+ * the weight of the input, as one batch: {@link BatchStartAware#onBatchStart(long)} is called before it and
+ * <code>endOfBatch</code> is true for its last event.  Giving every input the same weight shares the handler fairly
+ * between busy rings, while different weights share it in proportion.</p>
+ *
+ * <p>Inputs can also be given a priority, to let urgent events such as cancels overtake bulk flow.  Inputs are
+ * visited in order of priority, and after each batch from an input the processor first goes back to any input of a
+ * higher priority that has events waiting, before carrying on with the round.  Priorities are therefore strict
+ * between levels and weighted round-robin within a level.  An event on a higher priority input waits for at most
+ * one batch of a lower priority input, so giving the bulk inputs a finite weight bounds its latency.</p>
+ *
+ * <p>The processor never blocks on the wait strategy of an input, when a whole round finds no events it spins
+ * and then yields, in the same way as {@link YieldingWaitStrategy}.  If a timeout is set and the handler
+ * implements {@link TimeoutHandler} it is notified each time no events have arrived for that long.  A handler that
+ * implements {@link LifecycleAware} is notified as the processor starts and stops.</p>
+ *
+ * <p>Inputs may be added and removed while the processor is running.  An input starts to be consumed from the
+ * cursor of its ring at the point it was added, and a removed input stops gating its ring once the processor has
+ * finished any batch in progress from it.</p>
+ *
+ * @param <T> event implementation storing the data for sharing during exchange or parallel coordination of an event.
+ */
+public final class FanInEventProcessor<T> implements EventProcessor {
+    private static final int IDLE = 0;
+    private static final int HALTED = IDLE + 1;
+    private static final int RUNNING = HALTED + 1;
+    private static final int SPIN_TRIES = 100;
+
+    private final AtomicInteger running = new AtomicInteger(IDLE);
+    private ExceptionHandler<? super T> exceptionHandler = new FatalExceptionHandler();
+    private final EventHandler<? super T> eventHandler;
+    //记录所有输入RingBuffer上处理过的事件总数（减1），不能用作任何RingBuffer的gating sequence
+    private final Sequence sequence = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+    private final TimeoutHandler timeoutHandler;
+    private final BatchStartAware batchStartAware;
+    private final long timeoutNanos;
+    //输入RingBuffer，写时复制，处理线程每一轮读取一次
+    private volatile Input<T>[] inputs;
+    //已经移除但还没有解除gating的输入，由处理线程在确认不再访问之后解除
+    private final ConcurrentLinkedQueue<Input<T>> removedInputs = new ConcurrentLinkedQueue<Input<T>>();
+
+    /**
+     * Construct a processor that merges its inputs into the supplied event handler, without timeouts.
+     *
+     * @param eventHandler is the delegate to which events are dispatched.
+     */
+    public FanInEventProcessor(final EventHandler<? super T> eventHandler) {
+        this(eventHandler, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Construct a processor that merges its inputs into the supplied event handler, notifying it when no
+     * events have arrived on any input for the given timeout.
+     *
+     * @param eventHandler is the delegate to which events are dispatched.
+     * @param timeout      how long the inputs can be idle before a {@link TimeoutHandler} is notified.
+     * @param units        of the timeout.
+     */
+    public FanInEventProcessor(final EventHandler<? super T> eventHandler, final long timeout, final TimeUnit units) {
+        this.eventHandler = eventHandler;
+        this.timeoutNanos = units.toNanos(timeout);
+        this.inputs = newInputs(0);
+
+        if (eventHandler instanceof SequenceReportingEventHandler) {
+            ((SequenceReportingEventHandler<?>) eventHandler).setSequenceCallback(sequence);
+        }
+
+        batchStartAware = (eventHandler instanceof BatchStartAware) ? (BatchStartAware) eventHandler : null;
+        timeoutHandler = (eventHandler instanceof TimeoutHandler) ? (TimeoutHandler) eventHandler : null;
+    }
+
+    /**
+     * Add an input ring buffer that is visited with an unlimited weight, processing all of its available
+     * events on each visit.
+     *
+     * @param ringBuffer to consume events from.
+     */
+    public void addInput(final RingBuffer<T> ringBuffer) {
+        addInput(ringBuffer, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Add an input ring buffer with the default priority of 0, gating it on this processor.
+     *
+     * @param ringBuffer to consume events from.
+     * @param weight     the maximum number of events to process from the ring buffer on each visit.
+     * @throws IllegalArgumentException if the weight is less than 1 or the ring buffer is already an input.
+     */
+    public void addInput(final RingBuffer<T> ringBuffer, final int weight) {
+        addInput(ringBuffer, weight, 0);
+    }
+
+    /**
+     * Add an input ring buffer with a priority, gating it on this processor.  Inputs with a higher priority are
+     * served before those with a lower one, inputs of the same priority share the processor by weight.
+     *
+     * @param ringBuffer to consume events from.
+     * @param weight     the maximum number of events to process from the ring buffer on each visit.
+     * @param priority   the priority of the input, higher values are served first.
+     * @throws IllegalArgumentException if the weight is less than 1 or the ring buffer is already an input.
+     */
+    public synchronized void addInput(final RingBuffer<T> ringBuffer, final int weight, final int priority) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("weight must not be less than 1");
+        }
+        if (indexOf(inputs, ringBuffer) != -1) {
+            throw new IllegalArgumentException("ringBuffer is already an input");
+        }
+
+        final Input<T> input = new Input<T>(ringBuffer, weight, priority);
+        ringBuffer.addGatingSequences(input.sequence);
+
+        //按优先级从高到低排列，同一优先级按加入的顺序
+        final Input<T>[] currentInputs = inputs;
+        int index = currentInputs.length;
+        while (index > 0 && currentInputs[index - 1].priority < priority) {
+            index--;
+        }
+        final Input<T>[] updatedInputs = newInputs(currentInputs.length + 1);
+        System.arraycopy(currentInputs, 0, updatedInputs, 0, index);
+        updatedInputs[index] = input;
+        System.arraycopy(currentInputs, index, updatedInputs, index + 1, currentInputs.length - index);
+        inputs = updatedInputs;
+    }
+
+    /**
+     * Stop consuming from an input ring buffer.
+     *
+     * @param ringBuffer to stop consuming from.
+     * @return <tt>true</tt> if the ring buffer was an input.
+     */
+    public synchronized boolean removeInput(final RingBuffer<T> ringBuffer) {
+        final Input<T>[] currentInputs = inputs;
+        final int index = indexOf(currentInputs, ringBuffer);
+        if (index == -1) {
+            return false;
+        }
+
+        final Input<T> input = currentInputs[index];
+        final Input<T>[] updatedInputs = newInputs(currentInputs.length - 1);
+        System.arraycopy(currentInputs, 0, updatedInputs, 0, index);
+        System.arraycopy(currentInputs, index + 1, updatedInputs, index, updatedInputs.length - index);
+        removedInputs.add(input);
+        inputs = updatedInputs;
+
+        // 处理线程没有运行时不会再访问被移除的输入，直接解除gating；否则由处理线程在本轮结束后解除
+        if (!isRunning()) {
+            releaseRemovedInputs(updatedInputs);
+        }
+        return true;
+    }
+
+    /**
+     * Get the sequence this processor has reached on one of its input ring buffers.
+     *
+     * @param ringBuffer the input ring buffer.
+     * @return the sequence of the last event processed from the ring buffer.
+     * @throws IllegalArgumentException if the ring buffer is not an input.
+     */
+    public Sequence getSequenceFor(final RingBuffer<T> ringBuffer) {
+        final Input<T>[] currentInputs = inputs;
+        final int index = indexOf(currentInputs, ringBuffer);
+        if (index == -1) {
+            throw new IllegalArgumentException("ringBuffer is not an input");
+        }
+        return currentInputs[index].sequence;
+    }
+
+    /**
+     * Check if any input ring buffer has events that have been published but not yet processed.
+     *
+     * @return <tt>true</tt> if any input is behind its cursor.
+     */
+    public boolean hasBacklog() {
+        for (final Input<T> input : inputs) {
+            if (input.ringBuffer.getCursor() > input.sequence.get()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Progress of this processor across all of its inputs, the total number of events processed minus one.  It is
+     * not a sequence of any one input ring buffer and can not be used to gate them, see
+     * {@link #getSequenceFor(RingBuffer)}.
+     */
+    @Override
+    public Sequence getSequence()
+    {
+        return sequence;
+    }
+
+    @Override
+    public void halt() {
+        running.set(HALTED);
+        for (final Input<T> input : inputs) {
+            input.barrier.alert();
+        }
+    }
+
+    @Override
+    public boolean isRunning()
+    {
+        return running.get() != IDLE;
+    }
+
+    /**
+     * Set a new {@link ExceptionHandler} for handling exceptions propagated out of the {@link FanInEventProcessor}
+     *
+     * @param exceptionHandler to replace the existing exceptionHandler.
+     */
+    public void setExceptionHandler(final ExceptionHandler<? super T> exceptionHandler) {
+        if (null == exceptionHandler) {
+            throw new NullPointerException();
+        }
+
+        this.exceptionHandler = exceptionHandler;
+    }
+
+    /**
+     * It is ok to have another thread rerun this method after a halt().
+     *
+     * @throws IllegalStateException if this object instance is already running in a thread
+     */
+    @Override
+    public void run() {
+        if (running.compareAndSet(IDLE, RUNNING)) {
+            for (final Input<T> input : inputs) {
+                input.barrier.clearAlert();
+            }
+            notifyStart();
+            try {
+                if (running.get() == RUNNING) {
+                    processEvents();
+                }
+            }
+            finally {
+                notifyShutdown();
+                running.set(IDLE);
+                releaseRemovedInputs(inputs);
+            }
+        } else {
+            if (running.get() == RUNNING) {
+                throw new IllegalStateException("Thread is already running");
+            } else {
+                earlyExit();
+            }
+        }
+    }
+
+    private void processEvents() {
+        T event = null;
+        Input<T> input = null;
+        long batchStart = 0L;
+        long nextSequence = 0L;
+        int idleCounter = 0;
+        long idleStart = 0L;
+        long round = 0L;
+
+        while (true) {
+            try {
+                final Input<T>[] currentInputs = inputs;
+                boolean processed = false;
+                round++;
+                //被更高优先级打断的输入的优先级，回到开头之后跳过本轮已经访问过、优先级不高于它的输入
+                int interruptedPriority = Integer.MIN_VALUE;
+
+                //轮询每一个输入RingBuffer，每次最多处理weight个事件
+                for (int i = 0; i < currentInputs.length; i++) {
+                    input = currentInputs[i];
+                    if (input.visitedRound == round && input.priority <= interruptedPriority) {
+                        continue;
+                    }
+                    input.visitedRound = round;
+                    nextSequence = input.sequence.get() + 1L;
+                    if (input.barrier.getCursor() < nextSequence) {
+                        continue;
+                    }
+
+                    final long availableSequence = input.barrier.waitFor(nextSequence);
+                    if (availableSequence < nextSequence) {
+                        continue;
+                    }
+
+                    final long endSequence = availableSequence - nextSequence < input.weight ?
+                        availableSequence : nextSequence + input.weight - 1;
+                    batchStart = nextSequence;
+                    if (batchStartAware != null) {
+                        batchStartAware.onBatchStart(endSequence - nextSequence + 1);
+                    }
+
+                    while (nextSequence <= endSequence) {
+                        event = input.ringBuffer.get(nextSequence);
+                        eventHandler.onEvent(event, nextSequence, nextSequence == endSequence);
+                        nextSequence++;
+                    }
+
+                    input.sequence.set(endSequence);
+                    sequence.set(sequence.get() + (endSequence - batchStart + 1));
+                    processed = true;
+
+                    //更高优先级的输入有事件在等待，先回去处理它们
+                    if (input.priority < currentInputs[0].priority && hasBacklogAbove(currentInputs, input.priority)) {
+                        interruptedPriority = input.priority;
+                        i = -1;
+                    }
+                }
+
+                if (!removedInputs.isEmpty()) {
+                    releaseRemovedInputs(currentInputs);
+                }
+
+                if (running.get() != RUNNING) {
+                    break;
+                }
+
+                if (processed) {
+                    idleCounter = 0;
+                    idleStart = 0L;
+                } else {
+                    idleCounter = idle(idleCounter);
+                    idleStart = checkTimeout(idleStart);
+                }
+            } catch (final TimeoutException e) {
+                notifyTimeout(sequence.get());
+            } catch (final AlertException ex) {
+                if (running.get() != RUNNING) {
+                    break;
+                }
+            } catch (final Throwable ex) {
+                exceptionHandler.handleEventException(ex, nextSequence, event);
+                input.sequence.set(nextSequence);
+                sequence.set(sequence.get() + (nextSequence - batchStart + 1));
+            }
+        }
+    }
+
+    private int idle(final int counter) {
+        if (counter < SPIN_TRIES) {
+            ThreadHints.onSpinWait();
+            return counter + 1;
+        }
+        Thread.yield();
+        return counter;
+    }
+
+    private long checkTimeout(final long idleStart) {
+        if (timeoutHandler == null || timeoutNanos == Long.MAX_VALUE) {
+            return idleStart;
+        }
+
+        final long now = System.nanoTime();
+        if (idleStart == 0L) {
+            return now;
+        }
+        if (now - idleStart >= timeoutNanos) {
+            notifyTimeout(sequence.get());
+            return now;
+        }
+        return idleStart;
+    }
+
+    private static <T> boolean hasBacklogAbove(final Input<T>[] inputs, final int priority) {
+        for (int i = 0; i < inputs.length && inputs[i].priority > priority; i++) {
+            if (inputs[i].ringBuffer.getCursor() > inputs[i].sequence.get()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void releaseRemovedInputs(final Input<T>[] currentInputs) {
+        for (final Input<T> input : removedInputs) {
+            //按Input比较而不是按ring buffer，同一个ring buffer被移除后又重新加入时旧的Input也要解除gating
+            if (!contains(currentInputs, input) && removedInputs.remove(input)) {
+                input.ringBuffer.removeGatingSequence(input.sequence);
+            }
+        }
+    }
+
+    private static <T> boolean contains(final Input<T>[] inputs, final Input<T> input) {
+        for (final Input<T> candidate : inputs) {
+            if (candidate == input) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T> int indexOf(final Input<T>[] inputs, final RingBuffer<T> ringBuffer) {
+        for (int i = 0; i < inputs.length; i++) {
+            if (inputs[i].ringBuffer == ringBuffer) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void earlyExit() {
+        notifyStart();
+        notifyShutdown();
+    }
+
+    private void notifyTimeout(final long availableSequence) {
+        try {
+            if (timeoutHandler != null) {
+                timeoutHandler.onTimeout(availableSequence);
+            }
+        }
+        catch (Throwable e) {
+            exceptionHandler.handleEventException(e, availableSequence, null);
+        }
+    }
+
+    /**
+     * Notifies the EventHandler when this processor is starting up
+     */
+    private void notifyStart() {
+        if (eventHandler instanceof LifecycleAware) {
+            try {
+                ((LifecycleAware) eventHandler).onStart();
+            } catch (final Throwable ex) {
+                exceptionHandler.handleOnStartException(ex);
+            }
+        }
+    }
+
+    /**
+     * Notifies the EventHandler immediately prior to this processor shutting down
+     */
+    private void notifyShutdown() {
+        if (eventHandler instanceof LifecycleAware) {
+            try {
+                ((LifecycleAware) eventHandler).onShutdown();
+            } catch (final Throwable ex) {
+                exceptionHandler.handleOnShutdownException(ex);
+            }
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Input<T>[] newInputs(final int size) {
+        return new Input[size];
+    }
+
+    private static final class Input<T> {
+        private final RingBuffer<T> ringBuffer;
+        private final SequenceBarrier barrier;
+        private final Sequence sequence = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+        private final int weight;
+        private final int priority;
+        //最近一次被访问的轮次，只由处理线程使用
+        private long visitedRound;
+
+        Input(final RingBuffer<T> ringBuffer, final int weight, final int priority) {
+            this.ringBuffer = ringBuffer;
+            this.barrier = ringBuffer.newBarrier();
+            this.weight = weight;
+            this.priority = priority;
+        }
+    }
+}
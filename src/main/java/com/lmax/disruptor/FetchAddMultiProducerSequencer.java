@@ -0,0 +1,106 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+
+/**
+ * <p>Coordinator for claiming sequences for access to a data structure while tracking dependent {@link Sequence}s.
+ * Suitable for use for sequencing across multiple publisher threads.</p>
+ *
+ * <p>Unlike {@link MultiProducerSequencer}, {@link Sequencer#next(int)} claims with a single atomic
+ * fetch-and-add on the cursor, so the claim always succeeds at the first attempt no matter how many
+ * publishers contend on it.  The wrap check is made after the claim: a publisher that has claimed
+ * beyond the free capacity of the buffer waits, using the {@link ProducerWaitStrategy}, for the gating
+ * sequences to pass its own wrap point before returning.  {@link Sequencer#tryNext(int)} still uses a
+ * compare-and-set so that a failed attempt leaves no claimed sequence behind.</p>
+ *
+ * <p> * Note on {@link Sequencer#getCursor()}:  With this sequencer the cursor value is updated after the call
+ * to {@link Sequencer#next()}, and it may run more than the buffer size ahead of the gating sequences while
+ * publishers are waiting for capacity.  To determine the highest available sequence that can be read
+ * {@link Sequencer#getHighestPublishedSequence(long, long)} should be used.</p>
+ */
+public final class FetchAddMultiProducerSequencer extends AbstractMultiProducerSequencer {
+    /**
+     * Construct a Sequencer with the selected wait strategy and buffer size.
+     *
+     * @param bufferSize   the size of the buffer that this will sequence over.
+     * @param waitStrategy for those waiting on sequences.
+     */
+    public FetchAddMultiProducerSequencer(int bufferSize, final WaitStrategy waitStrategy) {
+        this(bufferSize, waitStrategy, new SleepingProducerWaitStrategy());
+    }
+
+    /**
+     * Construct a Sequencer with the selected wait strategies and buffer size.
+     *
+     * @param bufferSize           the size of the buffer that this will sequence over.
+     * @param waitStrategy         for those waiting on sequences.
+     * @param producerWaitStrategy for publishers waiting on a full buffer.
+     */
+    public FetchAddMultiProducerSequencer(
+        int bufferSize, final WaitStrategy waitStrategy, final ProducerWaitStrategy producerWaitStrategy) {
+        this(bufferSize, waitStrategy, producerWaitStrategy, AvailabilityTracking.FLAGS);
+    }
+
+    /**
+     * Construct a Sequencer with the selected wait strategies, buffer size and tracking of published slots.
+     *
+     * @param bufferSize           the size of the buffer that this will sequence over.
+     * @param waitStrategy         for those waiting on sequences.
+     * @param producerWaitStrategy for publishers waiting on a full buffer.
+     * @param availabilityTracking layout used to track which slots have been published.
+     */
+    public FetchAddMultiProducerSequencer(
+        int bufferSize,
+        final WaitStrategy waitStrategy,
+        final ProducerWaitStrategy producerWaitStrategy,
+        final AvailabilityTracking availabilityTracking) {
+        super(bufferSize, waitStrategy, producerWaitStrategy, availabilityTracking);
+    }
+
+    /**
+     * @see Sequencer#next(int)
+     */
+    @Override
+    public long next(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be > 0");
+        }
+        //先通过fetch-and-add占用序号，不会因为竞争而失败重试
+        long current = cursor.getAndAdd(n);
+        long next = current + n;
+        //占用之后再判断是否环绕，如果环绕则按照生产者等待策略等待消费者越过环绕点
+        long wrapPoint = next - bufferSize;
+        long cachedGatingSequence = gatingSequenceCache.get();
+        if (wrapPoint > cachedGatingSequence || cachedGatingSequence > current) {
+            long gatingSequence = getMinimumGatingSequence(wrapPoint, current);
+            if (wrapPoint > gatingSequence) {
+                gatingSequence = producerWaitStrategy.waitFor(wrapPoint, this);
+            }
+            gatingSequenceCache.set(gatingSequence);
+        }
+        return next;
+    }
+
+    /**
+     * @see Sequencer#remainingCapacity()
+     */
+    @Override
+    public long remainingCapacity()
+    {
+        return Math.max(0L, super.remainingCapacity());
+    }
+}
@@ -88,4 +88,13 @@ public final class FixedSequenceGroup extends Sequence
     {
         throw new UnsupportedOperationException();
     }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public long getAndAdd(long increment)
+    {
+        throw new UnsupportedOperationException();
+    }
 }
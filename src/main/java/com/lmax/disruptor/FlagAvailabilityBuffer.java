@@ -0,0 +1,123 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import sun.misc.Unsafe;
+
+import com.lmax.disruptor.util.Util;
+
+/**
+ * {@link AvailabilityBuffer} holding one <code>int</code> flag per slot.
+ */
+final class FlagAvailabilityBuffer extends AvailabilityBuffer {
+    private static final Unsafe UNSAFE = Util.getUnsafe();
+    private static final long BASE = UNSAFE.arrayBaseOffset(int[].class);
+    private static final long SCALE = UNSAFE.arrayIndexScale(int[].class);
+
+    // availableBuffer tracks the state of each ringbuffer slot
+    // see below for more details on the approach
+    private final int[] availableBuffer;
+    private final int indexMask;
+    private final int indexShift;
+
+    FlagAvailabilityBuffer(final int bufferSize, final long publishedSequence) {
+        availableBuffer = new int[bufferSize];
+        indexMask = bufferSize - 1;
+        indexShift = Util.log2(bufferSize);
+        initialiseAvailableBuffer(publishedSequence);
+    }
+
+    private void initialiseAvailableBuffer(final long publishedSequence) {
+        //每个槽位记录最后一次落在该槽位且不大于publishedSequence的序号所在的圈数，初始时即为-1圈
+        for (int i = availableBuffer.length - 1; i != 0; i--) {
+            setAvailable(lastSequenceAt(i, publishedSequence));
+        }
+        setAvailable(lastSequenceAt(0, publishedSequence));
+    }
+
+    private long lastSequenceAt(final int index, final long publishedSequence) {
+        return publishedSequence - ((publishedSequence - index) & indexMask);
+    }
+
+    /**
+     * The below methods work on the availableBuffer flag.
+     * <p>
+     * The prime reason is to avoid a shared sequence object between publisher threads.
+     * (Keeping single pointers tracking start and end would require coordination
+     * between the threads).
+     * <p>
+     * --  Firstly we have the constraint that the delta between the cursor and minimum
+     * gating sequence will never be larger than the buffer size (the code in
+     * next/tryNext in the Sequence takes care of that).
+     * -- Given that; take the sequence value and mask off the lower portion of the
+     * sequence as the index into the buffer (indexMask). (aka modulo operator)
+     * -- The upper portion of the sequence becomes the value to check for availability.
+     * ie: it tells us how many times around the ring buffer we've been (aka division)
+     * -- Because we can't wrap without the gating sequences moving forward (i.e. the
+     * minimum gating sequence is effectively our last available position in the
+     * buffer), when we have new data and successfully claimed a slot we can simply
+     * write over the top.
+     */
+    @Override
+    void setAvailable(final long sequence)
+    {
+        setAvailableBufferValue(calculateIndex(sequence), calculateAvailabilityFlag(sequence));
+    }
+
+    @Override
+    void setAvailable(final long lo, final long hi)
+    {
+        for (long l = lo; l <= hi; l++)
+        {
+            setAvailable(l);
+        }
+    }
+
+    private void setAvailableBufferValue(int index, int flag)
+    {
+        long bufferAddress = (index * SCALE) + BASE;
+        UNSAFE.putOrderedInt(availableBuffer, bufferAddress, flag);
+    }
+
+    @Override
+    boolean isAvailable(long sequence)
+    {
+        int index = calculateIndex(sequence);
+        int flag = calculateAvailabilityFlag(sequence);
+        long bufferAddress = (index * SCALE) + BASE;
+        return UNSAFE.getIntVolatile(availableBuffer, bufferAddress) == flag;
+    }
+
+    @Override
+    long getHighestPublishedSequence(long lowerBound, long availableSequence) {
+        for (long sequence = lowerBound; sequence <= availableSequence; sequence++) {
+            if (!isAvailable(sequence)) {
+                return sequence - 1;
+            }
+        }
+        return availableSequence;
+    }
+
+    private int calculateAvailabilityFlag(final long sequence)
+    {
+        return (int) (sequence >>> indexShift);
+    }
+
+    private int calculateIndex(final long sequence)
+    {
+        return ((int) sequence) & indexMask;
+    }
+}
@@ -0,0 +1,384 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.lmax.disruptor.util.ThreadHints;
+
+/**
+ * <p>Publishes events on behalf of many contending threads using flat combining.  Each thread posts its translator
+ * and arguments into its own slot, and whichever thread acquires the combiner lock publishes every pending slot
+ * as one batch through {@link EventSink#publishEvents(EventTranslator[], int, int)}.  Under contention this
+ * replaces a claim and a wait strategy signal per event with one of each per batch.</p>
+ *
+ * <p>Each publishing thread gets a slot the first time it publishes through this instance, which the combining
+ * thread scans on every batch.  A slot stays registered until its thread calls {@link #release()}, or until the
+ * thread has terminated and another thread registers, so threads that come and go in a thread pool do not make
+ * combining slower over time.  A translator that throws still has its event published, like
+ * {@link RingBuffer#publishEvent(EventTranslator)}, and the exception is rethrown in the thread that posted it.
+ * If the event sink itself throws while publishing a batch, the exception is rethrown in every thread whose event
+ * was in that batch.</p>
+ *
+ * @param <E> implementation storing the data for sharing during exchange or parallel coordination of an event.
+ */
+public final class FlatCombiningPublisher<E>
+{
+    private static final int SPIN_TRIES = 100;
+
+    private final EventSink<E> eventSink;
+    private final int maxBatchSize;
+    private final AtomicBoolean combinerLock = new AtomicBoolean(false);
+    private final ThreadLocal<Slot<E>> localSlot = new ThreadLocal<Slot<E>>();
+    //所有线程的发布槽位，写时复制
+    private volatile Slot<E>[] slots;
+    //只由持有combinerLock的线程使用
+    private Slot<E>[] batch;
+
+    /**
+     * Construct a publisher that combines events into batches of up to the buffer size of the ring buffer.
+     *
+     * @param ringBuffer to publish events to.
+     */
+    public FlatCombiningPublisher(final RingBuffer<E> ringBuffer)
+    {
+        this(ringBuffer, ringBuffer.getBufferSize());
+    }
+
+    /**
+     * Construct a publisher that combines events into batches of up to <code>maxBatchSize</code>.
+     *
+     * @param eventSink    to publish events to.
+     * @param maxBatchSize the largest batch to publish at once, must not be larger than the buffer size.
+     * @throws IllegalArgumentException if maxBatchSize is less than 1, or the event sink is a {@link RingBuffer}
+     *                                  and maxBatchSize is greater than its buffer size.
+     */
+    public FlatCombiningPublisher(final EventSink<E> eventSink, final int maxBatchSize)
+    {
+        if (maxBatchSize < 1)
+        {
+            throw new IllegalArgumentException("maxBatchSize must not be less than 1");
+        }
+        if (eventSink instanceof RingBuffer && maxBatchSize > ((RingBuffer<E>) eventSink).getBufferSize())
+        {
+            throw new IllegalArgumentException("maxBatchSize must not be greater than the buffer size");
+        }
+
+        this.eventSink = eventSink;
+        this.maxBatchSize = maxBatchSize;
+        this.slots = newSlots(0);
+        this.batch = newSlots(0);
+    }
+
+    /**
+     * Publishes an event, combined with the events of any other threads publishing at the same time.
+     *
+     * @param translator The user specified translation for the event
+     * @see EventSink#publishEvent(EventTranslator)
+     */
+    public void publishEvent(final EventTranslator<E> translator)
+    {
+        final Slot<E> slot = localSlot();
+        slot.translator = translator;
+        slot.arity = 0;
+        await(slot);
+    }
+
+    /**
+     * Publishes an event with one argument, combined with the events of any other threads publishing at the same time.
+     *
+     * @param <A> Class of the user supplied argument
+     * @param translator The user specified translation for the event
+     * @param arg0       A user supplied argument.
+     * @see EventSink#publishEvent(EventTranslatorOneArg, Object)
+     */
+    public <A> void publishEvent(final EventTranslatorOneArg<E, A> translator, final A arg0)
+    {
+        final Slot<E> slot = localSlot();
+        slot.translator = translator;
+        slot.arity = 1;
+        slot.arg0 = arg0;
+        await(slot);
+    }
+
+    /**
+     * Publishes an event with two arguments, combined with the events of any other threads publishing at the
+     * same time.
+     *
+     * @param <A> Class of the user supplied argument
+     * @param <B> Class of the user supplied argument
+     * @param translator The user specified translation for the event
+     * @param arg0       A user supplied argument.
+     * @param arg1       A user supplied argument.
+     * @see EventSink#publishEvent(EventTranslatorTwoArg, Object, Object)
+     */
+    public <A, B> void publishEvent(final EventTranslatorTwoArg<E, A, B> translator, final A arg0, final B arg1)
+    {
+        final Slot<E> slot = localSlot();
+        slot.translator = translator;
+        slot.arity = 2;
+        slot.arg0 = arg0;
+        slot.arg1 = arg1;
+        await(slot);
+    }
+
+    /**
+     * Publishes an event with three arguments, combined with the events of any other threads publishing at the
+     * same time.
+     *
+     * @param <A> Class of the user supplied argument
+     * @param <B> Class of the user supplied argument
+     * @param <C> Class of the user supplied argument
+     * @param translator The user specified translation for the event
+     * @param arg0       A user supplied argument.
+     * @param arg1       A user supplied argument.
+     * @param arg2       A user supplied argument.
+     * @see EventSink#publishEvent(EventTranslatorThreeArg, Object, Object, Object)
+     */
+    public <A, B, C> void publishEvent(
+        final EventTranslatorThreeArg<E, A, B, C> translator, final A arg0, final B arg1, final C arg2)
+    {
+        final Slot<E> slot = localSlot();
+        slot.translator = translator;
+        slot.arity = 3;
+        slot.arg0 = arg0;
+        slot.arg1 = arg1;
+        slot.arg2 = arg2;
+        await(slot);
+    }
+
+    /**
+     * Releases the slot of the calling thread, for a thread that will not publish through this instance again
+     * but keeps running, such as a pooled thread finishing a task.  The thread gets a new slot if it publishes
+     * again.  Slots of terminated threads are released without calling this method.
+     */
+    public void release()
+    {
+        final Slot<E> slot = localSlot.get();
+        if (slot != null)
+        {
+            localSlot.remove();
+            updateSlots(slot, null);
+        }
+    }
+
+    private Slot<E> localSlot()
+    {
+        Slot<E> slot = localSlot.get();
+        if (slot == null)
+        {
+            slot = new Slot<E>(Thread.currentThread());
+            updateSlots(null, slot);
+            localSlot.set(slot);
+        }
+        return slot;
+    }
+
+    private void await(final Slot<E> slot)
+    {
+        slot.pending = true;
+
+        int counter = SPIN_TRIES;
+        while (slot.pending)
+        {
+            //抢到combiner锁的线程负责把所有等待中的事件一次性发布
+            if (!combinerLock.get() && combinerLock.compareAndSet(false, true))
+            {
+                try
+                {
+                    combine();
+                }
+                finally
+                {
+                    combinerLock.set(false);
+                }
+            }
+            else if (counter > 0)
+            {
+                --counter;
+                ThreadHints.onSpinWait();
+            }
+            else
+            {
+                Thread.yield();
+            }
+        }
+
+        slot.clear();
+    }
+
+    private void combine()
+    {
+        final Slot<E>[] currentSlots = slots;
+        if (batch.length < currentSlots.length)
+        {
+            batch = Arrays.copyOf(batch, currentSlots.length);
+        }
+
+        int batchSize = 0;
+        for (int i = 0; i < currentSlots.length; i++)
+        {
+            final Slot<E> slot = currentSlots[i];
+            if (slot.pending)
+            {
+                batch[batchSize++] = slot;
+                if (batchSize == maxBatchSize)
+                {
+                    publish(batchSize);
+                    batchSize = 0;
+                }
+            }
+        }
+
+        if (batchSize > 0)
+        {
+            publish(batchSize);
+        }
+    }
+
+    private void publish(final int batchSize)
+    {
+        final Slot<E>[] translators = batch;
+        try
+        {
+            eventSink.publishEvents(translators, 0, batchSize);
+        }
+        catch (final Throwable ex)
+        {
+            //发布失败时每个线程都要知道自己的事件可能没有发布，异常在各自的线程里重新抛出
+            for (int i = 0; i < batchSize; i++)
+            {
+                translators[i].failure = ex;
+            }
+        }
+        finally
+        {
+            for (int i = 0; i < batchSize; i++)
+            {
+                translators[i].pending = false;
+                translators[i] = null;
+            }
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <E> Slot<E>[] newSlots(final int size)
+    {
+        return new Slot[size];
+    }
+
+    private synchronized void updateSlots(final Slot<E> removed, final Slot<E> added)
+    {
+        final Slot<E>[] currentSlots = slots;
+        final Slot<E>[] updatedSlots = newSlots(currentSlots.length + 1);
+        int size = 0;
+        for (final Slot<E> slot : currentSlots)
+        {
+            //线程结束后它的槽位不会再有等待中的事件，注册新槽位时顺便清理，线程池线程更替时槽位数不会一直增长
+            if (slot != removed && slot.isOwnerAlive())
+            {
+                updatedSlots[size++] = slot;
+            }
+        }
+        if (added != null)
+        {
+            updatedSlots[size++] = added;
+        }
+        slots = Arrays.copyOf(updatedSlots, size);
+    }
+
+    int getSlotCount()
+    {
+        return slots.length;
+    }
+
+    /**
+     * A thread's posted event, translating it on behalf of the combining thread.
+     */
+    private static final class Slot<E> implements EventTranslator<E>
+    {
+        //弱引用，槽位数组不能让已结束的线程无法回收
+        private final WeakReference<Thread> owner;
+        private volatile boolean pending;
+        private Object translator;
+        private int arity;
+        private Object arg0;
+        private Object arg1;
+        private Object arg2;
+        private Throwable failure;
+
+        private Slot(final Thread owner)
+        {
+            this.owner = new WeakReference<Thread>(owner);
+        }
+
+        private boolean isOwnerAlive()
+        {
+            final Thread thread = owner.get();
+            return thread != null && thread.isAlive();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void translateTo(final E event, final long sequence)
+        {
+            try
+            {
+                switch (arity)
+                {
+                    case 0:
+                        ((EventTranslator<E>) translator).translateTo(event, sequence);
+                        break;
+                    case 1:
+                        ((EventTranslatorOneArg<E, Object>) translator).translateTo(event, sequence, arg0);
+                        break;
+                    case 2:
+                        ((EventTranslatorTwoArg<E, Object, Object>) translator).translateTo(event, sequence, arg0, arg1);
+                        break;
+                    default:
+                        ((EventTranslatorThreeArg<E, Object, Object, Object>) translator)
+                            .translateTo(event, sequence, arg0, arg1, arg2);
+                        break;
+                }
+            }
+            catch (final Throwable ex)
+            {
+                failure = ex;
+            }
+        }
+
+        private void clear()
+        {
+            final Throwable ex = failure;
+            translator = null;
+            arg0 = null;
+            arg1 = null;
+            arg2 = null;
+            failure = null;
+
+            if (ex instanceof RuntimeException)
+            {
+                throw (RuntimeException) ex;
+            }
+            if (ex instanceof Error)
+            {
+                throw (Error) ex;
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * <p>Tournament tree over a fixed set of gating {@link Sequence}s that lets a publisher check the minimum
+ * without reading every sequence on each wrap check.</p>
+ *
+ * <p>Each node caches a lower bound of the minimum of the sequences below it.  The sequences only ever move
+ * forward, so a cached value stays a valid lower bound however old it is.  The exception is when the
+ * sequencer is reset to an earlier sequence, which is detected the same way as the sequencers' own caches,
+ * by a cached value that is ahead of the cursor.  When asked whether the minimum
+ * has reached a required sequence the tree only descends into nodes whose cached value is still below it,
+ * so sequences that were already far enough ahead last time are not read again.  With a wide fan-out of
+ * consumers the publisher normally reads the root, plus the few sequences that are lagging.</p>
+ *
+ * <p>The tree is immutable in shape, a new tree is built when the gating sequences change.</p>
+ */
+final class MinimumSequenceTree {
+    private static final int FAN_OUT = 4;
+
+    private final Sequence[] sequences;
+    private final Node root;
+
+    MinimumSequenceTree(final Sequence[] sequences) {
+        this.sequences = sequences;
+        this.root = sequences.length == 0 ? null : build(sequences, 0, sequences.length);
+    }
+
+    /**
+     * @return the sequences this tree was built from.
+     */
+    Sequence[] getSequences() {
+        return sequences;
+    }
+
+    /**
+     * Get a lower bound of the minimum sequence that is accurate enough to tell whether the minimum
+     * has reached <code>required</code>.  If it has the value returned is at least <code>required</code>,
+     * otherwise the value returned is the current minimum.
+     *
+     * @param required the sequence the minimum needs to have reached.
+     * @param minimum  an initial default minimum, returned when there are no sequences.
+     * @return the smaller of <code>minimum</code> and the lower bound of the minimum sequence.
+     */
+    long getMinimumSequence(final long required, final long minimum) {
+        if (null == root) {
+            return minimum;
+        }
+        return Math.min(minimum, root.refresh(required, minimum));
+    }
+
+    /**
+     * Get the exact minimum sequence, refreshing every node of the tree.
+     *
+     * @param minimum an initial default minimum, returned when there are no sequences.
+     * @return the smaller of <code>minimum</code> and the minimum sequence.
+     */
+    long getMinimumSequence(final long minimum) {
+        return getMinimumSequence(Long.MAX_VALUE, minimum);
+    }
+
+    private static Node build(final Sequence[] sequences, final int from, final int to) {
+        int count = to - from;
+        if (count <= FAN_OUT) {
+            Sequence[] leaves = new Sequence[count];
+            System.arraycopy(sequences, from, leaves, 0, count);
+            return new Node(null, leaves);
+        }
+
+        int childSize = FAN_OUT;
+        while (childSize * FAN_OUT < count) {
+            childSize *= FAN_OUT;
+        }
+        Node[] children = new Node[(count + childSize - 1) / childSize];
+        for (int i = 0; i < children.length; i++) {
+            int childFrom = from + (i * childSize);
+            children[i] = build(sequences, childFrom, Math.min(to, childFrom + childSize));
+        }
+        return new Node(children, null);
+    }
+
+    private static final class Node {
+        // 缓存的子树最小值，只会偏小不会偏大，用Sequence保证独占缓存行
+        private final Sequence cachedMinimum = new Sequence(Long.MIN_VALUE);
+        private final Node[] children;
+        private final Sequence[] leaves;
+
+        Node(final Node[] children, final Sequence[] leaves) {
+            this.children = children;
+            this.leaves = leaves;
+        }
+
+        long refresh(final long required, final long cursor) {
+            long cached = cachedMinimum.get();
+            if (cached >= required && cached <= cursor) {
+                return cached;
+            }
+
+            long minimum = Long.MAX_VALUE;
+            if (null != leaves) {
+                for (int i = 0, n = leaves.length; i < n; i++) {
+                    minimum = Math.min(minimum, leaves[i].get());
+                }
+            }
+            else {
+                //只刷新缓存值落后于required的子树
+                for (int i = 0, n = children.length; i < n; i++) {
+                    minimum = Math.min(minimum, children[i].refresh(required, cursor));
+                }
+            }
+            //没有变化时不写，等待中的生产者反复刷新时不会让消费者共享的缓存行失效
+            if (minimum != cached) {
+                cachedMinimum.set(minimum);
+            }
+            return minimum;
+        }
+    }
+}
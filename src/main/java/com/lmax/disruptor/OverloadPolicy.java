@@ -0,0 +1,40 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * What an {@link OverloadPublisher} does with an event when the ring buffer can not take it without waiting.
+ */
+public enum OverloadPolicy
+{
+    /**
+     * Discard the event being published when the ring buffer is full.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Overwrite the oldest events still unread by non-critical consumers, which do not gate the ring buffer.
+     * The events of critical consumers are never overwritten, when they are the ones holding the ring buffer
+     * up the event being published is discarded instead.  Requires a single producer ring buffer.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Publish a fraction of the events once the remaining capacity falls to a threshold, and discard the event
+     * being published when the ring buffer is full.
+     */
+    SAMPLE
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.Arrays;
+
+/**
+ * <p>Publishes events to a {@link RingBuffer} without ever waiting for capacity, shedding load according to an
+ * {@link OverloadPolicy} instead.  Useful for producers such as telemetry that would rather lose events than
+ * stall the thread they run on.</p>
+ *
+ * <p>Events are claimed with {@link RingBuffer#tryNext()}, so the publish path does not allocate and is as cheap
+ * as {@link RingBuffer#tryPublishEvent(EventTranslator)} while there is capacity.  Every event that is not
+ * published is counted in {@link #getDroppedCount()}, and for {@link OverloadPolicy#DROP_OLDEST} every event that
+ * is overwritten before a non-critical consumer read it is counted in {@link #getOverwrittenCount()}.  The
+ * counters can be read from any thread.</p>
+ *
+ * <p>Instances hold the state used for sampling, so each publishing thread should have its own.</p>
+ *
+ * @param <E> implementation storing the data for sharing during exchange or parallel coordination of an event.
+ */
+public final class OverloadPublisher<E>
+{
+    private static final int SAMPLE_BITS = 24;
+
+    private final RingBuffer<E> ringBuffer;
+    private final OverloadPolicy policy;
+    private final Sequence[] nonCriticalSequences;
+    private final int pressureThreshold;
+    private final int sampleThreshold;
+    private final Sequence droppedCount = new Sequence(0L);
+    private final Sequence overwrittenCount = new Sequence(0L);
+    //xorshift随机数状态，只由发布线程使用
+    private int randomState;
+
+    private OverloadPublisher(
+        final RingBuffer<E> ringBuffer,
+        final OverloadPolicy policy,
+        final Sequence[] nonCriticalSequences,
+        final int pressureThreshold,
+        final double sampleRate)
+    {
+        this.ringBuffer = ringBuffer;
+        this.policy = policy;
+        this.nonCriticalSequences = nonCriticalSequences;
+        this.pressureThreshold = pressureThreshold;
+        this.sampleThreshold = (int) (sampleRate * (1 << SAMPLE_BITS));
+        this.randomState = System.identityHashCode(this) | 1;
+    }
+
+    /**
+     * Create a publisher that discards the event being published when the ring buffer is full.
+     *
+     * @param <E> the event type.
+     * @param ringBuffer to publish events to.
+     * @return the publisher.
+     */
+    public static <E> OverloadPublisher<E> dropNewest(final RingBuffer<E> ringBuffer)
+    {
+        return new OverloadPublisher<E>(ringBuffer, OverloadPolicy.DROP_NEWEST, new Sequence[0], 0, 1.0);
+    }
+
+    /**
+     * <p>Create a publisher that overwrites events still unread by non-critical consumers.</p>
+     *
+     * <p>The sequences of the non-critical consumers must not be gating sequences of the ring buffer, so they
+     * never hold the producer up.  Their consumers may read an event while it is being overwritten, or find a
+     * later event in its slot, and have to tolerate both.  The sequences of critical consumers gate the ring
+     * buffer as usual and when they hold it up the event being published is discarded.</p>
+     *
+     * <p>Only ring buffers created for {@link com.lmax.disruptor.dsl.ProducerType#SINGLE} are supported.  On a
+     * multi producer ring buffer the availability flag of an overwritten slot belongs to a later lap, so a
+     * non-critical consumer that was overtaken would wait on its sequence forever.</p>
+     *
+     * @param <E> the event type.
+     * @param ringBuffer           to publish events to.
+     * @param nonCriticalSequences the sequences of the consumers whose unread events may be overwritten.
+     * @return the publisher.
+     * @throws IllegalArgumentException if the ring buffer is not a single producer ring buffer.
+     */
+    public static <E> OverloadPublisher<E> dropOldest(
+        final RingBuffer<E> ringBuffer, final Sequence... nonCriticalSequences)
+    {
+        //多生产者的可用标记按圈区分，被覆盖的槽位会让落后的非关键消费者永远等不到自己的序号
+        if (!(ringBuffer.sequencer instanceof SingleProducerSequencer))
+        {
+            throw new IllegalArgumentException("DROP_OLDEST requires a single producer ring buffer");
+        }
+
+        return new OverloadPublisher<E>(
+            ringBuffer, OverloadPolicy.DROP_OLDEST,
+            Arrays.copyOf(nonCriticalSequences, nonCriticalSequences.length), 0, 1.0);
+    }
+
+    /**
+     * Create a publisher that publishes only a fraction of the events while the remaining capacity of the ring
+     * buffer is at or below a threshold, and discards the event being published when the ring buffer is full.
+     *
+     * @param <E> the event type.
+     * @param ringBuffer        to publish events to.
+     * @param pressureThreshold the remaining capacity at or below which events are sampled.
+     * @param sampleRate        the fraction of the events to publish under pressure, between 0 and 1.
+     * @return the publisher.
+     * @throws IllegalArgumentException if the threshold is not between 1 and the buffer size or the rate is not
+     *                                  between 0 and 1.
+     */
+    public static <E> OverloadPublisher<E> sample(
+        final RingBuffer<E> ringBuffer, final int pressureThreshold, final double sampleRate)
+    {
+        if (pressureThreshold < 1 || pressureThreshold > ringBuffer.getBufferSize())
+        {
+            throw new IllegalArgumentException("pressureThreshold must be between 1 and the buffer size");
+        }
+        if (!(sampleRate >= 0.0 && sampleRate <= 1.0))
+        {
+            throw new IllegalArgumentException("sampleRate must be between 0 and 1");
+        }
+
+        return new OverloadPublisher<E>(ringBuffer, OverloadPolicy.SAMPLE, new Sequence[0], pressureThreshold, sampleRate);
+    }
+
+    /**
+     * Publish an event unless the policy sheds it.
+     *
+     * @param translator The user specified translation for the event
+     * @return true if the event was published.
+     */
+    public boolean publishEvent(final EventTranslator<E> translator)
+    {
+        final long sequence = claim();
+        if (sequence < 0)
+        {
+            return false;
+        }
+
+        try
+        {
+            translator.translateTo(ringBuffer.get(sequence), sequence);
+        }
+        finally
+        {
+            ringBuffer.publish(sequence);
+        }
+        return true;
+    }
+
+    /**
+     * Publish an event unless the policy sheds it.
+     *
+     * @param <A> Class of the user supplied argument.
+     * @param translator The user specified translation for the event
+     * @param arg0       A user supplied argument.
+     * @return true if the event was published.
+     */
+    public <A> boolean publishEvent(final EventTranslatorOneArg<E, A> translator, final A arg0)
+    {
+        final long sequence = claim();
+        if (sequence < 0)
+        {
+            return false;
+        }
+
+        try
+        {
+            translator.translateTo(ringBuffer.get(sequence), sequence, arg0);
+        }
+        finally
+        {
+            ringBuffer.publish(sequence);
+        }
+        return true;
+    }
+
+    /**
+     * Publish an event unless the policy sheds it.
+     *
+     * @param <A> Class of the user supplied argument.
+     * @param <B> Class of the user supplied argument.
+     * @param translator The user specified translation for the event
+     * @param arg0       A user supplied argument.
+     * @param arg1       A user supplied argument.
+     * @return true if the event was published.
+     */
+    public <A, B> boolean publishEvent(final EventTranslatorTwoArg<E, A, B> translator, final A arg0, final B arg1)
+    {
+        final long sequence = claim();
+        if (sequence < 0)
+        {
+            return false;
+        }
+
+        try
+        {
+            translator.translateTo(ringBuffer.get(sequence), sequence, arg0, arg1);
+        }
+        finally
+        {
+            ringBuffer.publish(sequence);
+        }
+        return true;
+    }
+
+    /**
+     * Publish an event unless the policy sheds it.
+     *
+     * @param <A> Class of the user supplied argument.
+     * @param <B> Class of the user supplied argument.
+     * @param <C> Class of the user supplied argument.
+     * @param translator The user specified translation for the event
+     * @param arg0       A user supplied argument.
+     * @param arg1       A user supplied argument.
+     * @param arg2       A user supplied argument.
+     * @return true if the event was published.
+     */
+    public <A, B, C> boolean publishEvent(
+        final EventTranslatorThreeArg<E, A, B, C> translator, final A arg0, final B arg1, final C arg2)
+    {
+        final long sequence = claim();
+        if (sequence < 0)
+        {
+            return false;
+        }
+
+        try
+        {
+            translator.translateTo(ringBuffer.get(sequence), sequence, arg0, arg1, arg2);
+        }
+        finally
+        {
+            ringBuffer.publish(sequence);
+        }
+        return true;
+    }
+
+    /**
+     * Get the policy used by this publisher.
+     *
+     * @return the overload policy.
+     */
+    public OverloadPolicy getPolicy()
+    {
+        return policy;
+    }
+
+    /**
+     * Get the number of events that were not published.
+     *
+     * @return the number of dropped events.
+     */
+    public long getDroppedCount()
+    {
+        return droppedCount.get();
+    }
+
+    /**
+     * Get the number of events overwritten before a non-critical consumer read them, counted once for every
+     * consumer that missed the event.
+     *
+     * @return the number of overwritten events.
+     */
+    public long getOverwrittenCount()
+    {
+        return overwrittenCount.get();
+    }
+
+    private long claim()
+    {
+        if (policy == OverloadPolicy.SAMPLE && !ringBuffer.hasAvailableCapacity(pressureThreshold + 1) && !sampled())
+        {
+            droppedCount.incrementAndGet();
+            return -1L;
+        }
+
+        final long sequence;
+        try
+        {
+            sequence = ringBuffer.tryNext();
+        }
+        catch (final InsufficientCapacityException e)
+        {
+            droppedCount.incrementAndGet();
+            return -1L;
+        }
+
+        //覆盖的槽位上是sequence - bufferSize，还没被读取的非关键消费者丢失了这个事件
+        final long overwritten = sequence - ringBuffer.getBufferSize();
+        for (final Sequence nonCriticalSequence : nonCriticalSequences)
+        {
+            if (nonCriticalSequence.get() < overwritten)
+            {
+                overwrittenCount.incrementAndGet();
+            }
+        }
+        return sequence;
+    }
+
+    private boolean sampled()
+    {
+        int x = randomState;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        randomState = x;
+        return (x >>> (Integer.SIZE - SAMPLE_BITS)) < sampleThreshold;
+    }
+}
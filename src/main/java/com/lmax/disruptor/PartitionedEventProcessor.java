@@ -0,0 +1,370 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>One of a group of event processors that split the events of a {@link RingBuffer} between them by key.  Every
+ * event goes to the partition its {@link EventKeyFunction key} hashes to, so the events for a key are handled in
+ * sequence order by a single thread, while different keys are handled in parallel.</p>
+ *
+ * <p>The key of each sequence is extracted once for the whole group and its partition recorded in a table
+ * alongside the ring buffer.  Whichever processor of the group first finds sequences without a partition
+ * classifies them, and the processors then walk the table, only reading the events of their own partition.
+ * The table follows the size of the ring buffer across {@link RingBuffer#resize(int)}.
+ * Each processor moves its sequence past the foreign sequences as well, so the sequences of the group can be used
+ * to gate the producer and dependent consumers as usual.</p>
+ *
+ * <p>If the {@link EventHandler} also implements {@link LifecycleAware} it will be notified just after the thread
+ * is started and just before the thread is shutdown.</p>
+ *
+ * @param <T> event implementation storing the data for sharing during exchange or parallel coordination of an event.
+ */
+public final class PartitionedEventProcessor<T> implements EventProcessor {
+    private static final int IDLE = 0;
+    private static final int HALTED = IDLE + 1;
+    private static final int RUNNING = HALTED + 1;
+
+    private final AtomicInteger running = new AtomicInteger(IDLE);
+    private ExceptionHandler<? super T> exceptionHandler = new FatalExceptionHandler();
+    private final Partitions<T> partitions;
+    private final SequenceBarrier sequenceBarrier;
+    private final EventHandler<? super T> eventHandler;
+    //本Processor负责的分区
+    private final int partition;
+    private final Sequence sequence = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+    private final TimeoutHandler timeoutHandler;
+
+    private PartitionedEventProcessor(final Partitions<T> partitions, final SequenceBarrier sequenceBarrier,
+        final EventHandler<? super T> eventHandler, final int partition) {
+        this.partitions = partitions;
+        this.sequenceBarrier = sequenceBarrier;
+        this.eventHandler = eventHandler;
+        this.partition = partition;
+
+        if (eventHandler instanceof SequenceReportingEventHandler) {
+            ((SequenceReportingEventHandler<?>) eventHandler).setSequenceCallback(sequence);
+        }
+
+        timeoutHandler = (eventHandler instanceof TimeoutHandler) ? (TimeoutHandler) eventHandler : null;
+    }
+
+    /**
+     * Create a group of processors, one for each handler, that share the events of the ring buffer by key.  The
+     * handler at index <code>i</code> gets the events whose key hashes to partition <code>i</code>.
+     *
+     * @param ringBuffer      to which events are published.
+     * @param sequenceBarrier on which all the processors of the group wait.
+     * @param keyFunction     to extract the key of each event.
+     * @param eventHandlers   one handler for each partition.
+     * @param <T>             event implementation storing the data for sharing during exchange or parallel coordination of an event.
+     * @return the processors of the group, in partition order.
+     * @throws IllegalArgumentException if no handlers are given.
+     */
+    @SafeVarargs
+    public static <T> PartitionedEventProcessor<T>[] createGroup(
+        final RingBuffer<T> ringBuffer,
+        final SequenceBarrier sequenceBarrier,
+        final EventKeyFunction<? super T> keyFunction,
+        final EventHandler<? super T>... eventHandlers) {
+        if (eventHandlers.length < 1) {
+            throw new IllegalArgumentException("At least one partition is required");
+        }
+
+        final Partitions<T> partitions = new Partitions<>(ringBuffer, keyFunction, eventHandlers.length);
+        final PartitionedEventProcessor<T>[] processors = newProcessors(eventHandlers.length);
+        for (int i = 0; i < eventHandlers.length; i++) {
+            processors[i] = new PartitionedEventProcessor<>(partitions, sequenceBarrier, eventHandlers[i], i);
+        }
+        return processors;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> PartitionedEventProcessor<T>[] newProcessors(final int size) {
+        return new PartitionedEventProcessor[size];
+    }
+
+    /**
+     * Get the partition that events with the key are handled by.
+     *
+     * @param key           the key of the event.
+     * @param partitionCount the number of partitions in the group.
+     * @return the index of the partition.
+     */
+    public static int partitionFor(final Object key, final int partitionCount) {
+        //混合高位，与ShardedDisruptor.shardFor一致
+        final int h = key.hashCode();
+        return ((h ^ (h >>> 16)) & Integer.MAX_VALUE) % partitionCount;
+    }
+
+    @Override
+    public Sequence getSequence()
+    {
+        return sequence;
+    }
+
+    @Override
+    public void halt() {
+        running.set(HALTED);
+        sequenceBarrier.alert();
+    }
+
+    @Override
+    public boolean isRunning()
+    {
+        return running.get() != IDLE;
+    }
+
+    /**
+     * Set a new {@link ExceptionHandler} for handling exceptions propagated out of the {@link PartitionedEventProcessor}
+     *
+     * @param exceptionHandler to replace the existing exceptionHandler.
+     */
+    public void setExceptionHandler(final ExceptionHandler<? super T> exceptionHandler) {
+        if (null == exceptionHandler) {
+            throw new NullPointerException();
+        }
+
+        this.exceptionHandler = exceptionHandler;
+    }
+
+    /**
+     * It is ok to have another thread rerun this method after a halt().
+     *
+     * @throws IllegalStateException if this object instance is already running in a thread
+     */
+    @Override
+    public void run() {
+        if (running.compareAndSet(IDLE, RUNNING)) {
+            sequenceBarrier.clearAlert();
+            notifyStart();
+            try {
+                if (running.get() == RUNNING) {
+                    processEvents();
+                }
+            }
+            finally {
+                notifyShutdown();
+                running.set(IDLE);
+            }
+        } else {
+            if (running.get() == RUNNING) {
+                throw new IllegalStateException("Thread is already running");
+            } else {
+                notifyStart();
+                notifyShutdown();
+            }
+        }
+    }
+
+    private void processEvents() {
+        T event = null;
+        long nextSequence = sequence.get() + 1L;
+
+        while (true) {
+            try {
+                final long availableSequence = sequenceBarrier.waitFor(nextSequence);
+                //只能处理已经分好区的部分，其他Processor正在分区时让出CPU后重试
+                final long endSequence = partitions.classify(availableSequence, exceptionHandler);
+                if (endSequence < nextSequence) {
+                    if (nextSequence <= availableSequence) {
+                        Thread.yield();
+                    }
+                    continue;
+                }
+
+                //从后往前找到本分区在这一批中的最后一个序号，用来设置endOfBatch
+                long lastSequence = endSequence;
+                while (lastSequence >= nextSequence && partitions.get(lastSequence) != partition) {
+                    lastSequence--;
+                }
+
+                //只读取本分区的事件，其他分区的序号直接跳过
+                while (nextSequence <= lastSequence) {
+                    if (partitions.get(nextSequence) == partition) {
+                        event = partitions.ringBuffer.get(nextSequence);
+                        eventHandler.onEvent(event, nextSequence, nextSequence == lastSequence);
+                    }
+                    nextSequence++;
+                }
+
+                nextSequence = endSequence + 1L;
+                sequence.set(endSequence);
+            } catch (final TimeoutException e) {
+                notifyTimeout(sequence.get());
+            } catch (final AlertException ex) {
+                if (running.get() != RUNNING) {
+                    break;
+                }
+            } catch (final Throwable ex) {
+                exceptionHandler.handleEventException(ex, nextSequence, event);
+                sequence.set(nextSequence);
+                nextSequence++;
+            }
+        }
+    }
+
+    private void notifyTimeout(final long availableSequence) {
+        try {
+            if (timeoutHandler != null) {
+                timeoutHandler.onTimeout(availableSequence);
+            }
+        }
+        catch (Throwable e) {
+            exceptionHandler.handleEventException(e, availableSequence, null);
+        }
+    }
+
+    private void notifyStart() {
+        if (eventHandler instanceof LifecycleAware) {
+            try {
+                ((LifecycleAware) eventHandler).onStart();
+            } catch (final Throwable ex) {
+                exceptionHandler.handleOnStartException(ex);
+            }
+        }
+    }
+
+    private void notifyShutdown() {
+        if (eventHandler instanceof LifecycleAware) {
+            try {
+                ((LifecycleAware) eventHandler).onShutdown();
+            } catch (final Throwable ex) {
+                exceptionHandler.handleOnShutdownException(ex);
+            }
+        }
+    }
+
+    /**
+     * The partition of each sequence, shared by the processors of a group.  A sequence's slot is only reused once
+     * every processor of the group has moved past it, as their sequences gate the ring buffer.
+     */
+    private static final class Partitions<T>
+    {
+        private static final int NO_PARTITION = -1;
+
+        private final RingBuffer<T> ringBuffer;
+        private final EventKeyFunction<? super T> keyFunction;
+        private final int partitionCount;
+        //按RingBuffer当前大小分配，resize之后由第一个分区的Processor换成新大小
+        private final AtomicReference<int[]> table;
+        //已经分区完成的最大序号
+        private final Sequence classified = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+        //已经被某个Processor领取去分区的最大序号
+        private final Sequence claimed = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+
+        Partitions(final RingBuffer<T> ringBuffer, final EventKeyFunction<? super T> keyFunction, final int partitionCount)
+        {
+            this.ringBuffer = ringBuffer;
+            this.keyFunction = keyFunction;
+            this.partitionCount = partitionCount;
+            this.table = new AtomicReference<>(new int[ringBuffer.getBufferSize()]);
+        }
+
+        int get(final long sequence)
+        {
+            final int[] partitions = table.get();
+            return partitions[(int) sequence & (partitions.length - 1)];
+        }
+
+        /**
+         * Make sure the partitions up to <code>availableSequence</code> are known, classifying them if no other
+         * processor has claimed them.
+         *
+         * @return the highest sequence whose partition is known, may be less than availableSequence while another
+         * processor is classifying.
+         */
+        long classify(final long availableSequence, final ExceptionHandler<? super T> exceptionHandler)
+        {
+            final long current = classified.get();
+            if (current >= availableSequence)
+            {
+                return current;
+            }
+
+            final long start = claimed.get();
+            if (start >= availableSequence || !claimed.compareAndSet(start, availableSequence))
+            {
+                return classified.get();
+            }
+
+            //resize要等所有gating sequence追上cursor，旧表里的分区已经没人读了，直接换成新大小的表
+            int[] partitions = table.get();
+            if (partitions.length != ringBuffer.getBufferSize())
+            {
+                table.compareAndSet(partitions, new int[ringBuffer.getBufferSize()]);
+                partitions = table.get();
+            }
+            final int indexMask = partitions.length - 1;
+
+            List<Throwable> failures = null;
+            long firstFailure = 0L;
+            for (long sequence = start + 1L; sequence <= availableSequence; sequence++)
+            {
+                int partition;
+                try
+                {
+                    partition = partitionFor(keyFunction.getKey(ringBuffer.get(sequence)), partitionCount);
+                }
+                catch (final Throwable ex)
+                {
+                    //取key失败的事件不属于任何分区，所有Processor都跳过它
+                    partition = NO_PARTITION;
+                    if (failures == null)
+                    {
+                        failures = new ArrayList<>();
+                        firstFailure = sequence;
+                    }
+                    failures.add(ex);
+                }
+                partitions[(int) sequence & indexMask] = partition;
+            }
+
+            //按顺序发布，等待前面领取的部分先完成
+            while (classified.get() != start)
+            {
+                Thread.yield();
+            }
+            classified.set(availableSequence);
+
+            if (failures != null)
+            {
+                reportFailures(failures, firstFailure, availableSequence, exceptionHandler);
+            }
+            return availableSequence;
+        }
+
+        private void reportFailures(
+            final List<Throwable> failures,
+            final long firstFailure,
+            final long lastSequence,
+            final ExceptionHandler<? super T> exceptionHandler)
+        {
+            int failure = 0;
+            for (long sequence = firstFailure; sequence <= lastSequence && failure < failures.size(); sequence++)
+            {
+                if (get(sequence) == NO_PARTITION)
+                {
+                    exceptionHandler.handleEventException(failures.get(failure++), sequence, ringBuffer.get(sequence));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * How a {@link RingBuffer} creates the events for its slots.
+ */
+public enum Preallocation
+{
+    /**
+     * Create every event on the constructing thread in slot order.
+     */
+    SERIAL,
+
+    /**
+     * Create the events on a {@link java.util.concurrent.ForkJoinPool}, each task filling a chunk of
+     * contiguous slots so the events of a chunk are allocated next to each other.  Shortens the construction
+     * of very large ring buffers, the {@link EventFactory} must be safe to call from several threads.
+     */
+    PARALLEL,
+
+    /**
+     * Create each event the first time its slot is read, normally when it is first claimed.  Construction
+     * costs nothing, the first lap around the ring buffer pays for the allocation instead.
+     */
+    LAZY
+}
@@ -23,8 +23,11 @@ package com.lmax.disruptor;
 final class ProcessingSequenceBarrier implements SequenceBarrier {
     //EventProcessor等待事件可消费时，指定的等待策略
     private final WaitStrategy waitStrategy;
+    //生产者等待策略，消费者推进消费位置后通过它唤醒等待空间的生产者
+    private final ProducerWaitStrategy producerWaitStrategy;
     //依赖的上组消费者的序号，如果当前为第一组则为cursorSequence（即生产者发布游标序列），
-    // 否则使用FixedSequenceGroup封装上组消费者序列，主要用于处理EventProcessor的依赖关系
+    // 否则使用FixedSequenceGroup封装上组消费者序列，主要用于处理EventProcessor的依赖关系，
+    // 依赖多个消费者时使用CachedMinimumSequenceGroup，每次只读取可能拖后腿的序列
     private final Sequence dependentSequence;
     //alert标识，当EventProcessor触发halt将设置为True
     private volatile boolean alerted = false;
@@ -35,14 +38,23 @@ final class ProcessingSequenceBarrier implements SequenceBarrier {
 
     ProcessingSequenceBarrier(final Sequencer sequencer, final WaitStrategy waitStrategy,
         final Sequence cursorSequence, final Sequence[] dependentSequences) {
+        this(sequencer, waitStrategy, new SleepingProducerWaitStrategy(), cursorSequence, dependentSequences);
+    }
+
+    ProcessingSequenceBarrier(final Sequencer sequencer, final WaitStrategy waitStrategy,
+        final ProducerWaitStrategy producerWaitStrategy, final Sequence cursorSequence,
+        final Sequence[] dependentSequences) {
         this.sequencer = sequencer;
         this.waitStrategy = waitStrategy;
+        this.producerWaitStrategy = producerWaitStrategy;
         this.cursorSequence = cursorSequence;
         //依赖的上一组序列长度，第一次是0
         if (0 == dependentSequences.length) {
             dependentSequence = cursorSequence;
-        } else {
+        } else if (1 == dependentSequences.length) {
             dependentSequence = new FixedSequenceGroup(dependentSequences);
+        } else {
+            dependentSequence = new CachedMinimumSequenceGroup(dependentSequences);
         }
     }
 
@@ -51,6 +63,8 @@ final class ProcessingSequenceBarrier implements SequenceBarrier {
     public long waitFor(final long sequence) throws AlertException, InterruptedException, TimeoutException {
         //检查是否停止服务
         checkAlert();
+        //消费者在调用waitFor之前已经更新了自己的Sequence，唤醒可能在等待空间的生产者
+        producerWaitStrategy.signalAllWhenBlocking();
         //获取最大可消费的序号；sequence为给定序号，一般为当前序号+1，cursorSequence记录生产者最新位置，
         long availableSequence = waitStrategy.waitFor(sequence, cursorSequence, dependentSequence, this);
         if (availableSequence < sequence) {
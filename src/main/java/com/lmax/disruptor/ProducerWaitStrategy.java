@@ -0,0 +1,39 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * Strategy employed by publishers waiting in {@link Sequencer#next(int)} for the gating sequences
+ * to free up capacity in a full ring buffer.
+ */
+//生产者在RingBuffer已满时，等待消费者释放空间的等待策略
+public interface ProducerWaitStrategy {
+    /**
+     * Wait for the minimum gating sequence of the sequencer to reach the given wrap point.
+     *
+     * @param wrapPoint the sequence the slowest gating sequence must reach before the claim can proceed.
+     * @param sequencer whose {@link Sequencer#getMinimumSequence(long)} is waited on, passing the wrap point so
+     *                  that gating sequences known to have reached it are not read again.
+     * @return the minimum gating sequence observed, which will be at least <code>wrapPoint</code>.
+     */
+    long waitFor(long wrapPoint, Sequencer sequencer);
+
+    /**
+     * Implementations should signal the waiting publishers that a gating sequence has advanced.
+     */
+    //消费者推进消费位置后，唤醒等待空间的生产者
+    void signalAllWhenBlocking();
+}
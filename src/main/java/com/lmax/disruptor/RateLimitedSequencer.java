@@ -0,0 +1,261 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>Decorates a {@link Sequencer} with a token bucket that limits the rate at which sequences can be claimed.
+ * Bursts of up to <code>burstSize</code> sequences are let through at once, after which claims are paced to
+ * <code>permitsPerSecond</code>.  {@link #next()} and {@link #next(int)} park the claiming thread until its
+ * tokens are due, {@link #tryNext()} and {@link #tryNext(int)} throw {@link InsufficientCapacityException} instead
+ * of waiting, for either tokens or capacity.</p>
+ *
+ * <p>The bucket is kept as the time at which it will be full again (the generic cell rate algorithm), so taking
+ * tokens is a single compare and swap on a padded {@link Sequence} and no thread has to refill it.  Works with
+ * any producer type, a claim that waits reserves its tokens up front so contending producers are paced in the
+ * order they arrived.</p>
+ *
+ * <p>{@link #hasAvailableCapacity(int)} and {@link #remainingCapacity()} report the capacity of the ring buffer
+ * only and do not consider the tokens.</p>
+ */
+public final class RateLimitedSequencer implements Sequencer
+{
+    private final Sequencer sequencer;
+    private final long nanosPerPermit;
+    private final long burstNanos;
+    //令牌桶重新装满的时间点（纳秒），越过当前时间burstNanos以上说明令牌不足
+    private final Sequence fullAt;
+
+    /**
+     * Construct a rate limited sequencer.
+     *
+     * @param sequencer        the sequencer to claim sequences from.
+     * @param permitsPerSecond the number of sequences that can be claimed each second once a burst is used up.
+     * @param burstSize        the number of sequences that can be claimed at once, at least the largest batch.
+     * @throws IllegalArgumentException if permitsPerSecond or burstSize is less than 1.
+     */
+    public RateLimitedSequencer(final Sequencer sequencer, final long permitsPerSecond, final int burstSize)
+    {
+        if (permitsPerSecond < 1)
+        {
+            throw new IllegalArgumentException("permitsPerSecond must not be less than 1");
+        }
+        if (burstSize < 1)
+        {
+            throw new IllegalArgumentException("burstSize must not be less than 1");
+        }
+
+        this.sequencer = sequencer;
+        this.nanosPerPermit = Math.max(1L, TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstNanos = nanosPerPermit * burstSize;
+        this.fullAt = new Sequence(System.nanoTime());
+    }
+
+    /**
+     * @see Sequenced#next()
+     */
+    @Override
+    public long next()
+    {
+        return next(1);
+    }
+
+    /**
+     * @see Sequenced#next(int)
+     */
+    @Override
+    public long next(final int n)
+    {
+        awaitPermits(n);
+        return sequencer.next(n);
+    }
+
+    /**
+     * @see Sequenced#tryNext()
+     */
+    @Override
+    public long tryNext() throws InsufficientCapacityException
+    {
+        return tryNext(1);
+    }
+
+    /**
+     * @see Sequenced#tryNext(int)
+     */
+    @Override
+    public long tryNext(final int n) throws InsufficientCapacityException
+    {
+        if (!tryAcquirePermits(n))
+        {
+            throw InsufficientCapacityException.INSTANCE;
+        }
+
+        try
+        {
+            return sequencer.tryNext(n);
+        }
+        catch (final InsufficientCapacityException e)
+        {
+            //没有拿到序号，归还令牌
+            fullAt.addAndGet(-n * nanosPerPermit);
+            throw e;
+        }
+    }
+
+    private void awaitPermits(final int n)
+    {
+        final long cost = n * nanosPerPermit;
+        long now = System.nanoTime();
+        long current;
+        long next;
+        do
+        {
+            current = fullAt.get();
+            next = Math.max(current, now) + cost;
+        }
+        while (!fullAt.compareAndSet(current, next));
+
+        //令牌已经预留，等到桶里重新有这些令牌的时候再申请序号
+        final long due = next - burstNanos;
+        while (due - now > 0)
+        {
+            LockSupport.parkNanos(due - now);
+            now = System.nanoTime();
+        }
+    }
+
+    private boolean tryAcquirePermits(final int n)
+    {
+        final long cost = n * nanosPerPermit;
+        final long now = System.nanoTime();
+        long current;
+        long next;
+        do
+        {
+            current = fullAt.get();
+            next = Math.max(current, now) + cost;
+            if (next - now > burstNanos)
+            {
+                return false;
+            }
+        }
+        while (!fullAt.compareAndSet(current, next));
+
+        return true;
+    }
+
+    @Override
+    public int getBufferSize()
+    {
+        return sequencer.getBufferSize();
+    }
+
+    @Override
+    public boolean hasAvailableCapacity(final int requiredCapacity)
+    {
+        return sequencer.hasAvailableCapacity(requiredCapacity);
+    }
+
+    @Override
+    public long remainingCapacity()
+    {
+        return sequencer.remainingCapacity();
+    }
+
+    @Override
+    public void publish(final long sequence)
+    {
+        sequencer.publish(sequence);
+    }
+
+    @Override
+    public void publish(final long lo, final long hi)
+    {
+        sequencer.publish(lo, hi);
+    }
+
+    @Override
+    public long getCursor()
+    {
+        return sequencer.getCursor();
+    }
+
+    @Override
+    public void claim(final long sequence)
+    {
+        sequencer.claim(sequence);
+    }
+
+    @Override
+    public boolean isAvailable(final long sequence)
+    {
+        return sequencer.isAvailable(sequence);
+    }
+
+    @Override
+    public void addGatingSequences(final Sequence... gatingSequences)
+    {
+        sequencer.addGatingSequences(gatingSequences);
+    }
+
+    @Override
+    public boolean removeGatingSequence(final Sequence sequence)
+    {
+        return sequencer.removeGatingSequence(sequence);
+    }
+
+    @Override
+    public SequenceBarrier newBarrier(final Sequence... sequencesToTrack)
+    {
+        return sequencer.newBarrier(sequencesToTrack);
+    }
+
+    @Override
+    public long getMinimumSequence()
+    {
+        return sequencer.getMinimumSequence();
+    }
+
+    @Override
+    public long getMinimumSequence(final long required)
+    {
+        return sequencer.getMinimumSequence(required);
+    }
+
+    @Override
+    public long getHighestPublishedSequence(final long nextSequence, final long availableSequence)
+    {
+        return sequencer.getHighestPublishedSequence(nextSequence, availableSequence);
+    }
+
+    @Override
+    public <T> EventPoller<T> newPoller(final DataProvider<T> provider, final Sequence... gatingSequences)
+    {
+        return sequencer.newPoller(provider, gatingSequences);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RateLimitedSequencer{" +
+            "sequencer=" + sequencer +
+            ", nanosPerPermit=" + nanosPerPermit +
+            ", burstNanos=" + burstNanos +
+            '}';
+    }
+}
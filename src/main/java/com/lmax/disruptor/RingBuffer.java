@@ -16,6 +16,14 @@
 package com.lmax.disruptor;
 
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 import sun.misc.Unsafe;
 
 import com.lmax.disruptor.dsl.ProducerType;
@@ -51,15 +59,21 @@ abstract class RingBufferFields<E> extends RingBufferPad {
     }
 
     //indexMask = bufferSize - 1,主要用于计算entry存放位置
-    private final long indexMask;
+    private long indexMask;
     //存放entry的数组
-    private final Object[] entries;
-    protected final int bufferSize;
+    private Object[] entries;
+    protected int bufferSize;
     //Sequencer【记录生产者的生产位置和消费位置】
     protected final Sequencer sequencer;
+    //扩容时用于预分配新区域中的对象
+    private final EventFactory<E> eventFactory;
+    //事件对象的预分配方式
+    private final Preallocation preallocation;
 
-    RingBufferFields(EventFactory<E> eventFactory, Sequencer sequencer) {
+    RingBufferFields(EventFactory<E> eventFactory, Sequencer sequencer, Preallocation preallocation) {
         this.sequencer = sequencer;
+        this.eventFactory = eventFactory;
+        this.preallocation = preallocation;
         this.bufferSize = sequencer.getBufferSize();
 
         if (bufferSize < 1) {
@@ -75,19 +89,106 @@ abstract class RingBufferFields<E> extends RingBufferPad {
         //提前初始化对象有两点好处:
         //1:是避免频繁的创建销毁，减少young gc，
         //2:是通过初始化所有对象，尽可能使对象内存连续，由于处理器通常开启了缓存预取机制，这样就增加了缓存效率，降低了整体时延
-        fill(eventFactory);
+        fill(entries, 0, bufferSize);
+    }
+
+    private void fill(Object[] entries, int from, int to) {
+        switch (preallocation) {
+            case SERIAL:
+                fillChunk(eventFactory, entries, from, to);
+                break;
+            case PARALLEL:
+                if (to - from <= FillTask.CHUNK_SIZE) {
+                    fillChunk(eventFactory, entries, from, to);
+                    break;
+                }
+                FillTask.POOL.invoke(new FillTask(eventFactory, entries, from, to));
+                break;
+            case LAZY:
+                //由elementAt在第一次读取时创建
+                break;
+            default:
+                throw new IllegalStateException(preallocation.toString());
+        }
     }
 
-    private void fill(EventFactory<E> eventFactory) {
-        for (int i = 0; i < bufferSize; i++) {
+    private static void fillChunk(EventFactory<?> eventFactory, Object[] entries, int from, int to) {
+        for (int i = from; i < to; i++) {
             //注意填充元素没有初始化
             entries[BUFFER_PAD + i] = eventFactory.newInstance();
         }
     }
 
+    /**
+     * Splits the slots into chunks of contiguous slots that are each filled by one worker, so the events
+     * of a chunk come out of the same thread local allocation buffer and the workers write to different
+     * parts of the entries array.
+     */
+    private static final class FillTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int CHUNK_SIZE = 4096;
+        //所有RingBuffer共享，第一次PARALLEL预分配时才创建，worker是守护线程
+        private static final ForkJoinPool POOL = new ForkJoinPool();
+
+        private final EventFactory<?> eventFactory;
+        private final Object[] entries;
+        private final int from;
+        private final int to;
+
+        FillTask(EventFactory<?> eventFactory, Object[] entries, int from, int to) {
+            this.eventFactory = eventFactory;
+            this.entries = entries;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                fillChunk(eventFactory, entries, from, to);
+                return;
+            }
+            //按CHUNK_SIZE对齐切分，保证每个块都是完整的连续区域，chunks至少是2，所以from < middle < to
+            int chunks = (to - from + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            int middle = from + (chunks >>> 1) * CHUNK_SIZE;
+            invokeAll(new FillTask(eventFactory, entries, from, middle), new FillTask(eventFactory, entries, middle, to));
+        }
+    }
+
+    /**
+     * Replace the entries with an array of the new size, keeping the events that have already been allocated
+     * and preallocating events for any new slots.  Only safe while no sequence is claimed or being read.
+     *
+     * @param newBufferSize the new size, must be a positive power of 2.
+     */
+    final void resizeEntries(int newBufferSize) {
+        Object[] newEntries = new Object[newBufferSize + 2 * BUFFER_PAD];
+        //所有事件都已被消费，槽位中的对象只是预分配的容器，可以直接保留，不需要按序号重新排列
+        int retained = Math.min(bufferSize, newBufferSize);
+        System.arraycopy(entries, BUFFER_PAD, newEntries, BUFFER_PAD, retained);
+        fill(newEntries, retained, newBufferSize);
+
+        this.entries = newEntries;
+        this.indexMask = newBufferSize - 1;
+        this.bufferSize = newBufferSize;
+    }
+
     @SuppressWarnings("unchecked")
     protected final E elementAt(long sequence) {
-        return (E) UNSAFE.getObject(entries, REF_ARRAY_BASE + ((sequence & indexMask) << REF_ELEMENT_SHIFT));
+        Object element = UNSAFE.getObject(entries, REF_ARRAY_BASE + ((sequence & indexMask) << REF_ELEMENT_SHIFT));
+        return element != null ? (E) element : createElementAt(sequence);
+    }
+
+    /**
+     * Create the event for a slot that has not been filled yet, see {@link Preallocation#LAZY}.  Readers that
+     * race to fill the same slot agree on the event that was stored first.
+     */
+    @SuppressWarnings("unchecked")
+    private E createElementAt(long sequence) {
+        final Object[] entries = this.entries;
+        final long offset = REF_ARRAY_BASE + ((sequence & indexMask) << REF_ELEMENT_SHIFT);
+        UNSAFE.compareAndSwapObject(entries, offset, null, eventFactory.newInstance());
+        return (E) UNSAFE.getObjectVolatile(entries, offset);
     }
 }
 
@@ -109,7 +210,19 @@ public final class RingBuffer<E> extends RingBufferFields<E> implements Cursored
      * @throws IllegalArgumentException if bufferSize is less than 1 or not a power of 2
      */
     RingBuffer(EventFactory<E> eventFactory, Sequencer sequencer) {
-        super(eventFactory, sequencer);
+        this(eventFactory, sequencer, Preallocation.SERIAL);
+    }
+
+    /**
+     * Construct a RingBuffer with the full option set.
+     *
+     * @param eventFactory  to newInstance entries for filling the RingBuffer
+     * @param sequencer     sequencer to handle the ordering of events moving through the RingBuffer.
+     * @param preallocation how the events are created.
+     * @throws IllegalArgumentException if bufferSize is less than 1 or not a power of 2
+     */
+    RingBuffer(EventFactory<E> eventFactory, Sequencer sequencer, Preallocation preallocation) {
+        super(eventFactory, sequencer, preallocation);
     }
 
     /**
@@ -128,6 +241,24 @@ public final class RingBuffer<E> extends RingBufferFields<E> implements Cursored
         return new RingBuffer<E>(factory, sequencer);
     }
 
+    /**
+     * Create a new multiple producer RingBuffer with the specified wait strategy and producer wait strategy.
+     *
+     * @param <E> Class of the event stored in the ring buffer.
+     * @param factory              used to create the events within the ring buffer.
+     * @param bufferSize           number of elements to create within the ring buffer.
+     * @param waitStrategy         used to determine how to wait for new elements to become available.
+     * @param producerWaitStrategy used to determine how publishers wait for the buffer to free up capacity.
+     * @return a constructed ring buffer.
+     * @throws IllegalArgumentException if bufferSize is less than 1 or not a power of 2
+     * @see MultiProducerSequencer
+     */
+    public static <E> RingBuffer<E> createMultiProducer(EventFactory<E> factory, int bufferSize,
+        WaitStrategy waitStrategy, ProducerWaitStrategy producerWaitStrategy) {
+        MultiProducerSequencer sequencer = new MultiProducerSequencer(bufferSize, waitStrategy, producerWaitStrategy);
+        return new RingBuffer<E>(factory, sequencer);
+    }
+
     /**
      * Create a new multiple producer RingBuffer using the default wait strategy  {@link BlockingWaitStrategy}.
      *
@@ -143,6 +274,42 @@ public final class RingBuffer<E> extends RingBufferFields<E> implements Cursored
         return createMultiProducer(factory, bufferSize, new BlockingWaitStrategy());
     }
 
+    /**
+     * Create a new multiple producer RingBuffer that claims with fetch-and-add, using the specified wait strategy.
+     *
+     * @param <E> Class of the event stored in the ring buffer.
+     * @param factory      used to create the events within the ring buffer.
+     * @param bufferSize   number of elements to create within the ring buffer.
+     * @param waitStrategy used to determine how to wait for new elements to become available.
+     * @return a constructed ring buffer.
+     * @throws IllegalArgumentException if bufferSize is less than 1 or not a power of 2
+     * @see FetchAddMultiProducerSequencer
+     */
+    public static <E> RingBuffer<E> createFetchAddMultiProducer(EventFactory<E> factory, int bufferSize,
+        WaitStrategy waitStrategy) {
+        return createFetchAddMultiProducer(factory, bufferSize, waitStrategy, new SleepingProducerWaitStrategy());
+    }
+
+    /**
+     * Create a new multiple producer RingBuffer that claims with fetch-and-add, using the specified wait strategy
+     * and producer wait strategy.
+     *
+     * @param <E> Class of the event stored in the ring buffer.
+     * @param factory              used to create the events within the ring buffer.
+     * @param bufferSize           number of elements to create within the ring buffer.
+     * @param waitStrategy         used to determine how to wait for new elements to become available.
+     * @param producerWaitStrategy used to determine how publishers wait for the buffer to free up capacity.
+     * @return a constructed ring buffer.
+     * @throws IllegalArgumentException if bufferSize is less than 1 or not a power of 2
+     * @see FetchAddMultiProducerSequencer
+     */
+    public static <E> RingBuffer<E> createFetchAddMultiProducer(EventFactory<E> factory, int bufferSize,
+        WaitStrategy waitStrategy, ProducerWaitStrategy producerWaitStrategy) {
+        FetchAddMultiProducerSequencer sequencer =
+            new FetchAddMultiProducerSequencer(bufferSize, waitStrategy, producerWaitStrategy);
+        return new RingBuffer<E>(factory, sequencer);
+    }
+
     /**
      * Create a new single producer RingBuffer with the specified wait strategy.
      *
@@ -160,6 +327,24 @@ public final class RingBuffer<E> extends RingBufferFields<E> implements Cursored
         return new RingBuffer<E>(factory, sequencer);
     }
 
+    /**
+     * Create a new single producer RingBuffer with the specified wait strategy and producer wait strategy.
+     *
+     * @param <E> Class of the event stored in the ring buffer.
+     * @param factory              used to create the events within the ring buffer.
+     * @param bufferSize           number of elements to create within the ring buffer.
+     * @param waitStrategy         used to determine how to wait for new elements to become available.
+     * @param producerWaitStrategy used to determine how the publisher waits for the buffer to free up capacity.
+     * @return a constructed ring buffer.
+     * @throws IllegalArgumentException if bufferSize is less than 1 or not a power of 2
+     * @see SingleProducerSequencer
+     */
+    public static <E> RingBuffer<E> createSingleProducer(EventFactory<E> factory, int bufferSize,
+        WaitStrategy waitStrategy, ProducerWaitStrategy producerWaitStrategy) {
+        SingleProducerSequencer sequencer = new SingleProducerSequencer(bufferSize, waitStrategy, producerWaitStrategy);
+        return new RingBuffer<E>(factory, sequencer);
+    }
+
     /**
      * Create a new single producer RingBuffer using the default wait strategy  {@link BlockingWaitStrategy}.
      *
@@ -175,7 +360,7 @@ public final class RingBuffer<E> extends RingBufferFields<E> implements Cursored
     }
 
     /**
-     * Create a new Ring Buffer with the specified producer type (SINGLE or MULTI)
+     * Create a new Ring Buffer with the specified producer type (SINGLE, MULTI or MULTI_FETCH_ADD)
      *
      * @param <E> Class of the event stored in the ring buffer.
      * @param producerType producer type to use {@link ProducerType}.
@@ -192,11 +377,111 @@ public final class RingBuffer<E> extends RingBufferFields<E> implements Cursored
                 return createSingleProducer(factory, bufferSize, waitStrategy);
             case MULTI:
                 return createMultiProducer(factory, bufferSize, waitStrategy);
+            case MULTI_FETCH_ADD:
+                return createFetchAddMultiProducer(factory, bufferSize, waitStrategy);
+            default:
+                throw new IllegalStateException(producerType.toString());
+        }
+    }
+
+    /**
+     * Create a new Ring Buffer with the specified producer type (SINGLE, MULTI or MULTI_FETCH_ADD) and producer wait strategy.
+     *
+     * @param <E> Class of the event stored in the ring buffer.
+     * @param producerType         producer type to use {@link ProducerType}.
+     * @param factory              used to create events within the ring buffer.
+     * @param bufferSize           number of elements to create within the ring buffer.
+     * @param waitStrategy         used to determine how to wait for new elements to become available.
+     * @param producerWaitStrategy used to determine how publishers wait for the buffer to free up capacity.
+     * @return a constructed ring buffer.
+     * @throws IllegalArgumentException if bufferSize is less than 1 or not a power of 2
+     */
+    public static <E> RingBuffer<E> create(ProducerType producerType, EventFactory<E> factory, int bufferSize,
+        WaitStrategy waitStrategy, ProducerWaitStrategy producerWaitStrategy) {
+        switch (producerType) {
+            case SINGLE:
+                return createSingleProducer(factory, bufferSize, waitStrategy, producerWaitStrategy);
+            case MULTI:
+                return createMultiProducer(factory, bufferSize, waitStrategy, producerWaitStrategy);
+            case MULTI_FETCH_ADD:
+                return createFetchAddMultiProducer(factory, bufferSize, waitStrategy, producerWaitStrategy);
+            default:
+                throw new IllegalStateException(producerType.toString());
+        }
+    }
+
+    /**
+     * Create a new Ring Buffer with the specified producer type (SINGLE, MULTI or MULTI_FETCH_ADD), producer wait
+     * strategy and tracking of published slots.  The availability tracking only applies to the multiple producer
+     * types, a single producer publishes by moving its cursor.
+     *
+     * @param <E> Class of the event stored in the ring buffer.
+     * @param producerType         producer type to use {@link ProducerType}.
+     * @param factory              used to create events within the ring buffer.
+     * @param bufferSize           number of elements to create within the ring buffer.
+     * @param waitStrategy         used to determine how to wait for new elements to become available.
+     * @param producerWaitStrategy used to determine how publishers wait for the buffer to free up capacity.
+     * @param availabilityTracking layout used by multiple producers to track which slots have been published.
+     * @return a constructed ring buffer.
+     * @throws IllegalArgumentException if bufferSize is less than 1 or not a power of 2
+     */
+    public static <E> RingBuffer<E> create(ProducerType producerType, EventFactory<E> factory, int bufferSize,
+        WaitStrategy waitStrategy, ProducerWaitStrategy producerWaitStrategy, AvailabilityTracking availabilityTracking) {
+        return create(
+            producerType, factory, bufferSize, waitStrategy, producerWaitStrategy, availabilityTracking,
+            Preallocation.SERIAL);
+    }
+
+    /**
+     * Create a new Ring Buffer with the full option set, including how the events are preallocated, see
+     * {@link Preallocation}.
+     *
+     * @param <E> Class of the event stored in the ring buffer.
+     * @param producerType         producer type to use {@link ProducerType}.
+     * @param factory              used to create events within the ring buffer.
+     * @param bufferSize           number of elements to create within the ring buffer.
+     * @param waitStrategy         used to determine how to wait for new elements to become available.
+     * @param producerWaitStrategy used to determine how publishers wait for the buffer to free up capacity.
+     * @param availabilityTracking layout used by multiple producers to track which slots have been published.
+     * @param preallocation        how the events are created.
+     * @return a constructed ring buffer.
+     * @throws IllegalArgumentException if bufferSize is less than 1 or not a power of 2
+     */
+    public static <E> RingBuffer<E> create(ProducerType producerType, EventFactory<E> factory, int bufferSize,
+        WaitStrategy waitStrategy, ProducerWaitStrategy producerWaitStrategy, AvailabilityTracking availabilityTracking,
+        Preallocation preallocation) {
+        switch (producerType) {
+            case SINGLE:
+                return new RingBuffer<E>(factory, new SingleProducerSequencer(
+                    bufferSize, waitStrategy, producerWaitStrategy), preallocation);
+            case MULTI:
+                return new RingBuffer<E>(factory, new MultiProducerSequencer(
+                    bufferSize, waitStrategy, producerWaitStrategy, availabilityTracking), preallocation);
+            case MULTI_FETCH_ADD:
+                return new RingBuffer<E>(factory, new FetchAddMultiProducerSequencer(
+                    bufferSize, waitStrategy, producerWaitStrategy, availabilityTracking), preallocation);
             default:
                 throw new IllegalStateException(producerType.toString());
         }
     }
 
+    /**
+     * Create a new Ring Buffer that limits the rate at which its sequences can be claimed, see
+     * {@link RateLimitedSequencer}.  The ring buffer can not be resized.
+     *
+     * @param <E> Class of the event stored in the ring buffer.
+     * @param factory          used to create events within the ring buffer.
+     * @param sequencer        the sequencer to claim sequences from, of any producer type.
+     * @param permitsPerSecond the number of sequences that can be claimed each second once a burst is used up.
+     * @param burstSize        the number of sequences that can be claimed at once.
+     * @return a constructed ring buffer.
+     * @throws IllegalArgumentException if permitsPerSecond or burstSize is less than 1
+     */
+    public static <E> RingBuffer<E> createRateLimited(EventFactory<E> factory, Sequencer sequencer,
+        long permitsPerSecond, int burstSize) {
+        return new RingBuffer<E>(factory, new RateLimitedSequencer(sequencer, permitsPerSecond, burstSize));
+    }
+
     /**
      * <p>Get the event for a given sequence in the RingBuffer.</p>
      *
@@ -384,6 +669,35 @@ public final class RingBuffer<E> extends RingBufferFields<E> implements Cursored
         return sequencer.newBarrier(sequencesToTrack);
     }
 
+    /**
+     * Create a reservation for a single publishing thread that claims <code>reservationSize</code> sequences
+     * from this ring buffer at a time and hands them out locally.  Unused sequences are filled with the
+     * tombstone translator when the reservation is flushed, so event handlers need to skip them.  Schedule the
+     * reservation at a fixed rate to flush it once its publisher goes idle.
+     *
+     * @param reservationSize     the number of sequences to claim at a time.
+     * @param tombstoneTranslator used to mark slots that were reserved but not used.
+     * @return a reservation to be used by one publishing thread.
+     * @throws IllegalArgumentException if reservationSize is less than 1 or greater than the buffer size.
+     * @see ClaimReservation
+     */
+    public ClaimReservation<E> newClaimReservation(int reservationSize, EventTranslator<E> tombstoneTranslator)
+    {
+        return new ClaimReservation<E>(this, reservationSize, tombstoneTranslator);
+    }
+
+    /**
+     * Create a reusable claim for a single publishing thread, used to claim a range of sequences, fill the
+     * preallocated events in place and publish them together without allocating.
+     *
+     * @return a batch claim to be used by one publishing thread.
+     * @see BatchClaim
+     */
+    public BatchClaim<E> newBatchClaim()
+    {
+        return new BatchClaim<E>(this);
+    }
+
     /**
      * Creates an event poller for this ring buffer gated on the supplied sequences.
      *
@@ -417,6 +731,41 @@ public final class RingBuffer<E> extends RingBufferFields<E> implements Cursored
         return bufferSize;
     }
 
+    /**
+     * Grow or shrink the ring buffer to a new size.  Waits until every gating sequence has caught up with the
+     * cursor, then swaps in entries of the new size, keeping the events already allocated and preallocating the
+     * rest.  Sequence numbers carry on from the cursor, so gating sequences, barriers and {@link EventPoller}s
+     * keep working.
+     *
+     * <p>The ring buffer must be at a quiescent point: no other thread may claim or publish sequences until this
+     * method returns, e.g. call it from the only publisher between bursts.  Publishers that size their batches
+     * from the buffer, such as {@link ClaimReservation} and {@link FlatCombiningPublisher}, should be created
+     * again after shrinking.</p>
+     *
+     * @param newBufferSize the new number of entries, must be a positive power of 2.
+     * @throws IllegalArgumentException if the new size is less than 1 or not a power of 2.
+     * @throws UnsupportedOperationException if the sequencer does not support resizing.
+     */
+    public void resize(int newBufferSize)
+    {
+        if (!(sequencer instanceof AbstractSequencer))
+        {
+            throw new UnsupportedOperationException("Resizing is not supported by " + sequencer);
+        }
+        AbstractSequencer.checkBufferSize(newBufferSize);
+
+        //等待所有消费者处理完已发布的事件，此时RingBuffer中的对象都不再被读取
+        final long cursor = sequencer.getCursor();
+        while (sequencer.getMinimumSequence() < cursor)
+        {
+            Thread.yield();
+        }
+
+        //先替换entries，再由sequencer的cursor volatile写发布新的大小
+        resizeEntries(newBufferSize);
+        ((AbstractSequencer) sequencer).resize(newBufferSize);
+    }
+
     /**
      * Given specified <tt>requiredCapacity</tt> determines if that amount of space
      * is available.  Note, you can not assume that if this method returns <tt>true</tt>
@@ -674,6 +1023,103 @@ public final class RingBuffer<E> extends RingBufferFields<E> implements Cursored
         }
     }
 
+    /**
+     * Publish every element of a source, one event per element.  Collections are copied with
+     * {@link Collection#toArray()} and the copy is published in chunks claimed with {@link #next(int)}, see
+     * {@link #publishEvents(EventTranslatorOneArg, Iterator, long)}, so a concurrent collection that changes
+     * meanwhile publishes a consistent snapshot.  Other sources are published as with
+     * {@link #publishEvents(EventTranslatorOneArg, Iterator)}.  A Java 8 Stream can be published through its
+     * iterator.
+     *
+     * @param <A> Class of the user supplied argument.
+     * @param translator The user specified translation for each event
+     * @param source     The elements to load into the events, one per event.
+     * @return the number of events published.
+     */
+    @SuppressWarnings("unchecked")
+    public <A> long publishEvents(EventTranslatorOneArg<E, A> translator, Iterable<? extends A> source)
+    {
+        if (source instanceof Collection)
+        {
+            //size()和迭代出的元素个数在并发集合里可能不一致，已申请的序号又不能退回，所以先复制一份快照
+            final Object[] elements = ((Collection<?>) source).toArray();
+            final Iterator<?> snapshot = Arrays.asList(elements).iterator();
+            return publishEvents(translator, (Iterator<? extends A>) snapshot, elements.length);
+        }
+        return publishEvents(translator, source.iterator());
+    }
+
+    /**
+     * Publish the next <code>count</code> elements of an iterator, one event per element.  The events are
+     * claimed in chunks of up to the remaining capacity of the ring buffer and each chunk is published with
+     * a single call to {@link #publish(long, long)}.  When the ring buffer is full a single event is claimed,
+     * so the publisher waits for one slot rather than a whole chunk.
+     *
+     * @param <A> Class of the user supplied argument.
+     * @param translator The user specified translation for each event
+     * @param source     The elements to load into the events, must have at least <code>count</code> elements.
+     * @param count      The number of elements to publish.
+     * @return the number of events published.
+     * @throws java.util.NoSuchElementException if the iterator has fewer than <code>count</code> elements, the
+     *                                          sequences claimed for the missing elements are still published,
+     *                                          as when a translator throws.
+     */
+    public <A> long publishEvents(EventTranslatorOneArg<E, A> translator, Iterator<? extends A> source, long count)
+    {
+        if (count < 0)
+        {
+            throw new IllegalArgumentException("count must not be negative");
+        }
+
+        long remaining = count;
+        while (remaining > 0)
+        {
+            //块大小受剩余容量限制，容量不足时只申请一个序号，避免等待整块空间
+            final int batchSize = (int) Math.min(remaining, Math.max(1L, sequencer.remainingCapacity()));
+            final long finalSequence = sequencer.next(batchSize);
+            translateAndPublishBatch(translator, source, batchSize, finalSequence);
+            remaining -= batchSize;
+        }
+        return count;
+    }
+
+    /**
+     * Publish the remaining elements of an iterator, one event per element.  The number of elements is not
+     * known up front and claimed sequences can not be handed back, so up to the remaining capacity of the
+     * ring buffer elements are first taken from the iterator, then a chunk of exactly that many events is
+     * claimed with {@link #next(int)} and published with a single call to {@link #publish(long, long)}, as
+     * {@link #publishEvents(EventTranslatorOneArg, Iterator, long)} does.  When the ring buffer is full a
+     * single element is taken, so the publisher waits for one slot rather than a whole chunk.  The events of
+     * a chunk are not visible to consumers until the whole chunk has been taken from the iterator, so the
+     * iterator should not block.
+     *
+     * @param <A> Class of the user supplied argument.
+     * @param translator The user specified translation for each event
+     * @param source     The elements to load into the events, one per event.
+     * @return the number of events published.
+     */
+    public <A> long publishEvents(EventTranslatorOneArg<E, A> translator, Iterator<? extends A> source)
+    {
+        long published = 0;
+        final List<A> chunk = new ArrayList<A>();
+        while (source.hasNext())
+        {
+            //先从迭代器取出一块元素再申请序号，迭代器提前耗尽时不会有申请了却没有元素的序号
+            final long chunkSize = Math.max(1L, sequencer.remainingCapacity());
+            chunk.clear();
+            while (chunk.size() < chunkSize && source.hasNext())
+            {
+                chunk.add(source.next());
+            }
+
+            final int batchSize = chunk.size();
+            final long finalSequence = sequencer.next(batchSize);
+            translateAndPublishBatch(translator, chunk.iterator(), batchSize, finalSequence);
+            published += batchSize;
+        }
+        return published;
+    }
+
     /**
      * @see com.lmax.disruptor.EventSink#publishEvents(com.lmax.disruptor.EventTranslatorTwoArg, Object[], Object[])
      * com.lmax.disruptor.EventSink#publishEvents(com.lmax.disruptor.EventTranslatorTwoArg, A[], B[])
@@ -1026,6 +1472,24 @@ public final class RingBuffer<E> extends RingBufferFields<E> implements Cursored
         }
     }
 
+    private <A> void translateAndPublishBatch(
+        final EventTranslatorOneArg<E, A> translator, final Iterator<? extends A> source,
+        final int batchSize, final long finalSequence)
+    {
+        final long initialSequence = finalSequence - (batchSize - 1);
+        try
+        {
+            for (long sequence = initialSequence; sequence <= finalSequence; sequence++)
+            {
+                translator.translateTo(get(sequence), sequence, source.next());
+            }
+        }
+        finally
+        {
+            sequencer.publish(initialSequence, finalSequence);
+        }
+    }
+
     private <A, B> void translateAndPublishBatch(
         final EventTranslatorTwoArg<E, A, B> translator, final A[] arg0,
         final B[] arg1, int batchStartsAt, int batchSize,
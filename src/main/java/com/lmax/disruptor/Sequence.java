@@ -153,6 +153,17 @@ public class Sequence extends RhsPadding {
         return newValue;
     }
 
+    /**
+     * Atomically add the supplied value with a single fetch-and-add, rather than
+     * a compare-and-set retry loop, so it can not fail under contention.
+     *
+     * @param increment The value to add to the sequence.
+     * @return The value before the increment.
+     */
+    public long getAndAdd(final long increment) {
+        return UNSAFE.getAndAddLong(this, VALUE_OFFSET, increment);
+    }
+
     @Override
     public String toString()
     {
@@ -89,6 +89,17 @@ public interface Sequencer extends Cursored, Sequenced {
     //获取追踪序列中最小的序列
     long getMinimumSequence();
 
+    /**
+     * Get the minimum sequence value from all of the gating sequences, only as accurately as is needed to tell
+     * whether it has reached <code>required</code>.  Cheaper than {@link #getMinimumSequence()} for publishers
+     * waiting on a full ring buffer, as gating sequences already known to have reached it are not read again.
+     *
+     * @param required the sequence the gating sequences need to have reached, normally the wrap point.
+     * @return at least <code>required</code> if every gating sequence has reached it, otherwise the minimum
+     * gating sequence, or the cursor sequence if it is lower or no sequences have been added.
+     */
+    long getMinimumSequence(long required);
+
     /**
      * Get the highest sequence number that can be safely read from the ring buffer.  Depending
      * on the implementation of the Sequencer this call may need to scan a number of values
@@ -15,20 +15,16 @@
  */
 package com.lmax.disruptor;
 
-import java.util.concurrent.locks.LockSupport;
-
-import com.lmax.disruptor.util.Util;
-
 abstract class SingleProducerSequencerPad extends AbstractSequencer {
     protected long p1, p2, p3, p4, p5, p6, p7;
-    SingleProducerSequencerPad(int bufferSize, WaitStrategy waitStrategy) {
-        super(bufferSize, waitStrategy);
+    SingleProducerSequencerPad(int bufferSize, WaitStrategy waitStrategy, ProducerWaitStrategy producerWaitStrategy) {
+        super(bufferSize, waitStrategy, producerWaitStrategy);
     }
 }
 
 abstract class SingleProducerSequencerFields extends SingleProducerSequencerPad {
-    SingleProducerSequencerFields(int bufferSize, WaitStrategy waitStrategy) {
-        super(bufferSize, waitStrategy);
+    SingleProducerSequencerFields(int bufferSize, WaitStrategy waitStrategy, ProducerWaitStrategy producerWaitStrategy) {
+        super(bufferSize, waitStrategy, producerWaitStrategy);
     }
 
     /**
@@ -58,7 +54,18 @@ public final class SingleProducerSequencer extends SingleProducerSequencerFields
      * @param waitStrategy for those waiting on sequences.
      */
     public SingleProducerSequencer(int bufferSize, WaitStrategy waitStrategy) {
-        super(bufferSize, waitStrategy);
+        this(bufferSize, waitStrategy, new SleepingProducerWaitStrategy());
+    }
+
+    /**
+     * Construct a Sequencer with the selected wait strategies and buffer size.
+     *
+     * @param bufferSize           the size of the buffer that this will sequence over.
+     * @param waitStrategy         for those waiting on sequences.
+     * @param producerWaitStrategy for the publisher waiting on a full buffer.
+     */
+    public SingleProducerSequencer(int bufferSize, WaitStrategy waitStrategy, ProducerWaitStrategy producerWaitStrategy) {
+        super(bufferSize, waitStrategy, producerWaitStrategy);
     }
 
     /**
@@ -80,7 +87,7 @@ public final class SingleProducerSequencer extends SingleProducerSequencerFields
                 cursor.setVolatile(nextValue);  // StoreLoad fence
             }
 
-            long minSequence = Util.getMinimumSequence(gatingSequences, nextValue);
+            long minSequence = getMinimumGatingSequence(wrapPoint, nextValue);
             this.cachedValue = minSequence;
 
             if (wrapPoint > minSequence) {
@@ -113,12 +120,12 @@ public final class SingleProducerSequencer extends SingleProducerSequencerFields
         //此处是防止producer覆盖消费者的核心||消费者追赶上生产者
         if (wrapPoint > cachedGatingSequence || cachedGatingSequence > nextValue) {
             cursor.setVolatile(nextValue);  // StoreLoad fence
-            //自选等待，直到不会出现覆盖位置
-            long minSequence;
-            //只有当消费者消费，向前移动后，才能跳出循环
-            //由于外层判断使用的是缓存的消费者序列最小值，这里使用真实的消费者序列进行判断，并将最新结果在跳出while循环之后进行缓存
-            while (wrapPoint > (minSequence = Util.getMinimumSequence(gatingSequences, nextValue))) {
-                LockSupport.parkNanos(1L); // TODO: Use waitStrategy to spin?
+            //按照生产者等待策略等待，直到不会出现覆盖位置
+            //只有当消费者消费，向前移动后，才能跳出等待
+            //由于外层判断使用的是缓存的消费者序列最小值，这里使用真实的消费者序列进行判断，并将最新结果在等待结束之后进行缓存
+            long minSequence = getMinimumGatingSequence(wrapPoint, nextValue);
+            if (wrapPoint > minSequence) {
+                minSequence = producerWaitStrategy.waitFor(wrapPoint, this);
             }
             this.cachedValue = minSequence;
         }
@@ -157,7 +164,7 @@ public final class SingleProducerSequencer extends SingleProducerSequencerFields
     public long remainingCapacity() {
         long nextValue = this.nextValue;
 
-        long consumed = Util.getMinimumSequence(gatingSequences, nextValue);
+        long consumed = getMinimumGatingSequence(Long.MAX_VALUE, nextValue);
         long produced = nextValue;
         return getBufferSize() - (produced - consumed);
     }
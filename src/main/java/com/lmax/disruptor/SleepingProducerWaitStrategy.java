@@ -0,0 +1,53 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sleeping strategy that parks the publisher (<code>LockSupport.parkNanos(n)</code>) between
+ * checks of the gating sequences.
+ * <p>
+ * This is the default strategy for the sequencers.  It does not require the consumers to signal,
+ * but the actual sleep time is subject to the timer slack of the OS.
+ */
+public final class SleepingProducerWaitStrategy implements ProducerWaitStrategy {
+    private static final long DEFAULT_SLEEP = 1L;
+
+    private final long sleepTimeNs;
+
+    public SleepingProducerWaitStrategy()
+    {
+        this(DEFAULT_SLEEP);
+    }
+
+    public SleepingProducerWaitStrategy(long sleepTimeNs) {
+        this.sleepTimeNs = sleepTimeNs;
+    }
+
+    @Override
+    public long waitFor(final long wrapPoint, final Sequencer sequencer) {
+        long minSequence;
+        while (wrapPoint > (minSequence = sequencer.getMinimumSequence(wrapPoint))) {
+            LockSupport.parkNanos(sleepTimeNs);
+        }
+        return minSequence;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+    }
+}
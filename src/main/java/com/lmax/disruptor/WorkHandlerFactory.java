@@ -0,0 +1,33 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * A factory interface to create the handlers of the workers added to an elastic {@link WorkerPool} by a
+ * {@link WorkerPoolScaler}, so that no handler instance is called from more than one thread.
+ *
+ * @param <T> event to be processed by the pool of workers.
+ */
+public interface WorkHandlerFactory<T>
+{
+    /**
+     * Create the work handler for a new worker.
+     *
+     * @param index the number of handlers the factory has been asked for before this one, starting from 0.
+     * @return a new work handler.
+     */
+    WorkHandler<? super T> createWorkHandler(int index);
+}
@@ -23,6 +23,11 @@ import java.util.concurrent.atomic.AtomicBoolean;
  *
  * <p>Generally, this will be used as part of a {@link WorkerPool}.</p>
  *
+ * <p>By default each event is claimed from the shared work sequence with its own compare and swap.  With
+ * {@link #setClaimBatchSize(int)} a processor claims a block of events that are already known to be available with
+ * one compare and swap, and processes the block without touching the shared sequence again.  The block grows with
+ * the backlog, when the processor is keeping up it still claims one event at a time.</p>
+ *
  * @param <T> event implementation storing the details for the work to processed.
  */
 public final class WorkProcessor<T> implements EventProcessor {
@@ -46,6 +51,12 @@ public final class WorkProcessor<T> implements EventProcessor {
         }
     };
     private final TimeoutHandler timeoutHandler;
+    //一次CAS最多申请的序号个数
+    private int claimBatchSize = 1;
+    //保序WorkerPool中记录每个事件的完成情况，默认为null
+    private CompletionFrontier completionFrontier;
+    //被弹性WorkerPool移除，处理完已经申请的序号后退出
+    private volatile boolean retiring = false;
 
     /**
      * Construct a {@link WorkProcessor}.
@@ -91,6 +102,48 @@ public final class WorkProcessor<T> implements EventProcessor {
         return running.get();
     }
 
+    /**
+     * Set the largest block of sequences to claim from the work sequence at a time.  Only sequences that have
+     * already been published are claimed as a block, so a processor that keeps up with its publishers claims one
+     * at a time and one that has fallen behind claims up to <code>claimBatchSize</code>.  The sequence of this
+     * processor stays before the block until the whole block has been processed, so it keeps gating the ring buffer
+     * correctly.  Must be set before the processor is started.
+     *
+     * @param claimBatchSize the maximum number of sequences to claim at once, 1 by default.
+     * @throws IllegalArgumentException if claimBatchSize is less than 1.
+     */
+    public void setClaimBatchSize(final int claimBatchSize) {
+        if (claimBatchSize < 1) {
+            throw new IllegalArgumentException("claimBatchSize must not be less than 1");
+        }
+
+        this.claimBatchSize = claimBatchSize;
+    }
+
+    /**
+     * Report every processed event to the frontier of an in order {@link WorkerPool}.  Must be set before the
+     * processor is started.
+     *
+     * @param completionFrontier shared by the processors of the pool.
+     */
+    void setCompletionFrontier(final CompletionFrontier completionFrontier) {
+        this.completionFrontier = completionFrontier;
+    }
+
+    /**
+     * Stop this processor once it has processed every sequence it has claimed, without claiming any more.  Unlike
+     * {@link #halt()} this does not alert the barrier, which is shared with the rest of the {@link WorkerPool}, and
+     * no claimed sequence is left unprocessed, so the other processors of the pool carry on with the remaining work.
+     */
+    void retire() {
+        retiring = true;
+    }
+
+    boolean isRetiring()
+    {
+        return retiring;
+    }
+
     /**
      * It is ok to have another thread re-run this method after a halt().
      *
@@ -109,21 +162,37 @@ public final class WorkProcessor<T> implements EventProcessor {
         //cachedAvailableSequence 记录可以消费的Event的offset下限
         long cachedAvailableSequence = Long.MIN_VALUE;
         long nextSequence = sequence.get();
+        //本次申请到的最后一个序号，nextSequence到claimedSequence之间的序号由当前Processor独占
+        long claimedSequence = nextSequence;
+        final long claimBatchSize = this.claimBatchSize;
+        final CompletionFrontier completionFrontier = this.completionFrontier;
         T event = null;
         while (true) {
             try {
                 //如果前一个元素已经被处理，尝试获取下一个
                 if (processedSequence) {
                     processedSequence = false;
-                    do {
-                        //这就是WorkProcessor是为什么消息队列模型的原因？【不同WorkProcessor消费不同的消息】
-                        //workSequence记录了消费位移，所有的WorkProcessor公用一个workSequence来记录消费offset
-                        nextSequence = workSequence.get() + 1L;
-                        //
-                        sequence.set(nextSequence - 1L);
+                    if (nextSequence < claimedSequence) {
+                        //继续处理已经申请到的序号，不需要再访问workSequence
+                        nextSequence++;
+                    } else {
+                        //已经申请的序号都处理完了才能退出
+                        if (retiring) {
+                            break;
+                        }
+                        do {
+                            //这就是WorkProcessor是为什么消息队列模型的原因？【不同WorkProcessor消费不同的消息】
+                            //workSequence记录了消费位移，所有的WorkProcessor公用一个workSequence来记录消费offset
+                            nextSequence = workSequence.get() + 1L;
+                            //在整块处理完之前sequence停留在块的前面，保证生产者不会覆盖
+                            sequence.set(nextSequence - 1L);
+                            //已知可用的序号足够时一次申请一块，积压越多块越大
+                            claimedSequence = cachedAvailableSequence > nextSequence ?
+                                Math.min(cachedAvailableSequence, nextSequence + claimBatchSize - 1L) : nextSequence;
+                        }
+                        //同一个WorkerPool中Processor可能会并发，通过CAS尝试多次
+                        while (!workSequence.compareAndSet(nextSequence - 1L, claimedSequence));
                     }
-                    //同一个WorkerPool中Processor可能会并发，通过CAS尝试多次
-                    while (!workSequence.compareAndSet(nextSequence - 1L, nextSequence));
                 }
 
                 //如果存在可用的Sequence，从RingBuffer中进行获取并处理
@@ -131,6 +200,9 @@ public final class WorkProcessor<T> implements EventProcessor {
                     event = ringBuffer.get(nextSequence);
                     workHandler.onEvent(event);
                     processedSequence = true;
+                    if (completionFrontier != null) {
+                        completionFrontier.complete(nextSequence);
+                    }
                 } else {
                     //如果不存在可用数据则进行等待
                     cachedAvailableSequence = sequenceBarrier.waitFor(nextSequence);
@@ -138,12 +210,16 @@ public final class WorkProcessor<T> implements EventProcessor {
             } catch (final TimeoutException e) {
                 notifyTimeout(sequence.get());
             } catch (final AlertException ex) {
-                if (!running.get()) {
+                //WorkerPool停止时也会通知正在退出的Processor
+                if (!running.get() || retiring) {
                     break;
                 }
             } catch (final Throwable ex) {
                 exceptionHandler.handleEventException(ex, nextSequence, event);
                 processedSequence = true;
+                if (completionFrontier != null) {
+                    completionFrontier.complete(nextSequence);
+                }
             }
         }
         notifyShutdown();
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>A worker of a work stealing {@link WorkerPool}.  Instead of racing on a shared work sequence, each worker owns
+ * every <code>n</code>th block of <code>blockSize</code> sequences, where <code>n</code> is the number of workers.
+ * The owner takes the sequences of its current block from the head, and a worker that has nothing of its own to do
+ * steals the back half of the published sequences left in a peer's current block.  Each worker therefore only
+ * compares and swaps on its own block state while it keeps up, and an expensive event only holds up the sequences
+ * behind it until an idle peer takes them.</p>
+ *
+ * <p>The sequence of a worker only ever moves forward, as cached minimums of the gating sequences rely on it.  A
+ * thief therefore does not hold back its own sequence for what it steals.  Instead each steal is counted in the
+ * victim's block state until the stolen sequences are processed, and the victim keeps its sequence before the
+ * stolen sequences, without moving on to its next block, until the count drops back to zero.  An idle worker waits
+ * on the barrier for the next published sequence, so work left in a peer's block is only stolen once events are
+ * flowing.</p>
+ *
+ * @param <T> event implementation storing the details for the work to processed.
+ */
+final class WorkStealingProcessor<T> implements EventProcessor {
+    static final int MAX_BLOCK_SIZE = 1 << 15;
+    static final int MAX_WORKERS = 1 << 8;
+    private static final int OFFSET_BITS = 16;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+    private static final long HEAD_INCREMENT = 1L << OFFSET_BITS;
+    private static final int STEALS_SHIFT = 2 * OFFSET_BITS;
+    private static final long STEALS_MASK = MAX_WORKERS - 1;
+    private static final long STEAL_INCREMENT = 1L << STEALS_SHIFT;
+    private static final int TAG_SHIFT = STEALS_SHIFT + 8;
+    private static final long TAG_MASK = (1L << (64 - TAG_SHIFT)) - 1;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final Sequence sequence = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+    private final RingBuffer<T> ringBuffer;
+    private final SequenceBarrier sequenceBarrier;
+    private final WorkHandler<? super T> workHandler;
+    private final ExceptionHandler<? super T> exceptionHandler;
+    private final TimeoutHandler timeoutHandler;
+    //同一个WorkerPool中的所有worker，包括自己
+    private final WorkStealingProcessor<T>[] peers;
+    private final int index;
+    private final int blockSize;
+    //当前块的第一个序号
+    private volatile long blockStart;
+    //当前块的状态：高24位是blockStart的低24位，用来识别块，然后8位是还没处理完的偷取次数，最后是head和tail在块内的偏移
+    //owner从head取，其他worker从tail偷，[head, tail)是还没有被取走的序号
+    private final Sequence block = new Sequence(0L);
+    //启动时已知可用的最大序号
+    private long initialAvailableSequence = Sequencer.INITIAL_CURSOR_VALUE;
+
+    WorkStealingProcessor(
+        final RingBuffer<T> ringBuffer,
+        final SequenceBarrier sequenceBarrier,
+        final WorkHandler<? super T> workHandler,
+        final ExceptionHandler<? super T> exceptionHandler,
+        final WorkStealingProcessor<T>[] peers,
+        final int index,
+        final int blockSize) {
+        this.ringBuffer = ringBuffer;
+        this.sequenceBarrier = sequenceBarrier;
+        this.workHandler = workHandler;
+        this.exceptionHandler = exceptionHandler;
+        this.peers = peers;
+        this.index = index;
+        this.blockSize = blockSize;
+
+        timeoutHandler = (workHandler instanceof TimeoutHandler) ? (TimeoutHandler) workHandler : null;
+    }
+
+    /**
+     * Assign this worker its first block, counting blocks from the sequence after <code>cursor</code>.  Must be
+     * called before the worker is started.
+     *
+     * @param cursor the cursor of the ring buffer when the pool is started.
+     */
+    void reset(final long cursor) {
+        initialAvailableSequence = cursor;
+        startBlock(cursor + 1 + (long) index * blockSize);
+    }
+
+    @Override
+    public Sequence getSequence()
+    {
+        return sequence;
+    }
+
+    @Override
+    public void halt() {
+        running.set(false);
+        sequenceBarrier.alert();
+    }
+
+    @Override
+    public boolean isRunning()
+    {
+        return running.get();
+    }
+
+    /**
+     * It is ok to have another thread re-run this method after a halt().
+     *
+     * @throws IllegalStateException if this processor is already running
+     */
+    @Override
+    public void run() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Thread is already running");
+        }
+        sequenceBarrier.clearAlert();
+        notifyStart();
+
+        long availableSequence = initialAvailableSequence;
+        while (true) {
+            try {
+                final long state = block.get();
+                final int head = head(state);
+                if (head == tail(state)) {
+                    if (steals(state) != 0) {
+                        //被偷走的序号还没处理完，sequence不能越过它们，先去帮别人或者让出CPU
+                        if (!steal(availableSequence)) {
+                            sequenceBarrier.checkAlert();
+                            Thread.yield();
+                        }
+                        continue;
+                    }
+                    //当前块已经全部处理完，换到自己的下一个块
+                    startBlock(blockStart + (long) peers.length * blockSize);
+                    continue;
+                }
+
+                final long nextSequence = blockStart + head;
+                if (nextSequence <= availableSequence) {
+                    if (block.compareAndSet(state, state + HEAD_INCREMENT)) {
+                        process(nextSequence);
+                        //被偷走的序号都在head之后，处理完自己的序号就可以越过它
+                        sequence.set(nextSequence);
+                    }
+                    continue;
+                }
+
+                //自己的块还没有发布，尝试从其他worker的块尾部偷取，没有可偷的就等待下一个发布的序号
+                if (!steal(availableSequence)) {
+                    availableSequence = sequenceBarrier.waitFor(availableSequence + 1L);
+                }
+            } catch (final TimeoutException e) {
+                notifyTimeout(sequence.get());
+            } catch (final AlertException ex) {
+                if (!running.get()) {
+                    break;
+                }
+            } catch (final Throwable ex) {
+                exceptionHandler.handleEventException(ex, sequence.get() + 1L, null);
+            }
+        }
+
+        notifyShutdown();
+        running.set(false);
+    }
+
+    private boolean steal(final long availableSequence) {
+        for (int i = 1; i < peers.length; i++) {
+            final WorkStealingProcessor<T> victim = peers[(index + i) % peers.length];
+            while (true) {
+                final long victimStart = victim.blockStart;
+                final long state = victim.block.get();
+                if ((victimStart & TAG_MASK) != tag(state)) {
+                    //victim正在切换块
+                    continue;
+                }
+
+                final int head = head(state);
+                final int tail = tail(state);
+                if (head == tail || victimStart + tail - 1 > availableSequence) {
+                    break;
+                }
+
+                //偷走剩下部分的后一半，同时记一次偷取，victim的sequence在处理完之前不会越过它们
+                final int count = (tail - head + 1) >>> 1;
+                final long lo = victimStart + tail - count;
+                if (victim.block.compareAndSet(state, state - count + STEAL_INCREMENT)) {
+                    try {
+                        for (long stolenSequence = lo; stolenSequence < lo + count; stolenSequence++) {
+                            process(stolenSequence);
+                        }
+                    } finally {
+                        victim.block.addAndGet(-STEAL_INCREMENT);
+                    }
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static <T> WorkStealingProcessor<T>[] newProcessors(final int size) {
+        return new WorkStealingProcessor[size];
+    }
+
+    private void process(final long sequence) {
+        final T event = ringBuffer.get(sequence);
+        try {
+            workHandler.onEvent(event);
+        } catch (final Throwable ex) {
+            exceptionHandler.handleEventException(ex, sequence, event);
+        }
+    }
+
+    private void startBlock(final long start) {
+        sequence.set(start - 1L);
+        blockStart = start;
+        block.setVolatile(((start & TAG_MASK) << TAG_SHIFT) | blockSize);
+    }
+
+    private static long tag(final long state) {
+        return state >>> TAG_SHIFT;
+    }
+
+    private static int steals(final long state) {
+        return (int) ((state >>> STEALS_SHIFT) & STEALS_MASK);
+    }
+
+    private static int head(final long state) {
+        return (int) ((state >>> OFFSET_BITS) & OFFSET_MASK);
+    }
+
+    private static int tail(final long state) {
+        return (int) (state & OFFSET_MASK);
+    }
+
+    private void notifyTimeout(final long availableSequence)
+    {
+        try
+        {
+            if (timeoutHandler != null)
+            {
+                timeoutHandler.onTimeout(availableSequence);
+            }
+        }
+        catch (Throwable e)
+        {
+            exceptionHandler.handleEventException(e, availableSequence, null);
+        }
+    }
+
+    private void notifyStart()
+    {
+        if (workHandler instanceof LifecycleAware)
+        {
+            try
+            {
+                ((LifecycleAware) workHandler).onStart();
+            }
+            catch (final Throwable ex)
+            {
+                exceptionHandler.handleOnStartException(ex);
+            }
+        }
+    }
+
+    private void notifyShutdown()
+    {
+        if (workHandler instanceof LifecycleAware)
+        {
+            try
+            {
+                ((LifecycleAware) workHandler).onShutdown();
+            }
+            catch (final Throwable ex)
+            {
+                exceptionHandler.handleOnShutdownException(ex);
+            }
+        }
+    }
+}
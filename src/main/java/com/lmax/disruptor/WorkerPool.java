@@ -17,6 +17,7 @@ package com.lmax.disruptor;
 
 import com.lmax.disruptor.util.Util;
 
+import java.util.Arrays;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -31,8 +32,18 @@ public final class WorkerPool<T> {
     //workSequence:WorkProcessor实现一次消费的基础，记录了这组Processor获取event的offset
     private final Sequence workSequence = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
     private final RingBuffer<T> ringBuffer;
-    //WorkerPool内的所有WorkProcessor
-    private final WorkProcessor<?>[] workProcessors;
+    //WorkerPool内的所有WorkProcessor，work stealing模式下是WorkStealingProcessor，弹性模式下增减时整体替换
+    private volatile EventProcessor[] workProcessors;
+    private final boolean workStealing;
+    //保序模式下记录事件的完成情况，下游只依赖连续完成的前沿，其他模式为null
+    private final CompletionFrontier completionFrontier;
+    //弹性模式下包含workSequence和所有worker的sequence，作为整个WorkerPool唯一对外的sequence，其他模式为null
+    private final SequenceGroup workerGroup;
+    //弹性模式下创建新worker需要
+    private final SequenceBarrier sequenceBarrier;
+    private final ExceptionHandler<? super T> exceptionHandler;
+    private Executor executor;
+    private int claimBatchSize = 1;
 
     /**
      * Create a worker pool to enable an array of {@link WorkHandler}s to consume published sequences.
@@ -46,15 +57,39 @@ public final class WorkerPool<T> {
      * @param workHandlers     to distribute the work load across.
      */
     @SafeVarargs
+    @SuppressWarnings("varargs")
     public WorkerPool(final RingBuffer<T> ringBuffer, final SequenceBarrier sequenceBarrier,
         final ExceptionHandler<? super T> exceptionHandler, final WorkHandler<? super T>... workHandlers) {
+        this(ringBuffer, sequenceBarrier, exceptionHandler, false, false, workHandlers);
+    }
+
+    private WorkerPool(final RingBuffer<T> ringBuffer, final SequenceBarrier sequenceBarrier,
+        final ExceptionHandler<? super T> exceptionHandler, final boolean inOrder, final boolean elastic,
+        final WorkHandler<? super T>[] workHandlers) {
         this.ringBuffer = ringBuffer;
+        this.sequenceBarrier = sequenceBarrier;
+        this.exceptionHandler = exceptionHandler;
+        this.workStealing = false;
+        this.completionFrontier = inOrder ? new CompletionFrontier(ringBuffer, workSequence) : null;
+        this.workerGroup = elastic ? new SequenceGroup() : null;
         final int numWorkers = workHandlers.length;
-        workProcessors = new WorkProcessor[numWorkers];
+        final EventProcessor[] processors = new WorkProcessor[numWorkers];
 
         for (int i = 0; i < numWorkers; i++) {
-            workProcessors[i] = new WorkProcessor<>(ringBuffer, sequenceBarrier, workHandlers[i],
+            final WorkProcessor<T> processor = new WorkProcessor<>(ringBuffer, sequenceBarrier, workHandlers[i],
                     exceptionHandler, workSequence);
+            if (completionFrontier != null) {
+                processor.setCompletionFrontier(completionFrontier);
+            }
+            processors[i] = processor;
+        }
+        workProcessors = processors;
+
+        if (workerGroup != null) {
+            workerGroup.add(workSequence);
+            for (EventProcessor processor : processors) {
+                workerGroup.add(processor.getSequence());
+            }
         }
     }
 
@@ -74,40 +109,300 @@ public final class WorkerPool<T> {
         final WorkHandler<? super T>... workHandlers)
     {
         ringBuffer = RingBuffer.createMultiProducer(eventFactory, 1024, new BlockingWaitStrategy());
+        workStealing = false;
+        completionFrontier = null;
+        workerGroup = null;
+        this.exceptionHandler = exceptionHandler;
         final SequenceBarrier barrier = ringBuffer.newBarrier();
+        sequenceBarrier = barrier;
         final int numWorkers = workHandlers.length;
-        workProcessors = new WorkProcessor[numWorkers];
+        final EventProcessor[] processors = new WorkProcessor[numWorkers];
 
         for (int i = 0; i < numWorkers; i++)
         {
-            workProcessors[i] = new WorkProcessor<>(
+            processors[i] = new WorkProcessor<>(
                 ringBuffer,
                 barrier,
                 workHandlers[i],
                 exceptionHandler,
                 workSequence);
         }
+        workProcessors = processors;
 
         ringBuffer.addGatingSequences(getWorkerSequences());
     }
 
+    private WorkerPool(final RingBuffer<T> ringBuffer, final SequenceBarrier sequenceBarrier,
+        final ExceptionHandler<? super T> exceptionHandler, final EventProcessor[] workProcessors) {
+        this.ringBuffer = ringBuffer;
+        this.sequenceBarrier = sequenceBarrier;
+        this.exceptionHandler = exceptionHandler;
+        this.workProcessors = workProcessors;
+        this.workStealing = true;
+        this.completionFrontier = null;
+        this.workerGroup = null;
+    }
+
+    /**
+     * Create a worker pool whose workers process events in parallel, but whose progress is only reported for the
+     * contiguous run of events that have all been completed.  The completion of each event is marked in a bitmap
+     * and {@link #getWorkerSequences()} returns a single frontier sequence that advances over it, so consumers
+     * that depend on the pool see the events in publish order, even though the workers finish them in any order.
+     * <p>
+     * As with {@link #WorkerPool(RingBuffer, SequenceBarrier, ExceptionHandler, WorkHandler[])} the
+     * {@link RingBuffer} must have {@link RingBuffer#addGatingSequences(Sequence...)} called with the
+     * {@link #getWorkerSequences()} before the pool is started.  {@link EventReleaser}s do not move the frontier.
+     *
+     * @param ringBuffer       of events to be consumed.
+     * @param sequenceBarrier  on which the workers will depend.
+     * @param exceptionHandler to callback when an error occurs which is not handled by the {@link WorkHandler}s.
+     * @param workHandlers     to distribute the work load across.
+     * @param <T>              event to be processed by the pool of workers.
+     * @return the in order worker pool.
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public static <T> WorkerPool<T> inOrder(
+        final RingBuffer<T> ringBuffer,
+        final SequenceBarrier sequenceBarrier,
+        final ExceptionHandler<? super T> exceptionHandler,
+        final WorkHandler<? super T>... workHandlers)
+    {
+        return new WorkerPool<>(ringBuffer, sequenceBarrier, exceptionHandler, true, false, workHandlers);
+    }
+
     /**
-     * Get an array of {@link Sequence}s representing the progress of the workers.
+     * Create a worker pool whose workers can be added with {@link #addWorker(WorkHandler)} and removed with
+     * {@link #removeWorker()} while it is running, for example by a {@link WorkerPoolScaler}.
+     * <p>
+     * {@link #getWorkerSequences()} returns a single {@link SequenceGroup} holding the sequences of the current
+     * workers, so the ring buffer and consumers that depend on the pool keep gating on every worker as they come and
+     * go.  As with {@link #WorkerPool(RingBuffer, SequenceBarrier, ExceptionHandler, WorkHandler[])} the
+     * {@link RingBuffer} must have {@link RingBuffer#addGatingSequences(Sequence...)} called with the
+     * {@link #getWorkerSequences()} before the pool is started.
+     *
+     * @param ringBuffer       of events to be consumed.
+     * @param sequenceBarrier  on which the workers will depend.
+     * @param exceptionHandler to callback when an error occurs which is not handled by the {@link WorkHandler}s.
+     * @param workHandlers     the initial workers.
+     * @param <T>              event to be processed by the pool of workers.
+     * @return the elastic worker pool.
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public static <T> WorkerPool<T> elastic(
+        final RingBuffer<T> ringBuffer,
+        final SequenceBarrier sequenceBarrier,
+        final ExceptionHandler<? super T> exceptionHandler,
+        final WorkHandler<? super T>... workHandlers)
+    {
+        return new WorkerPool<>(ringBuffer, sequenceBarrier, exceptionHandler, false, true, workHandlers);
+    }
+
+    /**
+     * Create a worker pool in which each worker owns every <code>n</code>th block of <code>blockSize</code> sequences
+     * and idle workers steal the remaining sequences of a busy worker's block, see {@link WorkStealingProcessor}.
+     * There is no shared work sequence, so workers that keep up never contend with each other, which suits work
+     * items of uneven cost better than the shared sequence of the default pool.
+     * <p>
+     * As with {@link #WorkerPool(RingBuffer, SequenceBarrier, ExceptionHandler, WorkHandler[])} the
+     * {@link RingBuffer} must have {@link RingBuffer#addGatingSequences(Sequence...)} called with the
+     * {@link #getWorkerSequences()} before the pool is started.
+     *
+     * @param ringBuffer       of events to be consumed.
+     * @param sequenceBarrier  on which the workers will depend.
+     * @param exceptionHandler to callback when an error occurs which is not handled by the {@link WorkHandler}s.
+     * @param blockSize        the number of consecutive sequences owned by a worker at a time.
+     * @param workHandlers     to distribute the work load across.
+     * @param <T>              event to be processed by the pool of workers.
+     * @return the work stealing worker pool.
+     * @throws IllegalArgumentException if blockSize is less than 1 or greater than 32768, or if there are more than
+     *                                  256 workHandlers.
+     */
+    @SafeVarargs
+    public static <T> WorkerPool<T> workStealing(
+        final RingBuffer<T> ringBuffer,
+        final SequenceBarrier sequenceBarrier,
+        final ExceptionHandler<? super T> exceptionHandler,
+        final int blockSize,
+        final WorkHandler<? super T>... workHandlers)
+    {
+        if (blockSize < 1 || blockSize > WorkStealingProcessor.MAX_BLOCK_SIZE)
+        {
+            throw new IllegalArgumentException("blockSize must be between 1 and " + WorkStealingProcessor.MAX_BLOCK_SIZE);
+        }
+
+        if (workHandlers.length > WorkStealingProcessor.MAX_WORKERS)
+        {
+            throw new IllegalArgumentException("At most " + WorkStealingProcessor.MAX_WORKERS + " workHandlers are supported");
+        }
+
+        final int numWorkers = workHandlers.length;
+        //所有worker共享同一个peers数组，用来互相偷取
+        final WorkStealingProcessor<T>[] processors = WorkStealingProcessor.newProcessors(numWorkers);
+        for (int i = 0; i < numWorkers; i++)
+        {
+            processors[i] = new WorkStealingProcessor<>(
+                ringBuffer, sequenceBarrier, workHandlers[i], exceptionHandler, processors, i, blockSize);
+        }
+
+        return new WorkerPool<>(ringBuffer, sequenceBarrier, exceptionHandler, processors);
+    }
+
+    /**
+     * Get an array of {@link Sequence}s representing the progress of the workers.  For a pool created with
+     * {@link #inOrder(RingBuffer, SequenceBarrier, ExceptionHandler, WorkHandler[])} this is just the completion
+     * frontier of the pool.
      *
      * @return an array of {@link Sequence}s representing the progress of the workers.
      */
     public Sequence[] getWorkerSequences()
     {
-        final Sequence[] sequences = new Sequence[workProcessors.length + 1];
+        //保序模式下只暴露连续完成的前沿
+        if (completionFrontier != null)
+        {
+            return new Sequence[] {completionFrontier.getSequence()};
+        }
+        //弹性模式下只暴露包含所有worker的SequenceGroup
+        if (workerGroup != null)
+        {
+            return new Sequence[] {workerGroup};
+        }
+
+        //work stealing模式下没有共享的workSequence
+        final EventProcessor[] workProcessors = this.workProcessors;
+        final Sequence[] sequences = new Sequence[workStealing ? workProcessors.length : workProcessors.length + 1];
         for (int i = 0, size = workProcessors.length; i < size; i++)
         {
             sequences[i] = workProcessors[i].getSequence();
         }
-        sequences[sequences.length - 1] = workSequence;
+        if (!workStealing)
+        {
+            sequences[sequences.length - 1] = workSequence;
+        }
 
         return sequences;
     }
 
+    /**
+     * Let the workers claim blocks of up to <code>claimBatchSize</code> available sequences with each compare and
+     * swap on the shared work sequence, see {@link WorkProcessor#setClaimBatchSize(int)}.
+     *
+     * @param claimBatchSize the maximum number of sequences a worker claims at once.
+     * @throws IllegalArgumentException if claimBatchSize is less than 1.
+     * @throws IllegalStateException if the pool has been started.
+     * @throws UnsupportedOperationException if this is a work stealing pool, which has no shared work sequence.
+     */
+    public void setClaimBatchSize(final int claimBatchSize) {
+        if (workStealing) {
+            throw new UnsupportedOperationException("A work stealing WorkerPool claims whole blocks, see workStealing(...).");
+        }
+        if (started.get()) {
+            throw new IllegalStateException("The claim batch size must be set before the WorkerPool is started.");
+        }
+
+        for (EventProcessor processor : workProcessors) {
+            ((WorkProcessor<?>) processor).setClaimBatchSize(claimBatchSize);
+        }
+        this.claimBatchSize = claimBatchSize;
+    }
+
+    /**
+     * Add a worker to an elastic pool.  If the pool is running the worker is started straight away on the executor
+     * the pool was started with, and its sequence joins the pool's {@link SequenceGroup} at the current cursor, see
+     * {@link SequenceGroup#addWhileRunning(Cursored, Sequence)}.
+     *
+     * @param workHandler the handler of the new worker.
+     * @throws UnsupportedOperationException if the pool was not created with
+     * {@link #elastic(RingBuffer, SequenceBarrier, ExceptionHandler, WorkHandler[])}.
+     */
+    public synchronized void addWorker(final WorkHandler<? super T> workHandler) {
+        checkElastic();
+
+        final WorkProcessor<T> processor = new WorkProcessor<>(ringBuffer, sequenceBarrier, workHandler,
+                exceptionHandler, workSequence);
+        processor.setClaimBatchSize(claimBatchSize);
+        final EventProcessor[] processors = Arrays.copyOf(workProcessors, workProcessors.length + 1);
+        processors[processors.length - 1] = processor;
+
+        if (started.get()) {
+            //先加入group再启动，新worker之前的序号由workSequence把关
+            workerGroup.addWhileRunning(ringBuffer, processor.getSequence());
+            workProcessors = processors;
+            executor.execute(removeOnRetirement(processor));
+        } else {
+            workerGroup.add(processor.getSequence());
+            workProcessors = processors;
+        }
+    }
+
+    /**
+     * Remove the most recently added worker from an elastic pool, always leaving at least one.  A running worker
+     * finishes the sequences it has already claimed before it stops, without alerting the barrier it shares with
+     * the other workers, and only then leaves the pool's {@link SequenceGroup}, so no event is lost or overwritten while it is removed.
+     *
+     * @return false if the pool only has one worker left.
+     * @throws UnsupportedOperationException if the pool was not created with
+     * {@link #elastic(RingBuffer, SequenceBarrier, ExceptionHandler, WorkHandler[])}.
+     */
+    public synchronized boolean removeWorker() {
+        checkElastic();
+
+        final EventProcessor[] processors = workProcessors;
+        if (processors.length <= 1) {
+            return false;
+        }
+
+        final WorkProcessor<?> processor = (WorkProcessor<?>) processors[processors.length - 1];
+        workProcessors = Arrays.copyOf(processors, processors.length - 1);
+        if (started.get()) {
+            //由worker线程退出时从group中移除
+            processor.retire();
+        } else {
+            workerGroup.remove(processor.getSequence());
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of workers in the pool, not counting removed workers that are still finishing their claims.
+     */
+    public int getWorkerCount()
+    {
+        return workProcessors.length;
+    }
+
+    /**
+     * Get the number of published events that the pool has not yet finished with.
+     *
+     * @return the cursor of the ring buffer less the minimum of {@link #getWorkerSequences()}.
+     */
+    public long getBacklog()
+    {
+        return Math.max(0L, ringBuffer.getCursor() - Util.getMinimumSequence(getWorkerSequences()));
+    }
+
+    private void checkElastic() {
+        if (workerGroup == null) {
+            throw new UnsupportedOperationException("Workers can only be added to or removed from an elastic WorkerPool, see elastic(...).");
+        }
+    }
+
+    private Runnable removeOnRetirement(final WorkProcessor<?> processor) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    processor.run();
+                } finally {
+                    if (processor.isRetiring()) {
+                        workerGroup.remove(processor.getSequence());
+                    }
+                }
+            }
+        };
+    }
+
     /**
      * Start the worker pool processing events in sequence.
      *
@@ -115,17 +410,26 @@ public final class WorkerPool<T> {
      * @return the {@link RingBuffer} used for the work queue.
      * @throws IllegalStateException if the pool has already been started and not halted yet
      */
-    public RingBuffer<T> start(final Executor executor) {
+    public synchronized RingBuffer<T> start(final Executor executor) {
         if (!started.compareAndSet(false, true)) {
             throw new IllegalStateException("WorkerPool has already been started and cannot be restarted until halted.");
         }
 
+        this.executor = executor;
         final long cursor = ringBuffer.getCursor();
         workSequence.set(cursor);
+        if (completionFrontier != null) {
+            completionFrontier.reset(cursor);
+        }
 
-        for (WorkProcessor<?> processor : workProcessors) {
-            processor.getSequence().set(cursor);
-            executor.execute(processor);
+        for (EventProcessor processor : workProcessors) {
+            if (workStealing) {
+                //从cursor之后开始重新分配每个worker的块
+                ((WorkStealingProcessor<?>) processor).reset(cursor);
+            } else {
+                processor.getSequence().set(cursor);
+            }
+            executor.execute(workerGroup != null ? removeOnRetirement((WorkProcessor<?>) processor) : processor);
         }
 
         return ringBuffer;
@@ -142,7 +446,7 @@ public final class WorkerPool<T> {
             Thread.yield();
         }
 
-        for (WorkProcessor<?> processor : workProcessors)
+        for (EventProcessor processor : workProcessors)
         {
             processor.halt();
         }
@@ -155,7 +459,7 @@ public final class WorkerPool<T> {
      */
     public void halt()
     {
-        for (WorkProcessor<?> processor : workProcessors)
+        for (EventProcessor processor : workProcessors)
         {
             processor.halt();
         }
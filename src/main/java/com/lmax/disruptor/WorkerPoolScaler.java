@@ -0,0 +1,114 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * <p>Grows and shrinks an elastic {@link WorkerPool} from its observed backlog, so that the pool only runs as many
+ * threads as the load needs rather than enough for the peak.  Each call to {@link #run()} takes one sample, so the
+ * scaler is meant to be scheduled at a fixed rate, for example with
+ * {@link java.util.concurrent.ScheduledExecutorService#scheduleAtFixedRate(Runnable, long, long, java.util.concurrent.TimeUnit)}.</p>
+ *
+ * <p>When the backlog of the pool, see {@link WorkerPool#getBacklog()}, is more than <code>growBacklog</code> events
+ * for each worker a worker is added.  When the pool has had no backlog for <code>shrinkAfterIdleSamples</code>
+ * samples in a row a worker is removed.  At most one worker is added or removed per sample, and the pool is kept
+ * between <code>minWorkers</code> and <code>maxWorkers</code>.</p>
+ *
+ * <p>A scaler must only be run by one thread at a time.</p>
+ *
+ * @param <T> event to be processed by the pool of workers.
+ */
+public final class WorkerPoolScaler<T> implements Runnable
+{
+    private final WorkerPool<T> workerPool;
+    private final WorkHandlerFactory<T> workHandlerFactory;
+    private final int minWorkers;
+    private final int maxWorkers;
+    private final long growBacklog;
+    private final int shrinkAfterIdleSamples;
+    //连续没有积压的采样次数
+    private int idleSamples = 0;
+    private int createdHandlers = 0;
+
+    /**
+     * Create a scaler for an elastic worker pool.
+     *
+     * @param workerPool             created with {@link WorkerPool#elastic(RingBuffer, SequenceBarrier, ExceptionHandler, WorkHandler[])}.
+     * @param workHandlerFactory     to create the handlers of added workers.
+     * @param minWorkers             the least number of workers to keep.
+     * @param maxWorkers             the most number of workers to run.
+     * @param growBacklog            the backlog for each worker above which a worker is added.
+     * @param shrinkAfterIdleSamples the number of samples in a row without backlog after which a worker is removed.
+     * @throws IllegalArgumentException if minWorkers, growBacklog or shrinkAfterIdleSamples is less than 1, or
+     * maxWorkers is less than minWorkers.
+     */
+    public WorkerPoolScaler(
+        final WorkerPool<T> workerPool,
+        final WorkHandlerFactory<T> workHandlerFactory,
+        final int minWorkers,
+        final int maxWorkers,
+        final long growBacklog,
+        final int shrinkAfterIdleSamples)
+    {
+        if (minWorkers < 1 || maxWorkers < minWorkers)
+        {
+            throw new IllegalArgumentException("minWorkers must not be less than 1 or greater than maxWorkers");
+        }
+        if (growBacklog < 1)
+        {
+            throw new IllegalArgumentException("growBacklog must not be less than 1");
+        }
+        if (shrinkAfterIdleSamples < 1)
+        {
+            throw new IllegalArgumentException("shrinkAfterIdleSamples must not be less than 1");
+        }
+
+        this.workerPool = workerPool;
+        this.workHandlerFactory = workHandlerFactory;
+        this.minWorkers = minWorkers;
+        this.maxWorkers = maxWorkers;
+        this.growBacklog = growBacklog;
+        this.shrinkAfterIdleSamples = shrinkAfterIdleSamples;
+    }
+
+    /**
+     * Take a sample of the backlog and add or remove a worker if needed.
+     */
+    @Override
+    public void run()
+    {
+        final int workers = workerPool.getWorkerCount();
+        final long backlog = workerPool.getBacklog();
+
+        if (workers < minWorkers || (backlog > growBacklog * workers && workers < maxWorkers))
+        {
+            idleSamples = 0;
+            workerPool.addWorker(workHandlerFactory.createWorkHandler(createdHandlers++));
+        }
+        else if (backlog == 0)
+        {
+            //持续空闲一段时间才缩减，避免负载抖动时反复增减
+            if (++idleSamples >= shrinkAfterIdleSamples && workers > minWorkers)
+            {
+                idleSamples = 0;
+                workerPool.removeWorker();
+            }
+        }
+        else
+        {
+            idleSamples = 0;
+        }
+    }
+}
@@ -28,6 +28,7 @@ class ConsumerRepository<T> implements Iterable<ConsumerInfo>
 {
     private final Map<EventHandler<?>, EventProcessorInfo<T>> eventProcessorInfoByEventHandler = new IdentityHashMap<>();
     private final Map<Sequence, ConsumerInfo> eventProcessorInfoBySequence = new IdentityHashMap<>();
+    private final Map<WorkHandler<?>, WorkerPool<T>> workerPoolByWorkHandler = new IdentityHashMap<>();
     private final Collection<ConsumerInfo> consumerInfos = new ArrayList<>();
 
     public void add(final EventProcessor eventprocessor,
@@ -49,6 +50,15 @@ class ConsumerRepository<T> implements Iterable<ConsumerInfo>
 
     public void add(final WorkerPool<T> workerPool, final SequenceBarrier sequenceBarrier)
     {
+        add(workerPool, sequenceBarrier, new WorkHandler<?>[0]);
+    }
+
+    public void add(final WorkerPool<T> workerPool, final SequenceBarrier sequenceBarrier, final WorkHandler<?>[] workHandlers)
+    {
+        for (WorkHandler<?> workHandler : workHandlers)
+        {
+            workerPoolByWorkHandler.put(workHandler, workerPool);
+        }
         final WorkerPoolInfo<T> workerPoolInfo = new WorkerPoolInfo<>(workerPool, sequenceBarrier);
         consumerInfos.add(workerPoolInfo);
         for (Sequence sequence : workerPool.getWorkerSequences())
@@ -79,6 +89,17 @@ class ConsumerRepository<T> implements Iterable<ConsumerInfo>
         return eventprocessorInfo.getEventProcessor();
     }
 
+    public WorkerPool<T> getWorkerPoolFor(final WorkHandler<T> handler)
+    {
+        final WorkerPool<T> workerPool = workerPoolByWorkHandler.get(handler);
+        if (workerPool == null)
+        {
+            throw new IllegalArgumentException("The work handler " + handler + " is not processing events.");
+        }
+
+        return workerPool;
+    }
+
     public Sequence getSequenceFor(final EventHandler<T> handler)
     {
         return getEventProcessorFor(handler).getSequence();
@@ -18,12 +18,15 @@ package com.lmax.disruptor.dsl;
 import com.lmax.disruptor.BatchEventProcessor;
 import com.lmax.disruptor.EventFactory;
 import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventKeyFunction;
 import com.lmax.disruptor.EventProcessor;
 import com.lmax.disruptor.EventTranslator;
 import com.lmax.disruptor.EventTranslatorOneArg;
 import com.lmax.disruptor.EventTranslatorThreeArg;
 import com.lmax.disruptor.EventTranslatorTwoArg;
 import com.lmax.disruptor.ExceptionHandler;
+import com.lmax.disruptor.PartitionedEventProcessor;
+import com.lmax.disruptor.ProducerWaitStrategy;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.Sequence;
 import com.lmax.disruptor.SequenceBarrier;
@@ -31,8 +34,10 @@ import com.lmax.disruptor.TimeoutException;
 import com.lmax.disruptor.WaitStrategy;
 import com.lmax.disruptor.WorkHandler;
 import com.lmax.disruptor.WorkerPool;
+import com.lmax.disruptor.WorkerPoolScaler;
 import com.lmax.disruptor.util.Util;
 
+import java.util.Iterator;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -128,6 +133,23 @@ public class Disruptor<T> {
         this(RingBuffer.create(producerType, eventFactory, ringBufferSize, waitStrategy), new BasicExecutor(threadFactory));
     }
 
+    /**
+     * Create a new Disruptor.
+     *
+     * @param eventFactory         the factory to create events in the ring buffer.
+     * @param ringBufferSize       the size of the ring buffer, must be power of 2.
+     * @param threadFactory        a {@link ThreadFactory} to create threads for processors.
+     * @param producerType         the claim strategy to use for the ring buffer.
+     * @param waitStrategy         the wait strategy to use for the ring buffer.
+     * @param producerWaitStrategy the wait strategy used by publishers when the ring buffer is full.
+     */
+    public Disruptor(final EventFactory<T> eventFactory, final int ringBufferSize, final ThreadFactory threadFactory,
+                     final ProducerType producerType, final WaitStrategy waitStrategy,
+                     final ProducerWaitStrategy producerWaitStrategy) {
+        this(RingBuffer.create(producerType, eventFactory, ringBufferSize, waitStrategy, producerWaitStrategy),
+            new BasicExecutor(threadFactory));
+    }
+
     /**
      * Private constructor helper
      */
@@ -205,6 +227,25 @@ public class Disruptor<T> {
     }
 
 
+    /**
+     * <p>Set up a group of <code>partitionCount</code> event processors that split the events between them by key.
+     * Every event is handled by the processor of the partition its key hashes to, so the events for a key are
+     * handled in order while different keys are handled in parallel, see {@link PartitionedEventProcessor}.</p>
+     *
+     * <p>Each processor gets its own handler from the factory.  The processors advance past the events of other
+     * partitions, so handlers set up after the group, or after any of its handlers, only see an event once its
+     * partition has handled it.</p>
+     *
+     * @param keyFunction    to extract the key of each event.
+     * @param handlerFactory to create the handler of each partition.
+     * @param partitionCount the number of partitions.
+     * @return a {@link EventHandlerGroup} that can be used to chain dependencies.
+     */
+    public EventHandlerGroup<T> handleEventsWithPartitioned(
+        final EventKeyFunction<? super T> keyFunction, final EventHandlerFactory<T> handlerFactory, final int partitionCount) {
+        return createPartitionedEventProcessors(new Sequence[0], keyFunction, handlerFactory, partitionCount);
+    }
+
     /**
      * Set up a {@link WorkerPool} to distribute an event to one of a pool of work handler threads.
      * Each event will only be processed by one of the work handlers.
@@ -219,6 +260,54 @@ public class Disruptor<T> {
         return createWorkerPool(new Sequence[0], workHandlers);
     }
 
+    /**
+     * Set up an elastic {@link WorkerPool} to distribute an event to one of a pool of work handler threads.  Workers
+     * can be added and removed after {@link #start()} through the pool returned by {@link #getWorkerPoolFor(WorkHandler)},
+     * either directly or by scheduling a {@link WorkerPoolScaler}, and handlers set up after the pool keep gating
+     * on every current worker, see {@link WorkerPool#elastic(RingBuffer, SequenceBarrier, ExceptionHandler, WorkHandler[])}.
+     * The Disruptor will automatically start this processors when {@link #start()} is called.
+     *
+     * @param workHandlers the initial work handlers that will process events.
+     * @return a {@link EventHandlerGroup} that can be used to chain dependencies.
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public final EventHandlerGroup<T> handleEventsWithElasticWorkerPool(final WorkHandler<T>... workHandlers) {
+        return createElasticWorkerPool(new Sequence[0], workHandlers);
+    }
+
+    /**
+     * Set up an in order {@link WorkerPool} to distribute an event to one of a pool of work handler threads.
+     * Each event will only be processed by one of the work handlers, and handlers set up after the pool see the
+     * events in publish order, see {@link WorkerPool#inOrder(RingBuffer, SequenceBarrier, ExceptionHandler, WorkHandler[])}.
+     * The Disruptor will automatically start this processors when {@link #start()} is called.
+     *
+     * @param workHandlers the work handlers that will process events.
+     * @return a {@link EventHandlerGroup} that can be used to chain dependencies.
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public final EventHandlerGroup<T> handleEventsWithOrderedWorkerPool(final WorkHandler<T>... workHandlers) {
+        return createOrderedWorkerPool(new Sequence[0], workHandlers);
+    }
+
+    /**
+     * Set up a work stealing {@link WorkerPool} to distribute an event to one of a pool of work handler threads.
+     * Each worker owns every <code>n</code>th block of <code>blockSize</code> sequences and idle workers steal
+     * from the block of a busy worker, which suits work items of uneven cost, see
+     * {@link WorkerPool#workStealing(RingBuffer, SequenceBarrier, ExceptionHandler, int, WorkHandler[])}.
+     * The Disruptor will automatically start this processors when {@link #start()} is called.
+     *
+     * @param blockSize    the number of consecutive sequences owned by a worker at a time.
+     * @param workHandlers the work handlers that will process events.
+     * @return a {@link EventHandlerGroup} that can be used to chain dependencies.
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public final EventHandlerGroup<T> handleEventsWithWorkStealingPool(final int blockSize, final WorkHandler<T>... workHandlers) {
+        return createWorkStealingPool(new Sequence[0], blockSize, workHandlers);
+    }
+
     /**
      * <p>Specify an exception handler to be used for any future event handlers.</p>
      *
@@ -258,6 +347,27 @@ public class Disruptor<T> {
         return new ExceptionHandlerSetting<>(eventHandler, consumerRepository);
     }
 
+    /**
+     * Limit the number of events a specific handler processes before its progress is published, see
+     * {@link BatchEventProcessor#setMaxBatchSize(int)}.  Must be called before the Disruptor is started.
+     * <pre>disruptorWizard.setMaxBatchSize(eventHandler, 1024);</pre>
+     *
+     * @param eventHandler the event handler to limit the batches of.
+     * @param maxBatchSize the maximum number of events in a batch.
+     * @throws IllegalArgumentException if the handler is not run by a {@link BatchEventProcessor} or maxBatchSize
+     *                                  is less than 1.
+     */
+    public void setMaxBatchSize(final EventHandler<T> eventHandler, final int maxBatchSize) {
+        checkNotStarted();
+        final EventProcessor eventProcessor = consumerRepository.getEventProcessorFor(eventHandler);
+        if (!(eventProcessor instanceof BatchEventProcessor)) {
+            throw new IllegalArgumentException(
+                "EventProcessor: " + eventProcessor + " is not a BatchEventProcessor " +
+                "and does not support a maximum batch size");
+        }
+        ((BatchEventProcessor<?>) eventProcessor).setMaxBatchSize(maxBatchSize);
+    }
+
     /**
      * <p>Create a group of event handlers to be used as a dependency.
      * For example if the handler <code>A</code> must process events before handler <code>B</code>:</p>
@@ -326,6 +436,34 @@ public class Disruptor<T> {
         ringBuffer.publishEvents(eventTranslator, arg);
     }
 
+    /**
+     * Publish every element of a source to the ring buffer, one event per element, claiming the events in
+     * chunks rather than one at a time.
+     *
+     * @param <A> Class of the user supplied argument.
+     * @param eventTranslator the translator that will load data into the event.
+     * @param source          The elements to load into the events. One Per event.
+     * @return the number of events published.
+     * @see RingBuffer#publishEvents(EventTranslatorOneArg, Iterable)
+     */
+    public <A> long publishEvents(final EventTranslatorOneArg<T, A> eventTranslator, final Iterable<? extends A> source) {
+        return ringBuffer.publishEvents(eventTranslator, source);
+    }
+
+    /**
+     * Publish the remaining elements of an iterator to the ring buffer, one event per element, claiming the
+     * events in chunks rather than one at a time.
+     *
+     * @param <A> Class of the user supplied argument.
+     * @param eventTranslator the translator that will load data into the event.
+     * @param source          The elements to load into the events. One Per event.
+     * @return the number of events published.
+     * @see RingBuffer#publishEvents(EventTranslatorOneArg, Iterator)
+     */
+    public <A> long publishEvents(final EventTranslatorOneArg<T, A> eventTranslator, final Iterator<? extends A> source) {
+        return ringBuffer.publishEvents(eventTranslator, source);
+    }
+
     /**
      * Publish an event to the ring buffer.
      *
@@ -466,6 +604,17 @@ public class Disruptor<T> {
         return ringBuffer.get(sequence);
     }
 
+    /**
+     * Get the {@link WorkerPool} that a work handler was set up in, for example to add workers to an elastic pool.
+     *
+     * @param handler the work handler, previously set up with one of the worker pool methods.
+     * @return the worker pool running <i>handler</i>.
+     * @throws IllegalArgumentException if the handler was not set up with this Disruptor.
+     */
+    public WorkerPool<T> getWorkerPoolFor(final WorkHandler<T> handler) {
+        return consumerRepository.getWorkerPoolFor(handler);
+    }
+
     /**
      * Get the {@link SequenceBarrier} used by a specific handler. Note that the {@link SequenceBarrier}
      * may be shared by multiple event handlers.
@@ -528,6 +677,39 @@ public class Disruptor<T> {
         return new EventHandlerGroup<>(this, consumerRepository, processorSequences);
     }
 
+    EventHandlerGroup<T> createPartitionedEventProcessors(
+        final Sequence[] barrierSequences,
+        final EventKeyFunction<? super T> keyFunction,
+        final EventHandlerFactory<T> handlerFactory,
+        final int partitionCount) {
+        checkNotStarted();
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("partitionCount must not be less than 1");
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final EventHandler<? super T>[] eventHandlers = new EventHandler[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            eventHandlers[i] = handlerFactory.createEventHandler(i);
+        }
+
+        //同一组的所有分区共用一个barrier和分区表
+        final SequenceBarrier barrier = ringBuffer.newBarrier(barrierSequences);
+        final PartitionedEventProcessor<T>[] processors =
+            PartitionedEventProcessor.createGroup(ringBuffer, barrier, keyFunction, eventHandlers);
+        final Sequence[] processorSequences = new Sequence[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            if (exceptionHandler != null) {
+                processors[i].setExceptionHandler(exceptionHandler);
+            }
+
+            consumerRepository.add(processors[i], eventHandlers[i], barrier);
+            processorSequences[i] = processors[i].getSequence();
+        }
+        updateGatingSequencesForNextInChain(barrierSequences, processorSequences);
+        return new EventHandlerGroup<>(this, consumerRepository, processorSequences);
+    }
+
     private void updateGatingSequencesForNextInChain(final Sequence[] barrierSequences,
                                                      final Sequence[] processorSequences) {
         if (processorSequences.length > 0) {
@@ -551,8 +733,32 @@ public class Disruptor<T> {
     EventHandlerGroup<T> createWorkerPool(final Sequence[] barrierSequences, final WorkHandler<? super T>[] workHandlers) {
         final SequenceBarrier sequenceBarrier = ringBuffer.newBarrier(barrierSequences);
         final WorkerPool<T> workerPool = new WorkerPool<>(ringBuffer, sequenceBarrier, exceptionHandler, workHandlers);
+        return addWorkerPool(barrierSequences, sequenceBarrier, workerPool, workHandlers);
+    }
+
+    EventHandlerGroup<T> createOrderedWorkerPool(final Sequence[] barrierSequences, final WorkHandler<? super T>[] workHandlers) {
+        final SequenceBarrier sequenceBarrier = ringBuffer.newBarrier(barrierSequences);
+        final WorkerPool<T> workerPool = WorkerPool.inOrder(ringBuffer, sequenceBarrier, exceptionHandler, workHandlers);
+        return addWorkerPool(barrierSequences, sequenceBarrier, workerPool, workHandlers);
+    }
+
+    EventHandlerGroup<T> createWorkStealingPool(
+        final Sequence[] barrierSequences, final int blockSize, final WorkHandler<? super T>[] workHandlers) {
+        final SequenceBarrier sequenceBarrier = ringBuffer.newBarrier(barrierSequences);
+        final WorkerPool<T> workerPool = WorkerPool.workStealing(ringBuffer, sequenceBarrier, exceptionHandler, blockSize, workHandlers);
+        return addWorkerPool(barrierSequences, sequenceBarrier, workerPool, workHandlers);
+    }
+
+    EventHandlerGroup<T> createElasticWorkerPool(final Sequence[] barrierSequences, final WorkHandler<? super T>[] workHandlers) {
+        final SequenceBarrier sequenceBarrier = ringBuffer.newBarrier(barrierSequences);
+        final WorkerPool<T> workerPool = WorkerPool.elastic(ringBuffer, sequenceBarrier, exceptionHandler, workHandlers);
+        return addWorkerPool(barrierSequences, sequenceBarrier, workerPool, workHandlers);
+    }
 
-        consumerRepository.add(workerPool, sequenceBarrier);
+    private EventHandlerGroup<T> addWorkerPool(
+        final Sequence[] barrierSequences, final SequenceBarrier sequenceBarrier, final WorkerPool<T> workerPool,
+        final WorkHandler<? super T>[] workHandlers) {
+        consumerRepository.add(workerPool, sequenceBarrier, workHandlers);
         final Sequence[] workerSequences = workerPool.getWorkerSequences();
         updateGatingSequencesForNextInChain(barrierSequences, workerSequences);
         return new EventHandlerGroup<>(this, consumerRepository, workerSequences);
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.dsl;
+
+import com.lmax.disruptor.EventHandler;
+
+/**
+ * A factory interface to create an event handler for each of several independent consumers, such as the
+ * shards of a {@link ShardedDisruptor}, so that no handler instance is called from more than one thread.
+ */
+public interface EventHandlerFactory<T>
+{
+    /**
+     * Create the event handler for one of the consumers.
+     *
+     * @param index the index of the consumer, starting from 0.
+     * @return a new event handler.
+     */
+    EventHandler<? super T> createEventHandler(int index);
+}
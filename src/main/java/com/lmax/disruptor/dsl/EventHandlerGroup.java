@@ -16,6 +16,7 @@
 package com.lmax.disruptor.dsl;
 
 import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventKeyFunction;
 import com.lmax.disruptor.EventProcessor;
 import com.lmax.disruptor.Sequence;
 import com.lmax.disruptor.SequenceBarrier;
@@ -162,6 +163,27 @@ public class EventHandlerGroup<T> {
         return disruptor.createEventProcessors(sequences, eventProcessorFactories);
     }
 
+    /**
+     * <p>Set up a group of event processors that split the events between them by key, see
+     * {@link Disruptor#handleEventsWithPartitioned(EventKeyFunction, EventHandlerFactory, int)}. The partitions
+     * will only process events after every {@link EventProcessor} in this group has processed the event.</p>
+     *
+     * <p>This method is generally used as part of a chain. For example if the handler <code>A</code> must
+     * process events before the partitions created by <code>factory</code>:</p>
+     *
+     * <pre><code>dw.after(A).handleEventsWithPartitioned(keyFunction, factory, 4);</code></pre>
+     *
+     * @param keyFunction    to extract the key of each event.
+     * @param handlerFactory to create the handler of each partition.
+     * @param partitionCount the number of partitions.
+     * @return a {@link EventHandlerGroup} that can be used to set up a event processor barrier over the created event processors.
+     */
+    public EventHandlerGroup<T> handleEventsWithPartitioned(
+        final EventKeyFunction<? super T> keyFunction, final EventHandlerFactory<T> handlerFactory, final int partitionCount)
+    {
+        return disruptor.createPartitionedEventProcessors(sequences, keyFunction, handlerFactory, partitionCount);
+    }
+
     /**
      * <p>Set up a worker pool to handle events from the ring buffer. The worker pool will only process events
      * after every {@link EventProcessor} in this group has processed the event. Each event will be processed
@@ -181,6 +203,69 @@ public class EventHandlerGroup<T> {
         return disruptor.createWorkerPool(sequences, handlers);
     }
 
+    /**
+     * <p>Set up an elastic worker pool to handle events from the ring buffer, see
+     * {@link Disruptor#handleEventsWithElasticWorkerPool(WorkHandler[])}. The worker pool will only process events
+     * after every {@link EventProcessor} in this group has processed the event. Each event will be processed by one
+     * of the work handler instances.</p>
+     *
+     * <p>This method is generally used as part of a chain. For example if the handler <code>A</code> must
+     * process events before the worker pool with handlers <code>B, C</code>:</p>
+     *
+     * <pre><code>dw.after(A).handleEventsWithElasticWorkerPool(B, C);</code></pre>
+     *
+     * @param handlers the initial work handlers that will process events. Each work handler instance will provide an extra thread in the worker pool.
+     * @return a {@link EventHandlerGroup} that can be used to set up a event processor barrier over the created event processors.
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public final EventHandlerGroup<T> handleEventsWithElasticWorkerPool(final WorkHandler<? super T>... handlers)
+    {
+        return disruptor.createElasticWorkerPool(sequences, handlers);
+    }
+
+    /**
+     * <p>Set up an in order worker pool to handle events from the ring buffer. The worker pool will only process
+     * events after every {@link EventProcessor} in this group has processed the event. Each event will be processed
+     * by one of the work handler instances, and handlers set up after the pool see the events in publish order.</p>
+     *
+     * <p>This method is generally used as part of a chain. For example if the handler <code>A</code> must
+     * process events before the worker pool with handlers <code>B, C</code>, and the journal <code>J</code> must
+     * see them in order afterwards:</p>
+     *
+     * <pre><code>dw.after(A).handleEventsWithOrderedWorkerPool(B, C).then(J);</code></pre>
+     *
+     * @param handlers the work handlers that will process events. Each work handler instance will provide an extra thread in the worker pool.
+     * @return a {@link EventHandlerGroup} that can be used to set up a event processor barrier over the created event processors.
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public final EventHandlerGroup<T> handleEventsWithOrderedWorkerPool(final WorkHandler<? super T>... handlers)
+    {
+        return disruptor.createOrderedWorkerPool(sequences, handlers);
+    }
+
+    /**
+     * <p>Set up a work stealing worker pool to handle events from the ring buffer. The worker pool will only
+     * process events after every {@link EventProcessor} in this group has processed the event. Each event will be
+     * processed by one of the work handler instances.</p>
+     *
+     * <p>This method is generally used as part of a chain. For example if the handler <code>A</code> must
+     * process events before the worker pool with handlers <code>B, C</code>:</p>
+     *
+     * <pre><code>dw.after(A).handleEventsWithWorkStealingPool(16, B, C);</code></pre>
+     *
+     * @param blockSize the number of consecutive sequences owned by a worker at a time.
+     * @param handlers  the work handlers that will process events. Each work handler instance will provide an extra thread in the worker pool.
+     * @return a {@link EventHandlerGroup} that can be used to set up a event processor barrier over the created event processors.
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public final EventHandlerGroup<T> handleEventsWithWorkStealingPool(final int blockSize, final WorkHandler<? super T>... handlers)
+    {
+        return disruptor.createWorkStealingPool(sequences, blockSize, handlers);
+    }
+
     /**
      * Create a dependency barrier for the processors in this group.
      * This allows custom event processors to have dependencies on
@@ -19,6 +19,7 @@ import com.lmax.disruptor.BatchEventProcessor;
 import com.lmax.disruptor.EventHandler;
 import com.lmax.disruptor.EventProcessor;
 import com.lmax.disruptor.ExceptionHandler;
+import com.lmax.disruptor.PartitionedEventProcessor;
 
 /**
  * A support class used as part of setting an exception handler for a specific event handler.
@@ -54,6 +55,11 @@ public class ExceptionHandlerSetting<T>
             ((BatchEventProcessor<T>) eventProcessor).setExceptionHandler(exceptionHandler);
             consumerRepository.getBarrierFor(eventHandler).alert();
         }
+        else if (eventProcessor instanceof PartitionedEventProcessor)
+        {
+            ((PartitionedEventProcessor<T>) eventProcessor).setExceptionHandler(exceptionHandler);
+            consumerRepository.getBarrierFor(eventHandler).alert();
+        }
         else
         {
             throw new RuntimeException(
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.dsl;
+
+import com.lmax.disruptor.EventFactory;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.ExceptionHandler;
+import com.lmax.disruptor.FanInEventProcessor;
+import com.lmax.disruptor.ProducerWaitStrategy;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.SleepingProducerWaitStrategy;
+import com.lmax.disruptor.TimeoutException;
+import com.lmax.disruptor.YieldingWaitStrategy;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>A DSL-style API for merging events from many publishers into one event handler, giving each publisher
+ * its own single producer ring buffer and consuming them all with a {@link FanInEventProcessor}.</p>
+ *
+ * <pre>
+ * <code>FanInDisruptor&lt;MyEvent&gt; disruptor = new FanInDisruptor&lt;MyEvent&gt;(MyEvent.FACTORY, 1024, threadFactory);
+ * disruptor.handleEventsWith(handler);
+ * RingBuffer&lt;MyEvent&gt; producer1 = disruptor.addProducer();
+ * RingBuffer&lt;MyEvent&gt; producer2 = disruptor.addProducer();
+ * disruptor.start();</code>
+ * </pre>
+ *
+ * <p>Producers added with {@link #addProducer(int, int)} act as priority lanes, for example a high priority lane
+ * for cancels that overtakes a bulk lane of orders, see {@link FanInEventProcessor}.</p>
+ *
+ * <p>Each ring buffer returned by {@link #addProducer()} must only be published to by a single thread.  Producers
+ * can be added and removed after the disruptor has started.</p>
+ *
+ * @param <T> the type of event used.
+ */
+public class FanInDisruptor<T> {
+    private final EventFactory<T> eventFactory;
+    private final int ringBufferSize;
+    private final ProducerWaitStrategy producerWaitStrategy;
+    private final Executor executor;
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private FanInEventProcessor<T> eventProcessor;
+
+    /**
+     * Create a new FanInDisruptor.
+     *
+     * @param eventFactory   the factory to create events in the ring buffers.
+     * @param ringBufferSize the size of each producer's ring buffer.
+     * @param threadFactory  a {@link ThreadFactory} to create the thread for the event processor.
+     */
+    public FanInDisruptor(final EventFactory<T> eventFactory, final int ringBufferSize, final ThreadFactory threadFactory) {
+        this(eventFactory, ringBufferSize, threadFactory, new SleepingProducerWaitStrategy());
+    }
+
+    /**
+     * Create a new FanInDisruptor.
+     *
+     * @param eventFactory         the factory to create events in the ring buffers.
+     * @param ringBufferSize       the size of each producer's ring buffer.
+     * @param threadFactory        a {@link ThreadFactory} to create the thread for the event processor.
+     * @param producerWaitStrategy used by producers waiting for their ring buffer to free up capacity.
+     */
+    public FanInDisruptor(final EventFactory<T> eventFactory, final int ringBufferSize, final ThreadFactory threadFactory,
+        final ProducerWaitStrategy producerWaitStrategy) {
+        this.eventFactory = eventFactory;
+        this.ringBufferSize = ringBufferSize;
+        this.producerWaitStrategy = producerWaitStrategy;
+        this.executor = new BasicExecutor(threadFactory);
+    }
+
+    /**
+     * Set up the event handler that will process the events of every producer.  This must be called once
+     * before any producers are added.
+     *
+     * @param handler the event handler.
+     * @return the event processor merging the producers' ring buffers.
+     */
+    public FanInEventProcessor<T> handleEventsWith(final EventHandler<? super T> handler) {
+        checkNotStarted();
+        if (null != eventProcessor) {
+            throw new IllegalStateException("An event handler has already been set.");
+        }
+        eventProcessor = new FanInEventProcessor<>(handler);
+        return eventProcessor;
+    }
+
+    /**
+     * Specify an exception handler to be used for the event handler.
+     *
+     * @param exceptionHandler the exception handler to use.
+     */
+    public void handleExceptionsWith(final ExceptionHandler<? super T> exceptionHandler) {
+        checkHasEventProcessor().setExceptionHandler(exceptionHandler);
+    }
+
+    /**
+     * Add a producer that gets a fair share of the event handler.
+     *
+     * @return the ring buffer for the producer to publish to.
+     */
+    public RingBuffer<T> addProducer() {
+        return addProducer(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Add a producer with a weighted share of the event handler.
+     *
+     * @param weight the maximum number of events to process from the producer at a time.
+     * @return the ring buffer for the producer to publish to.
+     * @see FanInEventProcessor#addInput(RingBuffer, int)
+     */
+    public RingBuffer<T> addProducer(final int weight) {
+        return addProducer(weight, 0);
+    }
+
+    /**
+     * Add a producer as a priority lane, served before every producer of a lower priority.
+     *
+     * @param weight   the maximum number of events to process from the producer at a time.
+     * @param priority the priority of the producer, higher values are served first.
+     * @return the ring buffer for the producer to publish to.
+     * @see FanInEventProcessor#addInput(RingBuffer, int, int)
+     */
+    public RingBuffer<T> addProducer(final int weight, final int priority) {
+        final FanInEventProcessor<T> processor = checkHasEventProcessor();
+        // 消费者不会在输入RingBuffer的等待策略上阻塞，使用发布时不需要唤醒的等待策略
+        final RingBuffer<T> ringBuffer = RingBuffer.createSingleProducer(
+            eventFactory, ringBufferSize, new YieldingWaitStrategy(), producerWaitStrategy);
+        processor.addInput(ringBuffer, weight, priority);
+        return ringBuffer;
+    }
+
+    /**
+     * Stop consuming from a producer's ring buffer.
+     *
+     * @param ringBuffer returned from {@link #addProducer()}.
+     * @return <tt>true</tt> if the ring buffer belonged to this disruptor.
+     */
+    public boolean removeProducer(final RingBuffer<T> ringBuffer) {
+        return checkHasEventProcessor().removeInput(ringBuffer);
+    }
+
+    /**
+     * Starts the event processor.  This method must only be called once.
+     */
+    public void start() {
+        final FanInEventProcessor<T> processor = checkHasEventProcessor();
+        if (!started.compareAndSet(false, true)) {
+            throw new IllegalStateException("FanInDisruptor.start() must only be called once.");
+        }
+        executor.execute(processor);
+    }
+
+    /**
+     * Calls {@link com.lmax.disruptor.EventProcessor#halt()} on the event processor.
+     */
+    public void halt() {
+        if (null != eventProcessor) {
+            eventProcessor.halt();
+        }
+    }
+
+    /**
+     * <p>Waits until all events currently published by the producers have been processed and then halts the
+     * processor.  It is critical that publishing has stopped before calling this method, otherwise it may
+     * never return.</p>
+     *
+     * @param timeout  the amount of time to wait for all events to be processed. <code>-1</code> will give an infinite timeout
+     * @param timeUnit the unit the timeOut is specified in
+     * @throws TimeoutException if a timeout occurs before shutdown completes.
+     */
+    public void shutdown(final long timeout, final TimeUnit timeUnit) throws TimeoutException {
+        final long timeOutAt = System.currentTimeMillis() + timeUnit.toMillis(timeout);
+        while (null != eventProcessor && eventProcessor.hasBacklog()) {
+            if (timeout >= 0 && System.currentTimeMillis() > timeOutAt) {
+                throw TimeoutException.INSTANCE;
+            }
+            // Busy spin
+        }
+        halt();
+    }
+
+    /**
+     * @return the event processor merging the producers' ring buffers, or null if no handler has been set.
+     */
+    public FanInEventProcessor<T> getEventProcessor() {
+        return eventProcessor;
+    }
+
+    private FanInEventProcessor<T> checkHasEventProcessor() {
+        if (null == eventProcessor) {
+            throw new IllegalStateException("handleEventsWith must be called first.");
+        }
+        return eventProcessor;
+    }
+
+    private void checkNotStarted() {
+        if (started.get()) {
+            throw new IllegalStateException("The event handler must be set before calling start.");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FanInDisruptor{" +
+            "ringBufferSize=" + ringBufferSize +
+            ", started=" + started +
+            ", executor=" + executor +
+            '}';
+    }
+}
@@ -28,5 +28,14 @@ public enum ProducerType
     /**
      * Create a RingBuffer supporting multiple event publishers to the one RingBuffer
      */
-    MULTI
+    MULTI,
+
+    /**
+     * Create a RingBuffer supporting multiple event publishers to the one RingBuffer, claiming
+     * with an atomic fetch-and-add rather than a compare-and-set loop.  Scales better when many
+     * publishers contend on the cursor.
+     *
+     * @see com.lmax.disruptor.FetchAddMultiProducerSequencer
+     */
+    MULTI_FETCH_ADD
 }
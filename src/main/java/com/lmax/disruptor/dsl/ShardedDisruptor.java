@@ -0,0 +1,266 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.dsl;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.EventFactory;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventTranslator;
+import com.lmax.disruptor.EventTranslatorOneArg;
+import com.lmax.disruptor.EventTranslatorThreeArg;
+import com.lmax.disruptor.EventTranslatorTwoArg;
+import com.lmax.disruptor.ExceptionHandler;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.TimeoutException;
+import com.lmax.disruptor.WaitStrategy;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Spreads publishing over several independent {@link Disruptor}s, each with its own ring buffer, sequencer and
+ * event processor threads, so that throughput is not limited by the cursor of a single ring buffer.</p>
+ *
+ * <p>Every publish takes a routing key, and all events published with equal keys go to the same shard, so the
+ * events for a key are handled in the order they were published.  There is no ordering between shards.</p>
+ *
+ * <pre>
+ * <code>ShardedDisruptor&lt;MyEvent&gt; disruptor = new ShardedDisruptor&lt;MyEvent&gt;(MyEvent.FACTORY, 1024, threadFactory, 4);
+ * disruptor.handleEventsWith(handlerFactory);
+ * disruptor.start();
+ * disruptor.publishEvent(order.getAccountId(), translator, order);</code>
+ * </pre>
+ *
+ * <p>Each shard runs its own instances of the event handlers, created by an {@link EventHandlerFactory}.  More
+ * complex dependency graphs can be set up on each shard through {@link #getShard(int)} before starting.</p>
+ *
+ * @param <T> the type of event used.
+ */
+public class ShardedDisruptor<T> {
+    //每个分片一个BlockingWaitStrategy，避免所有分片的消费者竞争同一把锁
+    private static final WaitStrategyFactory BLOCKING_WAIT_STRATEGY_FACTORY = new WaitStrategyFactory() {
+        @Override
+        public WaitStrategy createWaitStrategy(final int index) {
+            return new BlockingWaitStrategy();
+        }
+    };
+
+    private final Disruptor<T>[] shards;
+
+    /**
+     * Create a new ShardedDisruptor, using {@link ProducerType#MULTI} and a separate {@link BlockingWaitStrategy}
+     * for every shard.
+     *
+     * @param eventFactory   the factory to create events in the ring buffers.
+     * @param ringBufferSize the size of each shard's ring buffer, must be power of 2.
+     * @param threadFactory  a {@link ThreadFactory} to create threads for the processors of every shard.
+     * @param shardCount     the number of shards.
+     */
+    public ShardedDisruptor(final EventFactory<T> eventFactory, final int ringBufferSize,
+                            final ThreadFactory threadFactory, final int shardCount) {
+        this(eventFactory, ringBufferSize, threadFactory, ProducerType.MULTI, BLOCKING_WAIT_STRATEGY_FACTORY, shardCount);
+    }
+
+    /**
+     * Create a new ShardedDisruptor.
+     *
+     * @param eventFactory   the factory to create events in the ring buffers.
+     * @param ringBufferSize the size of each shard's ring buffer, must be power of 2.
+     * @param threadFactory  a {@link ThreadFactory} to create threads for the processors of every shard.
+     * @param producerType        the claim strategy to use for each shard's ring buffer.
+     * @param waitStrategyFactory creates the wait strategy of each shard's ring buffer, it should return a new
+     *                            instance for every shard.
+     * @param shardCount          the number of shards.
+     */
+    public ShardedDisruptor(final EventFactory<T> eventFactory, final int ringBufferSize,
+                            final ThreadFactory threadFactory, final ProducerType producerType,
+                            final WaitStrategyFactory waitStrategyFactory, final int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must not be less than 1");
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final Disruptor<T>[] shards = new Disruptor[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Disruptor<T>(
+                eventFactory, ringBufferSize, threadFactory, producerType, waitStrategyFactory.createWaitStrategy(i));
+        }
+        this.shards = shards;
+    }
+
+    /**
+     * Set up event handlers on every shard, each shard getting its own handler from each factory.  The handlers
+     * created for a shard process its events in parallel, as with {@link Disruptor#handleEventsWith(EventHandler[])}.
+     *
+     * @param handlerFactories the factories used to create the event handlers of each shard.
+     */
+    @SuppressWarnings("varargs")
+    @SafeVarargs
+    public final void handleEventsWith(final EventHandlerFactory<T>... handlerFactories) {
+        for (int i = 0; i < shards.length; i++) {
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            final EventHandler<? super T>[] handlers = new EventHandler[handlerFactories.length];
+            for (int j = 0; j < handlerFactories.length; j++) {
+                handlers[j] = handlerFactories[j].createEventHandler(i);
+            }
+            shards[i].handleEventsWith(handlers);
+        }
+    }
+
+    /**
+     * Specify an exception handler to be used for event handlers and worker pools created by every shard.
+     *
+     * @param exceptionHandler the exception handler to use.
+     * @see Disruptor#setDefaultExceptionHandler(ExceptionHandler)
+     */
+    public void setDefaultExceptionHandler(final ExceptionHandler<? super T> exceptionHandler) {
+        for (final Disruptor<T> shard : shards) {
+            shard.setDefaultExceptionHandler(exceptionHandler);
+        }
+    }
+
+    /**
+     * Publish an event to the shard selected by the key.
+     *
+     * @param key             the routing key, events with equal keys go to the same shard.
+     * @param eventTranslator the translator that will load data into the event.
+     */
+    public void publishEvent(final Object key, final EventTranslator<T> eventTranslator) {
+        shards[shardFor(key)].publishEvent(eventTranslator);
+    }
+
+    /**
+     * Publish an event to the shard selected by the key.
+     *
+     * @param <A> Class of the user supplied argument.
+     * @param key             the routing key, events with equal keys go to the same shard.
+     * @param eventTranslator the translator that will load data into the event.
+     * @param arg             A single argument to load into the event
+     */
+    public <A> void publishEvent(final Object key, final EventTranslatorOneArg<T, A> eventTranslator, final A arg) {
+        shards[shardFor(key)].publishEvent(eventTranslator, arg);
+    }
+
+    /**
+     * Publish an event to the shard selected by the key.
+     *
+     * @param <A> Class of the user supplied argument.
+     * @param <B> Class of the user supplied argument.
+     * @param key             the routing key, events with equal keys go to the same shard.
+     * @param eventTranslator the translator that will load data into the event.
+     * @param arg0            The first argument to load into the event
+     * @param arg1            The second argument to load into the event
+     */
+    public <A, B> void publishEvent(final Object key, final EventTranslatorTwoArg<T, A, B> eventTranslator,
+                                    final A arg0, final B arg1) {
+        shards[shardFor(key)].publishEvent(eventTranslator, arg0, arg1);
+    }
+
+    /**
+     * Publish an event to the shard selected by the key.
+     *
+     * @param <A> Class of the user supplied argument.
+     * @param <B> Class of the user supplied argument.
+     * @param <C> Class of the user supplied argument.
+     * @param key             the routing key, events with equal keys go to the same shard.
+     * @param eventTranslator the translator that will load data into the event.
+     * @param arg0            The first argument to load into the event
+     * @param arg1            The second argument to load into the event
+     * @param arg2            The third argument to load into the event
+     */
+    public <A, B, C> void publishEvent(final Object key, final EventTranslatorThreeArg<T, A, B, C> eventTranslator,
+                                       final A arg0, final B arg1, final C arg2) {
+        shards[shardFor(key)].publishEvent(eventTranslator, arg0, arg1, arg2);
+    }
+
+    /**
+     * Get the index of the shard that events published with the key go to.
+     *
+     * @param key the routing key.
+     * @return the index of the shard.
+     */
+    public int shardFor(final Object key) {
+        //混合高位，避免hashCode只在高位不同的key集中到同一个分片
+        final int h = key.hashCode();
+        return ((h ^ (h >>> 16)) & Integer.MAX_VALUE) % shards.length;
+    }
+
+    /**
+     * Starts the event processors of every shard.
+     *
+     * @see Disruptor#start()
+     */
+    public void start() {
+        for (final Disruptor<T> shard : shards) {
+            shard.start();
+        }
+    }
+
+    /**
+     * Calls {@link com.lmax.disruptor.EventProcessor#halt()} on the event processors of every shard.
+     */
+    public void halt() {
+        for (final Disruptor<T> shard : shards) {
+            shard.halt();
+        }
+    }
+
+    /**
+     * Waits until all events currently in every shard have been processed and then halts the processors.
+     * Publishing must have stopped before calling this method, otherwise it may never return.
+     *
+     * @see Disruptor#shutdown()
+     */
+    public void shutdown() {
+        for (final Disruptor<T> shard : shards) {
+            shard.shutdown();
+        }
+    }
+
+    /**
+     * Waits until all events currently in every shard have been processed and then halts the processors.
+     *
+     * @param timeout  the amount of time to wait for all shards, <code>-1</code> will give an infinite timeout
+     * @param timeUnit the unit the timeOut is specified in
+     * @throws TimeoutException if a timeout occurs before shutdown completes.
+     * @see Disruptor#shutdown(long, TimeUnit)
+     */
+    public void shutdown(final long timeout, final TimeUnit timeUnit) throws TimeoutException {
+        final long timeOutAt = System.currentTimeMillis() + timeUnit.toMillis(timeout);
+        for (final Disruptor<T> shard : shards) {
+            //所有分片共享同一个截止时间
+            long remaining = timeout < 0 ? -1 : Math.max(0, timeOutAt - System.currentTimeMillis());
+            shard.shutdown(remaining, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Get a shard, e.g. to set up a more complex dependency graph on it before starting.
+     *
+     * @param index the index of the shard.
+     * @return the Disruptor of the shard.
+     */
+    public Disruptor<T> getShard(final int index) {
+        return shards[index];
+    }
+
+    /**
+     * @return the number of shards.
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.dsl;
+
+import com.lmax.disruptor.WaitStrategy;
+
+/**
+ * A factory interface to create a wait strategy for each of several independent ring buffers, such as the shards
+ * of a {@link ShardedDisruptor}, so that consumers of different ring buffers do not contend on the same lock or
+ * condition of a shared strategy.
+ */
+public interface WaitStrategyFactory
+{
+    /**
+     * Create the wait strategy for one of the ring buffers.
+     *
+     * @param index the index of the ring buffer, starting from 0.
+     * @return a new wait strategy.
+     */
+    WaitStrategy createWaitStrategy(int index);
+}
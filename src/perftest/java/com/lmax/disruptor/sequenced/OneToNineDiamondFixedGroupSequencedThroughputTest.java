@@ -0,0 +1,41 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.sequenced;
+
+import com.lmax.disruptor.FixedSequenceGroup;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.support.FizzBuzzEvent;
+
+/**
+ * The same eight way diamond as {@link OneToNineDiamondSequencedThroughputTest}, with the join waiting on a
+ * {@link FixedSequenceGroup} that reads every enricher sequence on each spin, as a baseline for the cached
+ * minimum.
+ */
+public final class OneToNineDiamondFixedGroupSequencedThroughputTest extends OneToNineDiamondSequencedThroughputTest
+{
+    @Override
+    protected SequenceBarrier newJoinBarrier(final RingBuffer<FizzBuzzEvent> ringBuffer, final Sequence[] enricherSequences)
+    {
+        return ringBuffer.newBarrier(new FixedSequenceGroup(enricherSequences));
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        new OneToNineDiamondFixedGroupSequencedThroughputTest().testImplementations();
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.sequenced;
+
+import static com.lmax.disruptor.RingBuffer.createSingleProducer;
+import static com.lmax.disruptor.support.PerfTestUtil.failIfNot;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.lmax.disruptor.*;
+import com.lmax.disruptor.support.FizzBuzzEvent;
+import com.lmax.disruptor.support.FizzBuzzEventHandler;
+import com.lmax.disruptor.support.FizzBuzzStep;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+
+/**
+ * <pre>
+ * Produce an event replicated to eight event processors and fold back to a single ninth event processor.
+ * Half of the processors mark fizz and half mark buzz, so the join has to wait for all eight.
+ *
+ *           +-----+
+ *    +----->| EP1 |------+
+ *    |      +-----+      |
+ *    |        ...        v
+ * +----+              +-----+
+ * | P1 |              | EP9 |
+ * +----+              +-----+
+ *    |        ...        ^
+ *    |      +-----+      |
+ *    +----->| EP8 |------+
+ *           +-----+
+ *
+ * Disruptor:
+ * ==========
+ *                    track to prevent wrap
+ *              +-------------------------------+
+ *              |                               |
+ *              |                               v
+ * +----+    +====+               +=====+    +-----+
+ * | P1 |--->| RB |<--------------| SB2 |<---| EP9 |
+ * +----+    +====+               +=====+    +-----+
+ *      claim   ^  get               |   waitFor
+ *              |                    |
+ *           +=====+    +-----+      |
+ *           | SB1 |<---| EP1 |<-----+
+ *           +=====+    +-----+      |
+ *              ^         ...        |
+ *              |       +-----+      |
+ *              +-------| EP8 |<-----+
+ *             waitFor  +-----+
+ *
+ * P1  - Publisher 1
+ * RB  - RingBuffer
+ * SB1 - SequenceBarrier 1
+ * EP1 - EventProcessor 1
+ * EP8 - EventProcessor 8
+ * SB2 - SequenceBarrier 2, tracking the minimum of EP1 to EP8 through a {@link CachedMinimumSequenceGroup}
+ * EP9 - EventProcessor 9
+ *
+ * </pre>
+ *
+ * @see OneToNineDiamondFixedGroupSequencedThroughputTest
+ */
+public class OneToNineDiamondSequencedThroughputTest extends AbstractPerfTestDisruptor
+{
+    private static final int NUM_ENRICHERS = 8;
+    private static final int NUM_EVENT_PROCESSORS = NUM_ENRICHERS + 1;
+    private static final int BUFFER_SIZE = 1024 * 8;
+    private static final long ITERATIONS = 1000L * 1000L * 100L;
+    private final ExecutorService executor = Executors.newFixedThreadPool(NUM_EVENT_PROCESSORS, DaemonThreadFactory.INSTANCE);
+
+    private final long expectedResult;
+
+    {
+        long temp = 0L;
+
+        for (long i = 0; i < ITERATIONS; i++)
+        {
+            boolean fizz = 0 == (i % 3L);
+            boolean buzz = 0 == (i % 5L);
+
+            if (fizz && buzz)
+            {
+                ++temp;
+            }
+        }
+
+        expectedResult = temp;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////
+
+    private final RingBuffer<FizzBuzzEvent> ringBuffer =
+        createSingleProducer(FizzBuzzEvent.EVENT_FACTORY, BUFFER_SIZE, new YieldingWaitStrategy());
+
+    private final SequenceBarrier sequenceBarrier = ringBuffer.newBarrier();
+
+    @SuppressWarnings("unchecked")
+    private final BatchEventProcessor<FizzBuzzEvent>[] enrichers = new BatchEventProcessor[NUM_ENRICHERS];
+    private final Sequence[] enricherSequences = new Sequence[NUM_ENRICHERS];
+
+    {
+        for (int i = 0; i < NUM_ENRICHERS; i++)
+        {
+            FizzBuzzStep step = i % 2 == 0 ? FizzBuzzStep.FIZZ : FizzBuzzStep.BUZZ;
+            enrichers[i] = new BatchEventProcessor<FizzBuzzEvent>(
+                ringBuffer, sequenceBarrier, new FizzBuzzEventHandler(step));
+            enricherSequences[i] = enrichers[i].getSequence();
+        }
+    }
+
+    private final SequenceBarrier sequenceBarrierFizzBuzz = newJoinBarrier(ringBuffer, enricherSequences);
+
+    private final FizzBuzzEventHandler fizzBuzzHandler = new FizzBuzzEventHandler(FizzBuzzStep.FIZZ_BUZZ);
+    private final BatchEventProcessor<FizzBuzzEvent> batchProcessorFizzBuzz =
+        new BatchEventProcessor<FizzBuzzEvent>(ringBuffer, sequenceBarrierFizzBuzz, fizzBuzzHandler);
+
+    {
+        ringBuffer.addGatingSequences(batchProcessorFizzBuzz.getSequence());
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Create the barrier the join waits on.
+     *
+     * @param ringBuffer        the ring buffer being processed.
+     * @param enricherSequences the sequences of the processors being joined.
+     * @return the barrier for the join.
+     */
+    protected SequenceBarrier newJoinBarrier(final RingBuffer<FizzBuzzEvent> ringBuffer, final Sequence[] enricherSequences)
+    {
+        return ringBuffer.newBarrier(enricherSequences);
+    }
+
+    @Override
+    protected int getRequiredProcessorCount()
+    {
+        return NUM_EVENT_PROCESSORS + 1;
+    }
+
+    @Override
+    protected PerfTestContext runDisruptorPass() throws Exception
+    {
+        PerfTestContext perfTestContext = new PerfTestContext();
+        CountDownLatch latch = new CountDownLatch(1);
+        fizzBuzzHandler.reset(latch, batchProcessorFizzBuzz.getSequence().get() + ITERATIONS);
+
+        for (BatchEventProcessor<FizzBuzzEvent> enricher : enrichers)
+        {
+            executor.submit(enricher);
+        }
+        executor.submit(batchProcessorFizzBuzz);
+
+        long start = System.currentTimeMillis();
+
+        for (long i = 0; i < ITERATIONS; i++)
+        {
+            long sequence = ringBuffer.next();
+            ringBuffer.get(sequence).setValue(i);
+            ringBuffer.publish(sequence);
+        }
+
+        latch.await();
+        perfTestContext.setDisruptorOps((ITERATIONS * 1000L) / (System.currentTimeMillis() - start));
+
+        for (BatchEventProcessor<FizzBuzzEvent> enricher : enrichers)
+        {
+            enricher.halt();
+        }
+        batchProcessorFizzBuzz.halt();
+
+        failIfNot(expectedResult, fizzBuzzHandler.getFizzBuzzCounter());
+
+        return perfTestContext;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        new OneToNineDiamondSequencedThroughputTest().testImplementations();
+    }
+}
@@ -24,7 +24,6 @@ import java.util.concurrent.Future;
 import com.lmax.disruptor.*;
 import com.lmax.disruptor.support.LongArrayEventHandler;
 import com.lmax.disruptor.support.LongArrayPublisher;
-import com.lmax.disruptor.support.MultiBufferBatchEventProcessor;
 import com.lmax.disruptor.util.DaemonThreadFactory;
 
 /**
@@ -73,11 +72,10 @@ public final class ThreeToThreeSequencedThroughputTest extends AbstractPerfTestD
 
     @SuppressWarnings("unchecked")
     private final RingBuffer<long[]>[] buffers = new RingBuffer[NUM_PUBLISHERS];
-    private final SequenceBarrier[] barriers = new SequenceBarrier[NUM_PUBLISHERS];
     private final LongArrayPublisher[] valuePublishers = new LongArrayPublisher[NUM_PUBLISHERS];
 
     private final LongArrayEventHandler handler = new LongArrayEventHandler();
-    private final MultiBufferBatchEventProcessor<long[]> batchEventProcessor;
+    private final FanInEventProcessor<long[]> batchEventProcessor = new FanInEventProcessor<long[]>(handler);
 
     private static final EventFactory<long[]> FACTORY = new EventFactory<long[]>()
     {
@@ -92,7 +90,6 @@ public final class ThreeToThreeSequencedThroughputTest extends AbstractPerfTestD
         for (int i = 0; i < NUM_PUBLISHERS; i++)
         {
             buffers[i] = RingBuffer.createSingleProducer(FACTORY, BUFFER_SIZE, new YieldingWaitStrategy());
-            barriers[i] = buffers[i].newBarrier();
             valuePublishers[i] = new LongArrayPublisher(
                 cyclicBarrier,
                 buffers[i],
@@ -100,11 +97,9 @@ public final class ThreeToThreeSequencedThroughputTest extends AbstractPerfTestD
                 ARRAY_SIZE);
         }
 
-        batchEventProcessor = new MultiBufferBatchEventProcessor<long[]>(buffers, barriers, handler);
-
         for (int i = 0; i < NUM_PUBLISHERS; i++)
         {
-            buffers[i].addGatingSequences(batchEventProcessor.getSequences()[i]);
+            batchEventProcessor.addInput(buffers[i]);
         }
     }
 
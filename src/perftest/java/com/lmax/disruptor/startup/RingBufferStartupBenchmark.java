@@ -0,0 +1,89 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.startup;
+
+import com.lmax.disruptor.AvailabilityTracking;
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.EventFactory;
+import com.lmax.disruptor.Preallocation;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.SleepingProducerWaitStrategy;
+import com.lmax.disruptor.dsl.ProducerType;
+
+/**
+ * Measures how long it takes to construct a ring buffer with each {@link Preallocation}, and for the lazy
+ * preallocation how long the first lap takes to fill the slots it skipped.
+ */
+public final class RingBufferStartupBenchmark
+{
+    private static final int[] BUFFER_SIZES = {1 << 16, 1 << 20, 1 << 22};
+    private static final int RUNS = 5;
+
+    private static final EventFactory<PayloadEvent> FACTORY = new EventFactory<PayloadEvent>()
+    {
+        @Override
+        public PayloadEvent newInstance()
+        {
+            return new PayloadEvent();
+        }
+    };
+
+    public static void main(String[] args)
+    {
+        for (int bufferSize : BUFFER_SIZES)
+        {
+            for (Preallocation preallocation : Preallocation.values())
+            {
+                for (int run = 0; run < RUNS; run++)
+                {
+                    System.gc();
+
+                    long start = System.nanoTime();
+                    RingBuffer<PayloadEvent> ringBuffer = RingBuffer.create(
+                        ProducerType.SINGLE, FACTORY, bufferSize, new BlockingWaitStrategy(),
+                        new SleepingProducerWaitStrategy(), AvailabilityTracking.FLAGS, preallocation);
+                    long constructed = System.nanoTime();
+                    long checksum = touchEverySlot(ringBuffer);
+                    long firstLap = System.nanoTime();
+
+                    System.out.format(
+                        "Size: %,d, Preallocation: %s, Run: %d, Construction: %,dus, First lap: %,dus, Checksum: %d%n",
+                        bufferSize, preallocation, run,
+                        (constructed - start) / 1000L, (firstLap - constructed) / 1000L, checksum);
+                }
+            }
+        }
+    }
+
+    private static long touchEverySlot(final RingBuffer<PayloadEvent> ringBuffer)
+    {
+        long checksum = 0;
+        for (long sequence = 0, size = ringBuffer.getBufferSize(); sequence < size; sequence++)
+        {
+            PayloadEvent event = ringBuffer.get(sequence);
+            event.value = sequence;
+            checksum += event.values.length + event.text.capacity();
+        }
+        return checksum;
+    }
+
+    private static final class PayloadEvent
+    {
+        private long value;
+        private final long[] values = new long[8];
+        private final StringBuilder text = new StringBuilder(32);
+    }
+}
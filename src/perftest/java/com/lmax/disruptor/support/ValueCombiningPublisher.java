@@ -0,0 +1,62 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.support;
+
+import java.util.concurrent.CyclicBarrier;
+
+import com.lmax.disruptor.EventTranslator;
+import com.lmax.disruptor.FlatCombiningPublisher;
+
+public final class ValueCombiningPublisher implements Runnable, EventTranslator<ValueEvent>
+{
+    private final CyclicBarrier cyclicBarrier;
+    private final FlatCombiningPublisher<ValueEvent> publisher;
+    private final long iterations;
+    private long value;
+
+    public ValueCombiningPublisher(
+        final CyclicBarrier cyclicBarrier, final FlatCombiningPublisher<ValueEvent> publisher, final long iterations)
+    {
+        this.cyclicBarrier = cyclicBarrier;
+        this.publisher = publisher;
+        this.iterations = iterations;
+    }
+
+    @Override
+    public void run()
+    {
+        try
+        {
+            cyclicBarrier.await();
+
+            for (long i = 0; i < iterations; i++)
+            {
+                value = i;
+                publisher.publishEvent(this);
+            }
+        }
+        catch (Exception ex)
+        {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @Override
+    public void translateTo(final ValueEvent event, final long sequence)
+    {
+        event.setValue(value);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.support;
+
+import java.util.concurrent.CyclicBarrier;
+
+import com.lmax.disruptor.ClaimReservation;
+import com.lmax.disruptor.EventTranslator;
+import com.lmax.disruptor.RingBuffer;
+
+public final class ValueReservationPublisher implements Runnable
+{
+    public static final EventTranslator<ValueEvent> TOMBSTONE_TRANSLATOR = new EventTranslator<ValueEvent>()
+    {
+        @Override
+        public void translateTo(final ValueEvent event, final long sequence)
+        {
+            event.setValue(0L);
+        }
+    };
+
+    private final CyclicBarrier cyclicBarrier;
+    private final ClaimReservation<ValueEvent> reservation;
+    private final long iterations;
+
+    public ValueReservationPublisher(
+        final CyclicBarrier cyclicBarrier,
+        final RingBuffer<ValueEvent> ringBuffer,
+        final long iterations,
+        final int reservationSize)
+    {
+        this.cyclicBarrier = cyclicBarrier;
+        this.reservation = ringBuffer.newClaimReservation(reservationSize, TOMBSTONE_TRANSLATOR);
+        this.iterations = iterations;
+    }
+
+    @Override
+    public void run()
+    {
+        try
+        {
+            cyclicBarrier.await();
+
+            for (long i = 0; i < iterations; i++)
+            {
+                long sequence = reservation.next();
+                ValueEvent event = reservation.get(sequence);
+                event.setValue(i);
+                reservation.publish(sequence);
+            }
+
+            reservation.flush();
+        }
+        catch (Exception ex)
+        {
+            throw new RuntimeException(ex);
+        }
+    }
+}
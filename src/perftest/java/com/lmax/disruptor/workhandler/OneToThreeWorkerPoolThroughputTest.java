@@ -29,9 +29,14 @@ import com.lmax.disruptor.support.ValueEvent;
 import com.lmax.disruptor.util.DaemonThreadFactory;
 import com.lmax.disruptor.util.PaddedLong;
 
-public final class OneToThreeWorkerPoolThroughputTest
+/**
+ * One publisher feeding a pool of three workers, which claim blocks of up to {@link #CLAIM_BATCH_SIZE} events at
+ * a time from the shared work sequence.
+ */
+public class OneToThreeWorkerPoolThroughputTest
     extends AbstractPerfTestDisruptor
 {
+    protected static final int CLAIM_BATCH_SIZE = 64;
     private static final int NUM_WORKERS = 3;
     private static final int BUFFER_SIZE = 1024 * 8;
     private static final long ITERATIONS = 1000L * 1000L * 100L;
@@ -83,9 +88,15 @@ public final class OneToThreeWorkerPoolThroughputTest
             handlers);
 
     {
+        workerPool.setClaimBatchSize(getClaimBatchSize());
         ringBuffer.addGatingSequences(workerPool.getWorkerSequences());
     }
 
+    protected int getClaimBatchSize()
+    {
+        return CLAIM_BATCH_SIZE;
+    }
+
     ///////////////////////////////////////////////////////////////////////////////////////////////
 
     @Override
@@ -47,9 +47,12 @@ import com.lmax.disruptor.util.DaemonThreadFactory;
  * WP1 - EventProcessor 1
  * WP2 - EventProcessor 2
  * </pre>
+ *
+ * The work processors claim blocks of up to {@link #CLAIM_BATCH_SIZE} events at a time from the shared work sequence.
  */
-public final class TwoToTwoWorkProcessorThroughputTest extends AbstractPerfTestDisruptor
+public class TwoToTwoWorkProcessorThroughputTest extends AbstractPerfTestDisruptor
 {
+    protected static final int CLAIM_BATCH_SIZE = 64;
     private static final int NUM_PUBLISHERS = 2;
     private static final int BUFFER_SIZE = 1024 * 64;
     private static final long ITERATIONS = 1000L * 1000L * 1L;
@@ -83,6 +86,8 @@ public final class TwoToTwoWorkProcessorThroughputTest extends AbstractPerfTestD
             ringBuffer, sequenceBarrier,
             handlers[1], new IgnoreExceptionHandler(),
             workSequence);
+        workProcessors[0].setClaimBatchSize(getClaimBatchSize());
+        workProcessors[1].setClaimBatchSize(getClaimBatchSize());
     }
 
     private final ValuePublisher[] valuePublishers = new ValuePublisher[NUM_PUBLISHERS];
@@ -98,6 +103,11 @@ public final class TwoToTwoWorkProcessorThroughputTest extends AbstractPerfTestD
 
     ///////////////////////////////////////////////////////////////////////////////////////////////
 
+    protected int getClaimBatchSize()
+    {
+        return CLAIM_BATCH_SIZE;
+    }
+
     @Override
     protected int getRequiredProcessorCount()
     {
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2012 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class AvailabilityBufferTest
+{
+    private final AvailabilityTracking availabilityTracking;
+    private final int bufferSize;
+    private final AvailabilityBuffer availableBuffer;
+
+    public AvailabilityBufferTest(AvailabilityTracking availabilityTracking, int bufferSize)
+    {
+        this.availabilityTracking = availabilityTracking;
+        this.bufferSize = bufferSize;
+        this.availableBuffer = AvailabilityBuffer.newInstance(availabilityTracking, bufferSize);
+    }
+
+    @Parameters
+    public static Collection<Object[]> generateData()
+    {
+        Collection<Object[]> data = new ArrayList<Object[]>();
+        for (AvailabilityTracking availabilityTracking : AvailabilityTracking.values())
+        {
+            for (int bufferSize : new int[] {8, 64, 256})
+            {
+                data.add(new Object[] {availabilityTracking, bufferSize});
+            }
+        }
+        return data;
+    }
+
+    @Test
+    public void shouldOnlyAllowMessagesToBeAvailableIfSpecificallyPublished() throws Exception
+    {
+        availableBuffer.setAvailable(3);
+        availableBuffer.setAvailable(5);
+
+        assertThat(availableBuffer.isAvailable(0), is(false));
+        assertThat(availableBuffer.isAvailable(2), is(false));
+        assertThat(availableBuffer.isAvailable(3), is(true));
+        assertThat(availableBuffer.isAvailable(4), is(false));
+        assertThat(availableBuffer.isAvailable(5), is(true));
+        assertThat(availableBuffer.isAvailable(6), is(false));
+    }
+
+    @Test
+    public void shouldStopAtFirstUnpublishedSequence() throws Exception
+    {
+        long gap = bufferSize - 2;
+        availableBuffer.setAvailable(0, gap - 1);
+        availableBuffer.setAvailable(gap + 1);
+
+        assertThat(availableBuffer.getHighestPublishedSequence(0, bufferSize - 1), is(gap - 1));
+        assertThat(availableBuffer.getHighestPublishedSequence(gap + 1, gap + 1), is(gap + 1));
+        assertThat(availableBuffer.getHighestPublishedSequence(gap, bufferSize - 1), is(gap - 1));
+    }
+
+    @Test
+    public void shouldPublishRangeAcrossTheEndOfTheBuffer() throws Exception
+    {
+        long lo = bufferSize - 3;
+        long hi = bufferSize + 2;
+        availableBuffer.setAvailable(0, lo - 1);
+        availableBuffer.setAvailable(lo, hi);
+
+        for (long sequence = lo; sequence <= hi; sequence++)
+        {
+            assertThat(availableBuffer.isAvailable(sequence), is(true));
+        }
+        assertThat(availableBuffer.isAvailable(hi + 1), is(false));
+        assertThat(availableBuffer.getHighestPublishedSequence(lo, hi + 1), is(hi));
+    }
+
+    @Test
+    public void shouldOnlyReportPublishedSequencesOnLaterLaps() throws Exception
+    {
+        for (int lap = 0; lap < 3; lap++)
+        {
+            long first = (long) lap * bufferSize;
+            availableBuffer.setAvailable(first + 1, first + bufferSize - 1);
+
+            assertThat(availableBuffer.isAvailable(first), is(false));
+            assertThat(availableBuffer.isAvailable(first + 1), is(true));
+            assertThat(availableBuffer.getHighestPublishedSequence(first, first + bufferSize - 1), is(first - 1));
+
+            availableBuffer.setAvailable(first);
+
+            assertThat(availableBuffer.getHighestPublishedSequence(first, first + bufferSize), is(first + bufferSize - 1));
+        }
+    }
+
+    @Test
+    public void shouldStartWithEverySequenceUpToThePublishedSequenceAvailable() throws Exception
+    {
+        long published = 3L * bufferSize + 5;
+        AvailabilityBuffer resizedBuffer = AvailabilityBuffer.newInstance(availabilityTracking, bufferSize, published);
+
+        assertThat(resizedBuffer.isAvailable(published - bufferSize + 1), is(true));
+        assertThat(resizedBuffer.isAvailable(published), is(true));
+        assertThat(resizedBuffer.isAvailable(published + 1), is(false));
+        assertThat(resizedBuffer.getHighestPublishedSequence(published - bufferSize + 1, published + 1), is(published));
+
+        resizedBuffer.setAvailable(published + 1, published + bufferSize);
+
+        assertThat(resizedBuffer.getHighestPublishedSequence(published + 1, published + bufferSize), is(published + bufferSize));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2012 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import com.lmax.disruptor.support.StubEvent;
+
+public class BatchClaimTest
+{
+    private final RingBuffer<StubEvent> ringBuffer = RingBuffer.createMultiProducer(StubEvent.EVENT_FACTORY, 16);
+    private final SequenceBarrier barrier = ringBuffer.newBarrier();
+    private final BatchClaim<StubEvent> batchClaim = ringBuffer.newBatchClaim();
+
+    @Test
+    public void shouldClaimFillAndPublishARange() throws Exception
+    {
+        batchClaim.claim(4);
+
+        assertThat(batchClaim.size(), is(4));
+        assertThat(batchClaim.getSequence(0), is(0L));
+        assertThat(batchClaim.getSequence(3), is(3L));
+        for (int i = 0; i < batchClaim.size(); i++)
+        {
+            assertThat(batchClaim.get(i), sameInstance(ringBuffer.get(i)));
+            batchClaim.get(i).setValue(100 + i);
+        }
+        assertThat(ringBuffer.isPublished(0), is(false));
+
+        batchClaim.publish();
+
+        assertThat(batchClaim.remaining(), is(0));
+        assertThat(barrier.waitFor(0), is(3L));
+        assertThat(ringBuffer.get(3).getValue(), is(103));
+    }
+
+    @Test
+    public void shouldReuseTheClaimForTheNextRange() throws Exception
+    {
+        batchClaim.claim(3).publish();
+        batchClaim.claim(2);
+
+        assertThat(batchClaim.getSequence(0), is(3L));
+        assertThat(batchClaim.size(), is(2));
+
+        batchClaim.publish();
+
+        assertThat(barrier.waitFor(0), is(4L));
+    }
+
+    @Test
+    public void shouldCommitPartOfTheClaim() throws Exception
+    {
+        batchClaim.claim(6);
+
+        batchClaim.commit(2);
+
+        assertThat(batchClaim.remaining(), is(4));
+        assertThat(barrier.waitFor(0), is(1L));
+
+        batchClaim.commit(3);
+        batchClaim.publish();
+
+        assertThat(batchClaim.remaining(), is(0));
+        assertThat(barrier.waitFor(0), is(5L));
+    }
+
+    @Test
+    public void shouldNotTryToClaimWhenFull() throws Exception
+    {
+        ringBuffer.addGatingSequences(new Sequence());
+
+        assertThat(batchClaim.tryClaim(12), is(true));
+        batchClaim.publish();
+
+        assertThat(batchClaim.tryClaim(8), is(false));
+        assertThat(batchClaim.tryClaim(4), is(true));
+        assertThat(batchClaim.getSequence(0), is(12L));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotClaimAgainBeforePublishing() throws Exception
+    {
+        batchClaim.claim(2);
+        batchClaim.commit(1);
+        batchClaim.claim(2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotCommitMoreThanRemains() throws Exception
+    {
+        batchClaim.claim(2);
+        batchClaim.commit(3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotClaimMoreThanTheBufferSize() throws Exception
+    {
+        batchClaim.claim(17);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void shouldNotGetOutsideTheClaim() throws Exception
+    {
+        batchClaim.claim(2);
+        batchClaim.get(2);
+    }
+}
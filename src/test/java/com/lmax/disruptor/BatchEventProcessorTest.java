@@ -188,6 +188,162 @@ public final class BatchEventProcessorTest
         assertEquals(Arrays.asList(3L, 2L, 1L), batchSizes);
     }
 
+    @Test
+    public void shouldPublishProgressAfterEachBatchOfMaxBatchSize()
+        throws Exception
+    {
+        final List<Long> batchSizes = new ArrayList<Long>();
+        final List<Long> sequencesSeen = new ArrayList<Long>();
+        final CountDownLatch eventLatch = new CountDownLatch(5);
+        final Sequence[] processorSequence = new Sequence[1];
+
+        final class ProgressEventHandler
+            implements EventHandler<StubEvent>, BatchStartAware
+        {
+            @Override
+            public void onBatchStart(long batchSize)
+            {
+                batchSizes.add(batchSize);
+            }
+
+            @Override
+            public void onEvent(StubEvent event, long sequence, boolean endOfBatch)
+                throws Exception
+            {
+                sequencesSeen.add(processorSequence[0].get());
+                eventLatch.countDown();
+            }
+        }
+
+        final BatchEventProcessor<StubEvent> batchEventProcessor =
+            new BatchEventProcessor<StubEvent>(ringBuffer, sequenceBarrier, new ProgressEventHandler());
+        batchEventProcessor.setMaxBatchSize(2);
+        processorSequence[0] = batchEventProcessor.getSequence();
+
+        for (int i = 0; i < 5; i++)
+        {
+            ringBuffer.publish(ringBuffer.next());
+        }
+
+        Thread thread = new Thread(batchEventProcessor);
+        thread.start();
+        assertTrue(eventLatch.await(2, TimeUnit.SECONDS));
+
+        batchEventProcessor.halt();
+        thread.join();
+
+        assertEquals(Arrays.asList(2L, 2L, 1L), batchSizes);
+        assertEquals(Arrays.asList(-1L, -1L, 1L, 1L, 3L), sequencesSeen);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectMaxBatchSizeOfZero()
+    {
+        new BatchEventProcessor<StubEvent>(ringBuffer, sequenceBarrier, new ExceptionEventHandler()).setMaxBatchSize(0);
+    }
+
+    @Test
+    public void shouldHandWholeBatchToBatchEventHandler()
+        throws Exception
+    {
+        final RecordingBatchEventHandler eventHandler = new RecordingBatchEventHandler(new CountDownLatch(1), -1L);
+        final BatchEventProcessor<StubEvent> batchEventProcessor =
+            new BatchEventProcessor<StubEvent>(ringBuffer, sequenceBarrier, eventHandler);
+        ringBuffer.addGatingSequences(batchEventProcessor.getSequence());
+
+        for (int i = 0; i < 3; i++)
+        {
+            ringBuffer.publishEvent(StubEvent.TRANSLATOR, i, "");
+        }
+
+        Thread thread = new Thread(batchEventProcessor);
+        thread.start();
+        assertTrue(eventHandler.latch.await(2, TimeUnit.SECONDS));
+
+        batchEventProcessor.halt();
+        thread.join();
+
+        assertEquals(Arrays.asList(0L, 2L), eventHandler.ranges);
+        assertEquals(Arrays.asList(0, 1, 2), eventHandler.values);
+        assertEquals(2L, batchEventProcessor.getSequence().get());
+    }
+
+    @Test
+    public void shouldResumeAfterFailedEventOfBatch()
+        throws Exception
+    {
+        final CountDownLatch exceptionLatch = new CountDownLatch(1);
+        final RecordingBatchEventHandler eventHandler = new RecordingBatchEventHandler(new CountDownLatch(2), 0L);
+        final BatchEventProcessor<StubEvent> batchEventProcessor =
+            new BatchEventProcessor<StubEvent>(ringBuffer, sequenceBarrier, eventHandler);
+        ringBuffer.addGatingSequences(batchEventProcessor.getSequence());
+        final List<Long> failedSequences = new ArrayList<Long>();
+        batchEventProcessor.setExceptionHandler(new LatchExceptionHandler(exceptionLatch)
+        {
+            @Override
+            public void handleEventException(Throwable ex, long sequence, StubEvent event)
+            {
+                failedSequences.add(sequence);
+                super.handleEventException(ex, sequence, event);
+            }
+        });
+
+        for (int i = 0; i < 4; i++)
+        {
+            ringBuffer.publishEvent(StubEvent.TRANSLATOR, i, "");
+        }
+
+        Thread thread = new Thread(batchEventProcessor);
+        thread.start();
+        assertTrue(exceptionLatch.await(2, TimeUnit.SECONDS));
+        assertTrue(eventHandler.latch.await(2, TimeUnit.SECONDS));
+
+        batchEventProcessor.halt();
+        thread.join();
+
+        assertEquals(Arrays.asList(1L), failedSequences);
+        assertEquals(Arrays.asList(0L, 3L, 2L, 3L), eventHandler.ranges);
+        assertEquals(3L, batchEventProcessor.getSequence().get());
+    }
+
+    private static final class RecordingBatchEventHandler implements BatchEventHandler<StubEvent>
+    {
+        private final List<Long> ranges = new ArrayList<Long>();
+        private final List<Integer> values = new ArrayList<Integer>();
+        private final CountDownLatch latch;
+        private final long failAfterSequence;
+
+        RecordingBatchEventHandler(final CountDownLatch latch, final long failAfterSequence)
+        {
+            this.latch = latch;
+            this.failAfterSequence = failAfterSequence;
+        }
+
+        @Override
+        public void onBatch(EventBatch<? extends StubEvent> batch) throws Exception
+        {
+            ranges.add(batch.getFirstSequence());
+            ranges.add(batch.getLastSequence());
+            latch.countDown();
+            for (int i = 0; i < batch.size(); i++)
+            {
+                values.add(batch.get(i).getValue());
+            }
+
+            if (batch.getFirstSequence() <= failAfterSequence)
+            {
+                batch.commit(failAfterSequence);
+                throw new IllegalStateException();
+            }
+        }
+
+        @Override
+        public void onEvent(StubEvent event, long sequence, boolean endOfBatch) throws Exception
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     @Test
     public void shouldAlwaysHalt() throws InterruptedException
     {
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class BlockingProducerWaitStrategyTest
+{
+    private static final int BUFFER_SIZE = 16;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(DaemonThreadFactory.INSTANCE);
+
+    @Test
+    public void shouldWakePublisherWhenConsumerWaitsOnBarrier() throws Exception
+    {
+        final Sequencer sequencer = new MultiProducerSequencer(
+            BUFFER_SIZE, new BlockingWaitStrategy(), new BlockingProducerWaitStrategy(1, TimeUnit.HOURS));
+        final Sequence gatingSequence = new Sequence();
+        final SequenceBarrier barrier = sequencer.newBarrier();
+        sequencer.addGatingSequences(gatingSequence);
+        long sequence = sequencer.next(BUFFER_SIZE);
+        sequencer.publish(sequence - (BUFFER_SIZE - 1), sequence);
+
+        final CountDownLatch doneLatch = new CountDownLatch(1);
+
+        executor.submit(
+            new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    sequencer.publish(sequencer.next());
+                    doneLatch.countDown();
+                }
+            });
+
+        assertThat(doneLatch.await(10, TimeUnit.MILLISECONDS), is(false));
+
+        gatingSequence.set(Sequencer.INITIAL_CURSOR_VALUE + 1L);
+        barrier.waitFor(0);
+
+        assertTrue(doneLatch.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class CachedMinimumSequenceGroupTest
+{
+    @Test
+    public void shouldReturnMinimumOf2Sequences() throws Exception
+    {
+        Sequence sequence1 = new Sequence(34);
+        Sequence sequence2 = new Sequence(47);
+        Sequence group = new CachedMinimumSequenceGroup(new Sequence[]{sequence1, sequence2});
+
+        assertThat(group.get(), is(34L));
+        sequence1.set(35);
+        assertThat(group.get(), is(35L));
+        sequence1.set(48);
+        assertThat(group.get(), is(47L));
+        sequence2.set(50);
+        assertThat(group.get(), is(48L));
+    }
+
+    @Test
+    public void shouldOnlyReadTheSequencesHoldingBackTheMinimum() throws Exception
+    {
+        CountingSequence sequence1 = new CountingSequence(10);
+        CountingSequence sequence2 = new CountingSequence(20);
+        CountingSequence sequence3 = new CountingSequence(30);
+        Sequence group = new CachedMinimumSequenceGroup(new Sequence[]{sequence1, sequence2, sequence3});
+
+        assertThat(group.get(), is(10L));
+        assertThat(group.get(), is(10L));
+        assertThat(sequence1.reads, is(2));
+        assertThat(sequence2.reads, is(1));
+        assertThat(sequence3.reads, is(1));
+
+        sequence1.set(25);
+
+        assertThat(group.get(), is(20L));
+        assertThat(group.get(), is(20L));
+        assertThat(sequence1.reads, is(3));
+        assertThat(sequence2.reads, is(2));
+        assertThat(sequence3.reads, is(1));
+    }
+
+    @Test
+    public void shouldNeverReturnMoreThanTheMinimum() throws Exception
+    {
+        Sequence sequence1 = new Sequence(0);
+        Sequence sequence2 = new Sequence(0);
+        Sequence group = new CachedMinimumSequenceGroup(new Sequence[]{sequence1, sequence2});
+
+        for (long i = 1; i < 100; i++)
+        {
+            if (i % 3 != 0)
+            {
+                sequence1.set(i);
+            }
+            if (i % 2 != 0)
+            {
+                sequence2.set(i);
+            }
+            assertThat(group.get() <= Math.min(sequence1.get(), sequence2.get()), is(true));
+        }
+
+        sequence1.set(100);
+        sequence2.set(100);
+        group.get();
+        assertThat(group.get(), is(100L));
+    }
+
+    private static final class CountingSequence extends Sequence
+    {
+        private int reads;
+
+        CountingSequence(final long initialValue)
+        {
+            super(initialValue);
+        }
+
+        @Override
+        public long get()
+        {
+            reads++;
+            return super.get();
+        }
+    }
+}
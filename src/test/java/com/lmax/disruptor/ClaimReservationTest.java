@@ -0,0 +1,189 @@
+/*
+ * Copyright 2012 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import com.lmax.disruptor.support.StubEvent;
+
+public class ClaimReservationTest
+{
+    private static final int TOMBSTONE = Integer.MIN_VALUE;
+    private static final EventTranslator<StubEvent> TOMBSTONE_TRANSLATOR = new EventTranslator<StubEvent>()
+    {
+        @Override
+        public void translateTo(StubEvent event, long sequence)
+        {
+            event.setValue(TOMBSTONE);
+        }
+    };
+
+    private final RingBuffer<StubEvent> ringBuffer = RingBuffer.createMultiProducer(StubEvent.EVENT_FACTORY, 32);
+    private final SequenceBarrier barrier = ringBuffer.newBarrier();
+
+    @Test
+    public void shouldOnlyClaimFromRingBufferOncePerReservation() throws Exception
+    {
+        ClaimReservation<StubEvent> reservation = ringBuffer.newClaimReservation(8, TOMBSTONE_TRANSLATOR);
+
+        for (int i = 0; i < 8; i++)
+        {
+            assertThat(reservation.next(), is((long) i));
+            assertThat(ringBuffer.getCursor(), is(7L));
+        }
+        assertThat(reservation.remaining(), is(0));
+
+        assertThat(reservation.next(), is(8L));
+        assertThat(ringBuffer.getCursor(), is(15L));
+        assertThat(reservation.remaining(), is(7));
+    }
+
+    @Test
+    public void shouldFillUnusedSequencesWithTombstonesOnFlush() throws Exception
+    {
+        ClaimReservation<StubEvent> reservation = ringBuffer.newClaimReservation(8, TOMBSTONE_TRANSLATOR);
+        publishValue(reservation, 1);
+        publishValue(reservation, 2);
+
+        assertThat(barrier.waitFor(0), is(1L));
+
+        reservation.flush();
+
+        assertThat(reservation.remaining(), is(0));
+        assertThat(barrier.waitFor(0), is(7L));
+        assertThat(ringBuffer.get(0).getValue(), is(1));
+        assertThat(ringBuffer.get(1).getValue(), is(2));
+        for (long sequence = 2; sequence <= 7; sequence++)
+        {
+            assertThat(ringBuffer.get(sequence).getValue(), is(TOMBSTONE));
+        }
+
+        reservation.flush();
+        assertThat(ringBuffer.getCursor(), is(7L));
+        assertThat(reservation.next(), is(8L));
+    }
+
+    @Test
+    public void shouldNotStallConsumersOnceAllReservationsAreFlushed() throws Exception
+    {
+        ClaimReservation<StubEvent> reservation1 = ringBuffer.newClaimReservation(4, TOMBSTONE_TRANSLATOR);
+        ClaimReservation<StubEvent> reservation2 = ringBuffer.newClaimReservation(4, TOMBSTONE_TRANSLATOR);
+
+        publishValue(reservation1, 1);
+        publishValue(reservation2, 2);
+        publishValue(reservation2, 3);
+
+        assertThat(barrier.waitFor(0), is(0L));
+
+        reservation1.flush();
+        assertThat(barrier.waitFor(0), is(5L));
+
+        reservation2.flush();
+        assertThat(barrier.waitFor(0), is(7L));
+        assertThat(ringBuffer.get(4).getValue(), is(2));
+        assertThat(ringBuffer.get(5).getValue(), is(3));
+    }
+
+    @Test
+    public void shouldOnlyFlushWhenRunTwiceWithoutPublishing() throws Exception
+    {
+        ClaimReservation<StubEvent> reservation = ringBuffer.newClaimReservation(8, TOMBSTONE_TRANSLATOR);
+        publishValue(reservation, 1);
+
+        reservation.run();
+        publishValue(reservation, 2);
+        reservation.run();
+        assertThat(reservation.remaining(), is(6));
+        assertThat(barrier.waitFor(0), is(1L));
+
+        reservation.run();
+        assertThat(reservation.remaining(), is(0));
+        assertThat(barrier.waitFor(0), is(7L));
+        assertThat(ringBuffer.get(2).getValue(), is(TOMBSTONE));
+    }
+
+    @Test
+    public void shouldHandOutEachSequenceOnceWhileFlushedFromAnotherThread() throws Exception
+    {
+        final RingBuffer<StubEvent> ringBuffer = RingBuffer.createMultiProducer(StubEvent.EVENT_FACTORY, 1 << 18);
+        final ClaimReservation<StubEvent> reservation = ringBuffer.newClaimReservation(16, TOMBSTONE_TRANSLATOR);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        Thread flusher = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                while (running.get())
+                {
+                    reservation.flush();
+                }
+            }
+        });
+        flusher.start();
+
+        //每个事件后面最多跟着15个tombstone，ring buffer要装得下所有序号
+        final int events = 10000;
+        for (int i = 0; i < events; i++)
+        {
+            publishValue(reservation, i);
+        }
+        running.set(false);
+        flusher.join();
+        reservation.flush();
+
+        int expected = 0;
+        for (long sequence = 0; sequence <= ringBuffer.getCursor(); sequence++)
+        {
+            final int value = ringBuffer.get(sequence).getValue();
+            if (value != TOMBSTONE)
+            {
+                assertThat(value, is(expected++));
+            }
+        }
+        assertThat(expected, is(events));
+        assertThat(ringBuffer.newBarrier().waitFor(0), is(ringBuffer.getCursor()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAllowReservationLargerThanBuffer() throws Exception
+    {
+        ringBuffer.newClaimReservation(64, TOMBSTONE_TRANSLATOR);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAllowEmptyReservation() throws Exception
+    {
+        ringBuffer.newClaimReservation(0, TOMBSTONE_TRANSLATOR);
+    }
+
+    private static void publishValue(final ClaimReservation<StubEvent> reservation, final int value)
+    {
+        reservation.publishEvent(
+            new EventTranslator<StubEvent>()
+            {
+                @Override
+                public void translateTo(StubEvent event, long sequence)
+                {
+                    event.setValue(value);
+                }
+            });
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import com.lmax.disruptor.support.StubEvent;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class CompletionFrontierTest
+{
+    private final RingBuffer<StubEvent> ringBuffer = RingBuffer.createMultiProducer(StubEvent.EVENT_FACTORY, 8);
+    private final Sequence workSequence = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+    private final CompletionFrontier frontier = new CompletionFrontier(ringBuffer, workSequence);
+
+    @Test
+    public void shouldOnlyAdvanceOverContiguousCompletedSequences()
+    {
+        workSequence.set(3L);
+
+        frontier.complete(1L);
+        frontier.complete(3L);
+        assertThat(frontier.getSequence().get(), is(-1L));
+
+        frontier.complete(0L);
+        assertThat(frontier.getSequence().get(), is(1L));
+
+        frontier.complete(2L);
+        assertThat(frontier.getSequence().get(), is(3L));
+    }
+
+    @Test
+    public void shouldNotAdvancePastTheClaimedSequences()
+    {
+        workSequence.set(1L);
+
+        frontier.complete(0L);
+        frontier.complete(1L);
+
+        assertThat(frontier.getSequence().get(), is(1L));
+    }
+
+    @Test
+    public void shouldTrackCompletionAcrossLapsOfTheRingBuffer()
+    {
+        for (long sequence = 0; sequence < 20; sequence += 2)
+        {
+            workSequence.set(sequence + 1L);
+            frontier.complete(sequence + 1L);
+            assertThat(frontier.getSequence().get(), is(sequence - 1L));
+            frontier.complete(sequence);
+            assertThat(frontier.getSequence().get(), is(sequence + 1L));
+        }
+    }
+
+    @Test
+    public void shouldTrackCompletionOverTheNewSizeAfterTheRingBufferGrows()
+    {
+        workSequence.set(3L);
+        for (long sequence = 0; sequence <= 3L; sequence++)
+        {
+            frontier.complete(sequence);
+        }
+
+        ringBuffer.resize(32);
+        workSequence.set(23L);
+        for (long sequence = 23L; sequence > 4L; sequence--)
+        {
+            frontier.complete(sequence);
+        }
+        assertThat(frontier.getSequence().get(), is(3L));
+
+        frontier.complete(4L);
+        assertThat(frontier.getSequence().get(), is(23L));
+    }
+
+    @Test
+    public void shouldStartFromTheResetSequence()
+    {
+        frontier.reset(10L);
+        workSequence.set(12L);
+
+        frontier.complete(12L);
+        frontier.complete(11L);
+
+        assertThat(frontier.getSequence().get(), is(12L));
+    }
+}
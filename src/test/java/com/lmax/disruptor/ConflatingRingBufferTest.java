@@ -0,0 +1,162 @@
+/*
+ * Copyright 2012 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import com.lmax.disruptor.support.StubEvent;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class ConflatingRingBufferTest
+{
+    private final ConflatingRingBuffer<String, StubEvent> ringBuffer =
+        new ConflatingRingBuffer<String, StubEvent>(StubEvent.EVENT_FACTORY, 4, new BlockingWaitStrategy());
+
+    @Test
+    public void shouldReplaceUnreadEventForSameKey() throws Exception
+    {
+        assertFalse(ringBuffer.publishEvent("a", StubEvent.TRANSLATOR, 1, "a"));
+        assertFalse(ringBuffer.publishEvent("b", StubEvent.TRANSLATOR, 2, "b"));
+        assertTrue(ringBuffer.publishEvent("a", StubEvent.TRANSLATOR, 3, "a"));
+        assertTrue(ringBuffer.publishEvent("a", StubEvent.TRANSLATOR, 4, "a"));
+
+        assertEquals(1L, ringBuffer.getCursor());
+        assertEquals(4, ringBuffer.get(0).getValue());
+        assertEquals(2, ringBuffer.get(1).getValue());
+    }
+
+    @Test
+    public void shouldClaimNewSlotOnceEventHasBeenRead() throws Exception
+    {
+        ringBuffer.publishEvent("a", StubEvent.TRANSLATOR, 1, "a");
+        assertEquals(1, ringBuffer.get(0).getValue());
+
+        assertFalse(ringBuffer.publishEvent("a", StubEvent.TRANSLATOR, 2, "a"));
+
+        assertEquals(1L, ringBuffer.getCursor());
+        assertEquals(1, ringBuffer.get(0).getValue());
+        assertEquals(2, ringBuffer.get(1).getValue());
+    }
+
+    @Test
+    public void shouldNotReplaceEventOnceSlotHasWrapped() throws Exception
+    {
+        ringBuffer.publishEvent("a", StubEvent.TRANSLATOR, 1, "a");
+        for (int i = 0; i < 4; i++)
+        {
+            ringBuffer.publishEvent("k" + i, StubEvent.TRANSLATOR, 10 + i, "k" + i);
+        }
+
+        assertFalse(ringBuffer.publishEvent("a", StubEvent.TRANSLATOR, 2, "a"));
+        assertEquals(5L, ringBuffer.getCursor());
+        assertEquals(13, ringBuffer.get(4).getValue());
+    }
+
+    @Test
+    public void shouldForgetKeysOnceTheirSlotHasWrapped() throws Exception
+    {
+        for (int i = 0; i < 100; i++)
+        {
+            assertFalse(ringBuffer.publishEvent("k" + i, StubEvent.TRANSLATOR, i, "k" + i));
+            assertTrue(ringBuffer.getKeyCount() <= ringBuffer.getBufferSize());
+        }
+
+        assertTrue(ringBuffer.publishEvent("k99", StubEvent.TRANSLATOR, 199, "k99"));
+        assertFalse(ringBuffer.publishEvent("k0", StubEvent.TRANSLATOR, 100, "k0"));
+        assertEquals(100L, ringBuffer.getCursor());
+        assertEquals(199, ringBuffer.get(99).getValue());
+        assertEquals(100, ringBuffer.get(100).getValue());
+    }
+
+    @Test
+    public void shouldKeepConflatingKeyThatReusesItsOwnSlot() throws Exception
+    {
+        ConflatingRingBuffer<String, StubEvent> singleSlot =
+            new ConflatingRingBuffer<String, StubEvent>(StubEvent.EVENT_FACTORY, 1, new BlockingWaitStrategy());
+
+        singleSlot.publishEvent("a", StubEvent.TRANSLATOR, 1, "a");
+        singleSlot.get(0);
+        assertFalse(singleSlot.publishEvent("a", StubEvent.TRANSLATOR, 2, "a"));
+        assertTrue(singleSlot.publishEvent("a", StubEvent.TRANSLATOR, 3, "a"));
+
+        assertEquals(1, singleSlot.getKeyCount());
+        assertEquals(3, singleSlot.get(1).getValue());
+    }
+
+    @Test
+    public void shouldDeliverLatestValueForEveryKeyToConsumer() throws Exception
+    {
+        final int keys = 8;
+        final int updatesPerKey = 1000;
+        final ConflatingRingBuffer<String, StubEvent> ringBuffer =
+            new ConflatingRingBuffer<String, StubEvent>(StubEvent.EVENT_FACTORY, 4, new BlockingWaitStrategy());
+        final LatestValueHandler handler = new LatestValueHandler(keys, updatesPerKey - 1);
+        final BatchEventProcessor<StubEvent> processor =
+            new BatchEventProcessor<StubEvent>(ringBuffer, ringBuffer.newBarrier(), handler);
+        ringBuffer.addGatingSequences(processor.getSequence());
+
+        Thread thread = new Thread(processor);
+        thread.start();
+
+        for (int i = 0; i < updatesPerKey; i++)
+        {
+            for (int k = 0; k < keys; k++)
+            {
+                ringBuffer.publishEvent("k" + k, StubEvent.TRANSLATOR, i, "k" + k);
+            }
+        }
+
+        assertTrue(handler.latch.await(5, TimeUnit.SECONDS));
+        processor.halt();
+        thread.join();
+
+        assertEquals(keys, handler.latest.size());
+    }
+
+    private static final class LatestValueHandler implements EventHandler<StubEvent>
+    {
+        private final Map<String, Integer> latest = new HashMap<String, Integer>();
+        private final int finalValue;
+        private final CountDownLatch latch;
+
+        LatestValueHandler(final int keys, final int finalValue)
+        {
+            this.finalValue = finalValue;
+            this.latch = new CountDownLatch(keys);
+        }
+
+        @Override
+        public void onEvent(StubEvent event, long sequence, boolean endOfBatch) throws Exception
+        {
+            Integer previous = latest.put(event.getTestString(), event.getValue());
+            if (previous != null && previous > event.getValue())
+            {
+                throw new IllegalStateException("Value went backwards for " + event.getTestString());
+            }
+            if (event.getValue() == finalValue && (previous == null || previous != finalValue))
+            {
+                latch.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,443 @@
+/*
+ * Copyright 2012 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import com.lmax.disruptor.support.StubEvent;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.lmax.disruptor.RingBuffer.createSingleProducer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class FanInEventProcessorTest
+{
+    private final RingBuffer<StubEvent> ringBuffer1 = createSingleProducer(StubEvent.EVENT_FACTORY, 16);
+    private final RingBuffer<StubEvent> ringBuffer2 = createSingleProducer(StubEvent.EVENT_FACTORY, 16);
+
+    @Test
+    public void shouldProcessEventsFromEveryInputInRoundRobinBatches() throws Exception
+    {
+        RecordingEventHandler eventHandler = new RecordingEventHandler(5);
+        FanInEventProcessor<StubEvent> processor = new FanInEventProcessor<StubEvent>(eventHandler);
+        processor.addInput(ringBuffer1);
+        processor.addInput(ringBuffer2);
+        publish(ringBuffer1, 100, 3);
+        publish(ringBuffer2, 200, 2);
+
+        Thread thread = new Thread(processor);
+        thread.start();
+        assertTrue(eventHandler.latch.await(2, TimeUnit.SECONDS));
+        processor.halt();
+        thread.join();
+
+        assertEquals(Arrays.asList(100, 101, 102, 200, 201), eventHandler.values);
+        assertEquals(Arrays.asList(false, false, true, false, true), eventHandler.endOfBatches);
+        assertEquals(Arrays.asList(3L, 2L), eventHandler.batchSizes);
+        assertEquals(2L, processor.getSequenceFor(ringBuffer1).get());
+        assertEquals(1L, processor.getSequenceFor(ringBuffer2).get());
+        assertEquals(4L, processor.getSequence().get());
+    }
+
+    @Test
+    public void shouldLimitEachVisitToTheWeightOfTheInput() throws Exception
+    {
+        RecordingEventHandler eventHandler = new RecordingEventHandler(10);
+        FanInEventProcessor<StubEvent> processor = new FanInEventProcessor<StubEvent>(eventHandler);
+        processor.addInput(ringBuffer1, 2);
+        processor.addInput(ringBuffer2, 3);
+        publish(ringBuffer1, 100, 5);
+        publish(ringBuffer2, 200, 5);
+
+        Thread thread = new Thread(processor);
+        thread.start();
+        assertTrue(eventHandler.latch.await(2, TimeUnit.SECONDS));
+        processor.halt();
+        thread.join();
+
+        assertEquals(Arrays.asList(100, 101, 200, 201, 202, 102, 103, 203, 204, 104), eventHandler.values);
+        assertEquals(Arrays.asList(2L, 3L, 2L, 2L, 1L), eventHandler.batchSizes);
+    }
+
+    @Test
+    public void shouldServeHigherPriorityInputFirst() throws Exception
+    {
+        RecordingEventHandler eventHandler = new RecordingEventHandler(7);
+        FanInEventProcessor<StubEvent> processor = new FanInEventProcessor<StubEvent>(eventHandler);
+        processor.addInput(ringBuffer1, 2);
+        processor.addInput(ringBuffer2, 2, 1);
+        publish(ringBuffer1, 100, 5);
+        publish(ringBuffer2, 200, 2);
+
+        Thread thread = new Thread(processor);
+        thread.start();
+        assertTrue(eventHandler.latch.await(2, TimeUnit.SECONDS));
+        processor.halt();
+        thread.join();
+
+        assertEquals(Arrays.asList(200, 201, 100, 101, 102, 103, 104), eventHandler.values);
+    }
+
+    @Test
+    public void shouldLetHigherPriorityEventsOvertakeBacklog() throws Exception
+    {
+        final RecordingEventHandler recorder = new RecordingEventHandler(7);
+        FanInEventProcessor<StubEvent> processor = new FanInEventProcessor<StubEvent>(
+            publishOnEvent(100, ringBuffer2, 200, recorder));
+        processor.addInput(ringBuffer1, 2);
+        processor.addInput(ringBuffer2, 2, 1);
+        publish(ringBuffer1, 100, 6);
+
+        Thread thread = new Thread(processor);
+        thread.start();
+        assertTrue(recorder.latch.await(2, TimeUnit.SECONDS));
+        processor.halt();
+        thread.join();
+
+        assertEquals(Arrays.asList(100, 101, 200, 102, 103, 104, 105), recorder.values);
+    }
+
+    @Test
+    public void shouldResumeRoundOfSamePriorityAfterHigherPriorityEvents() throws Exception
+    {
+        final RingBuffer<StubEvent> highPriority = createSingleProducer(StubEvent.EVENT_FACTORY, 16);
+        final RecordingEventHandler recorder = new RecordingEventHandler(5);
+        FanInEventProcessor<StubEvent> processor = new FanInEventProcessor<StubEvent>(
+            publishOnEvent(100, highPriority, 200, recorder));
+        processor.addInput(ringBuffer1, 1);
+        processor.addInput(ringBuffer2, 1);
+        processor.addInput(highPriority, 1, 1);
+        publish(ringBuffer1, 100, 2);
+        publish(ringBuffer2, 300, 2);
+
+        Thread thread = new Thread(processor);
+        thread.start();
+        assertTrue(recorder.latch.await(2, TimeUnit.SECONDS));
+        processor.halt();
+        thread.join();
+
+        assertEquals(Arrays.asList(100, 200, 300, 101, 301), recorder.values);
+    }
+
+    @Test
+    public void shouldConsumeInputAddedWhileRunning() throws Exception
+    {
+        RecordingEventHandler eventHandler = new RecordingEventHandler(2);
+        FanInEventProcessor<StubEvent> processor = new FanInEventProcessor<StubEvent>(eventHandler);
+        processor.addInput(ringBuffer1);
+
+        Thread thread = new Thread(processor);
+        thread.start();
+
+        publish(ringBuffer1, 100, 1);
+        processor.addInput(ringBuffer2);
+        publish(ringBuffer2, 200, 1);
+
+        assertTrue(eventHandler.latch.await(2, TimeUnit.SECONDS));
+        processor.halt();
+        thread.join();
+
+        assertEquals(Arrays.asList(100, 200), eventHandler.values);
+    }
+
+    @Test
+    public void shouldStopGatingRemovedInput() throws Exception
+    {
+        FanInEventProcessor<StubEvent> processor =
+            new FanInEventProcessor<StubEvent>(new RecordingEventHandler(1));
+        processor.addInput(ringBuffer1);
+        processor.addInput(ringBuffer2);
+        publish(ringBuffer1, 100, 16);
+
+        assertFalse(ringBuffer1.hasAvailableCapacity(1));
+        assertTrue(processor.hasBacklog());
+
+        assertTrue(processor.removeInput(ringBuffer1));
+        assertFalse(processor.removeInput(ringBuffer1));
+
+        assertTrue(ringBuffer1.hasAvailableCapacity(1));
+        assertFalse(processor.hasBacklog());
+    }
+
+    @Test
+    public void shouldReleaseInputRemovedWhileRunning() throws Exception
+    {
+        RecordingEventHandler eventHandler = new RecordingEventHandler(1);
+        FanInEventProcessor<StubEvent> processor = new FanInEventProcessor<StubEvent>(eventHandler);
+        processor.addInput(ringBuffer1);
+        processor.addInput(ringBuffer2);
+
+        Thread thread = new Thread(processor);
+        thread.start();
+
+        publish(ringBuffer2, 200, 1);
+        assertTrue(eventHandler.latch.await(2, TimeUnit.SECONDS));
+
+        assertTrue(processor.removeInput(ringBuffer1));
+        publish(ringBuffer1, 100, 16);
+
+        long timeout = System.currentTimeMillis() + 2000;
+        while (!ringBuffer1.hasAvailableCapacity(1) && System.currentTimeMillis() < timeout)
+        {
+            Thread.yield();
+        }
+        assertTrue(ringBuffer1.hasAvailableCapacity(1));
+
+        processor.halt();
+        thread.join();
+    }
+
+    @Test
+    public void shouldReleaseInputRemovedAndAddedAgainWhileRunning() throws Exception
+    {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch consumed = new CountDownLatch(40);
+        FanInEventProcessor<StubEvent> processor = new FanInEventProcessor<StubEvent>(new EventHandler<StubEvent>()
+        {
+            @Override
+            public void onEvent(StubEvent event, long sequence, boolean endOfBatch) throws Exception
+            {
+                if (event.getValue() == 200)
+                {
+                    blocked.countDown();
+                    release.await();
+                }
+                else
+                {
+                    consumed.countDown();
+                }
+            }
+        });
+        processor.addInput(ringBuffer1);
+        processor.addInput(ringBuffer2);
+
+        Thread thread = new Thread(processor);
+        thread.start();
+
+        //处理线程停在事件里时移除再加入同一个ring buffer，旧的Input还没有解除gating
+        publish(ringBuffer2, 200, 1);
+        assertTrue(blocked.await(2, TimeUnit.SECONDS));
+        assertTrue(processor.removeInput(ringBuffer1));
+        processor.addInput(ringBuffer1);
+        release.countDown();
+
+        Thread publisher = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                publish(ringBuffer1, 100, 40);
+            }
+        });
+        publisher.setDaemon(true);
+        publisher.start();
+
+        try
+        {
+            assertTrue(consumed.await(2, TimeUnit.SECONDS));
+            publisher.join();
+        }
+        finally
+        {
+            processor.halt();
+            thread.join();
+        }
+    }
+
+    @Test
+    public void shouldCallExceptionHandlerAndContinue() throws Exception
+    {
+        final CountDownLatch exceptionLatch = new CountDownLatch(1);
+        final RecordingEventHandler recorder = new RecordingEventHandler(2);
+        FanInEventProcessor<StubEvent> processor = new FanInEventProcessor<StubEvent>(
+            new EventHandler<StubEvent>()
+            {
+                @Override
+                public void onEvent(StubEvent event, long sequence, boolean endOfBatch) throws Exception
+                {
+                    if (event.getValue() == 101)
+                    {
+                        throw new IllegalStateException();
+                    }
+                    recorder.onEvent(event, sequence, endOfBatch);
+                }
+            });
+        processor.setExceptionHandler(new LatchExceptionHandler(exceptionLatch));
+        processor.addInput(ringBuffer1);
+        publish(ringBuffer1, 100, 3);
+
+        Thread thread = new Thread(processor);
+        thread.start();
+        assertTrue(exceptionLatch.await(2, TimeUnit.SECONDS));
+        assertTrue(recorder.latch.await(2, TimeUnit.SECONDS));
+        processor.halt();
+        thread.join();
+
+        assertEquals(Arrays.asList(100, 102), recorder.values);
+        assertEquals(2L, processor.getSequenceFor(ringBuffer1).get());
+    }
+
+    @Test
+    public void shouldNotifyLifecycleAndTimeouts() throws Exception
+    {
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch timeoutLatch = new CountDownLatch(2);
+        final CountDownLatch shutdownLatch = new CountDownLatch(1);
+        FanInEventProcessor<StubEvent> processor = new FanInEventProcessor<StubEvent>(
+            new LifecycleTimeoutHandler(startLatch, timeoutLatch, shutdownLatch), 1, TimeUnit.MILLISECONDS);
+        processor.addInput(ringBuffer1);
+
+        Thread thread = new Thread(processor);
+        thread.start();
+
+        assertTrue(startLatch.await(2, TimeUnit.SECONDS));
+        assertTrue(timeoutLatch.await(2, TimeUnit.SECONDS));
+        assertTrue(processor.isRunning());
+
+        processor.halt();
+        thread.join();
+
+        assertTrue(shutdownLatch.await(2, TimeUnit.SECONDS));
+        assertFalse(processor.isRunning());
+    }
+
+    private static void publish(final RingBuffer<StubEvent> ringBuffer, final int firstValue, final int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            long sequence = ringBuffer.next();
+            ringBuffer.get(sequence).setValue(firstValue + i);
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    private static EventHandler<StubEvent> publishOnEvent(
+        final int triggerValue, final RingBuffer<StubEvent> ringBuffer, final int value,
+        final RecordingEventHandler recorder)
+    {
+        return new EventHandler<StubEvent>()
+        {
+            @Override
+            public void onEvent(StubEvent event, long sequence, boolean endOfBatch) throws Exception
+            {
+                recorder.onEvent(event, sequence, endOfBatch);
+                if (event.getValue() == triggerValue)
+                {
+                    publish(ringBuffer, value, 1);
+                }
+            }
+        };
+    }
+
+    private static final class RecordingEventHandler implements EventHandler<StubEvent>, BatchStartAware
+    {
+        private final List<Integer> values = new ArrayList<Integer>();
+        private final List<Boolean> endOfBatches = new ArrayList<Boolean>();
+        private final List<Long> batchSizes = new ArrayList<Long>();
+        private final CountDownLatch latch;
+
+        RecordingEventHandler(final int expectedEvents)
+        {
+            this.latch = new CountDownLatch(expectedEvents);
+        }
+
+        @Override
+        public void onEvent(StubEvent event, long sequence, boolean endOfBatch) throws Exception
+        {
+            values.add(event.getValue());
+            endOfBatches.add(endOfBatch);
+            latch.countDown();
+        }
+
+        @Override
+        public void onBatchStart(long batchSize)
+        {
+            batchSizes.add(batchSize);
+        }
+    }
+
+    private static final class LifecycleTimeoutHandler
+        implements EventHandler<StubEvent>, LifecycleAware, TimeoutHandler
+    {
+        private final CountDownLatch startLatch;
+        private final CountDownLatch timeoutLatch;
+        private final CountDownLatch shutdownLatch;
+
+        LifecycleTimeoutHandler(
+            final CountDownLatch startLatch, final CountDownLatch timeoutLatch, final CountDownLatch shutdownLatch)
+        {
+            this.startLatch = startLatch;
+            this.timeoutLatch = timeoutLatch;
+            this.shutdownLatch = shutdownLatch;
+        }
+
+        @Override
+        public void onEvent(StubEvent event, long sequence, boolean endOfBatch) throws Exception
+        {
+        }
+
+        @Override
+        public void onStart()
+        {
+            startLatch.countDown();
+        }
+
+        @Override
+        public void onShutdown()
+        {
+            shutdownLatch.countDown();
+        }
+
+        @Override
+        public void onTimeout(long sequence) throws Exception
+        {
+            timeoutLatch.countDown();
+        }
+    }
+
+    private static final class LatchExceptionHandler implements ExceptionHandler<Object>
+    {
+        private final CountDownLatch latch;
+
+        LatchExceptionHandler(final CountDownLatch latch)
+        {
+            this.latch = latch;
+        }
+
+        @Override
+        public void handleEventException(Throwable ex, long sequence, Object event)
+        {
+            latch.countDown();
+        }
+
+        @Override
+        public void handleOnStartException(Throwable ex)
+        {
+        }
+
+        @Override
+        public void handleOnShutdownException(Throwable ex)
+        {
+        }
+    }
+}
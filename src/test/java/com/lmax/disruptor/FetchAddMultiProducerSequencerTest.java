@@ -0,0 +1,117 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import org.junit.Test;
+
+public class FetchAddMultiProducerSequencerTest
+{
+    private static final int BUFFER_SIZE = 16;
+    private final ExecutorService executor = Executors.newCachedThreadPool(DaemonThreadFactory.INSTANCE);
+    private final Sequencer sequencer = new FetchAddMultiProducerSequencer(BUFFER_SIZE, new BusySpinWaitStrategy());
+
+    @Test
+    public void shouldWaitForCapacityAfterClaimingPastTheWrapPoint() throws Exception
+    {
+        final Sequence gatingSequence = new Sequence();
+        sequencer.addGatingSequences(gatingSequence);
+        sequencer.publish(0, sequencer.next(BUFFER_SIZE));
+
+        final CountDownLatch doneLatch = new CountDownLatch(1);
+        executor.submit(
+            new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    long hi = sequencer.next(2);
+                    sequencer.publish(hi - 1, hi);
+                    doneLatch.countDown();
+                }
+            });
+
+        while (sequencer.getCursor() != BUFFER_SIZE + 1)
+        {
+            Thread.yield();
+        }
+        assertThat(sequencer.remainingCapacity(), is(0L));
+
+        gatingSequence.set(0L);
+        assertThat(doneLatch.await(10, TimeUnit.MILLISECONDS), is(false));
+
+        gatingSequence.set(1L);
+        assertTrue(doneLatch.await(5, TimeUnit.SECONDS));
+        assertThat(sequencer.getHighestPublishedSequence(2, BUFFER_SIZE + 1), is((long) BUFFER_SIZE + 1));
+    }
+
+    @Test
+    public void shouldClaimUniqueSequencesFromConcurrentPublishers() throws Exception
+    {
+        final int numPublishers = 4;
+        final int claimsPerPublisher = 10000;
+        final Sequence gatingSequence = new Sequence();
+        final SequenceBarrier barrier = sequencer.newBarrier();
+        sequencer.addGatingSequences(gatingSequence);
+
+        final CyclicBarrier start = new CyclicBarrier(numPublishers);
+        for (int i = 0; i < numPublishers; i++)
+        {
+            executor.submit(
+                new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            start.await();
+                        }
+                        catch (Exception e)
+                        {
+                            throw new RuntimeException(e);
+                        }
+
+                        for (int j = 0; j < claimsPerPublisher; j++)
+                        {
+                            sequencer.publish(sequencer.next());
+                        }
+                    }
+                });
+        }
+
+        final long lastSequence = (long) numPublishers * claimsPerPublisher - 1;
+        long nextSequence = 0;
+        while (nextSequence <= lastSequence)
+        {
+            long available = barrier.waitFor(nextSequence);
+            gatingSequence.set(available);
+            nextSequence = available + 1;
+        }
+
+        assertThat(sequencer.getCursor(), is(lastSequence));
+    }
+}
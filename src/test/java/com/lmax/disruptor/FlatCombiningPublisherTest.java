@@ -0,0 +1,235 @@
+/*
+ * Copyright 2012 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+
+import org.junit.Test;
+
+import com.lmax.disruptor.support.StubEvent;
+
+public class FlatCombiningPublisherTest
+{
+    private static final int BUFFER_SIZE = 1024;
+
+    private final RingBuffer<StubEvent> ringBuffer = RingBuffer.createMultiProducer(StubEvent.EVENT_FACTORY, BUFFER_SIZE);
+    private final FlatCombiningPublisher<StubEvent> publisher = new FlatCombiningPublisher<StubEvent>(ringBuffer);
+
+    @Test
+    public void shouldPublishEventsWithEachNumberOfArguments() throws Exception
+    {
+        publisher.publishEvent(
+            new EventTranslator<StubEvent>()
+            {
+                @Override
+                public void translateTo(StubEvent event, long sequence)
+                {
+                    event.setValue(10);
+                }
+            });
+        publisher.publishEvent(
+            new EventTranslatorOneArg<StubEvent, Integer>()
+            {
+                @Override
+                public void translateTo(StubEvent event, long sequence, Integer arg0)
+                {
+                    event.setValue(arg0);
+                }
+            }, 11);
+        publisher.publishEvent(StubEvent.TRANSLATOR, 12, "twelve");
+        publisher.publishEvent(
+            new EventTranslatorThreeArg<StubEvent, Integer, Integer, Integer>()
+            {
+                @Override
+                public void translateTo(StubEvent event, long sequence, Integer arg0, Integer arg1, Integer arg2)
+                {
+                    event.setValue(arg0 + arg1 + arg2);
+                }
+            }, 4, 4, 5);
+
+        assertThat(ringBuffer.getCursor(), is(3L));
+        assertThat(ringBuffer.get(0).getValue(), is(10));
+        assertThat(ringBuffer.get(1).getValue(), is(11));
+        assertThat(ringBuffer.get(2).getValue(), is(12));
+        assertThat(ringBuffer.get(2).getTestString(), is("twelve"));
+        assertThat(ringBuffer.get(3).getValue(), is(13));
+    }
+
+    @Test
+    public void shouldRethrowTranslatorExceptionInPublishingThread() throws Exception
+    {
+        try
+        {
+            publisher.publishEvent(
+                new EventTranslator<StubEvent>()
+                {
+                    @Override
+                    public void translateTo(StubEvent event, long sequence)
+                    {
+                        throw new IllegalStateException("failed");
+                    }
+                });
+            fail("Should have thrown");
+        }
+        catch (IllegalStateException e)
+        {
+            assertThat(e.getMessage(), is("failed"));
+        }
+
+        assertThat(ringBuffer.getCursor(), is(0L));
+        publisher.publishEvent(StubEvent.TRANSLATOR, 1, "one");
+        assertThat(ringBuffer.get(1).getValue(), is(1));
+    }
+
+    @Test
+    public void shouldPublishEveryEventFromContendingThreads() throws Exception
+    {
+        final int numThreads = 4;
+        final int eventsPerThread = BUFFER_SIZE / numThreads;
+        final CyclicBarrier barrier = new CyclicBarrier(numThreads);
+        Thread[] threads = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++)
+        {
+            final int offset = t * eventsPerThread;
+            threads[t] = new Thread(
+                new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            barrier.await();
+                        }
+                        catch (Exception e)
+                        {
+                            throw new RuntimeException(e);
+                        }
+                        for (int i = 0; i < eventsPerThread; i++)
+                        {
+                            publisher.publishEvent(StubEvent.TRANSLATOR, offset + i, null);
+                        }
+                    }
+                });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        assertThat(ringBuffer.getCursor(), is((long) BUFFER_SIZE - 1));
+        Set<Integer> values = new HashSet<Integer>();
+        for (int i = 0; i < BUFFER_SIZE; i++)
+        {
+            assertTrue(ringBuffer.isPublished(i));
+            values.add(ringBuffer.get(i).getValue());
+        }
+        assertThat(values.size(), is(BUFFER_SIZE));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldRethrowEventSinkExceptionInPublishingThread() throws Exception
+    {
+        final IllegalStateException failure = new IllegalStateException();
+        EventSink<StubEvent> failingSink = (EventSink<StubEvent>) Proxy.newProxyInstance(
+            EventSink.class.getClassLoader(), new Class<?>[] {EventSink.class}, new InvocationHandler()
+            {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+                {
+                    throw failure;
+                }
+            });
+        FlatCombiningPublisher<StubEvent> failingPublisher = new FlatCombiningPublisher<StubEvent>(failingSink, 16);
+
+        try
+        {
+            failingPublisher.publishEvent(StubEvent.TRANSLATOR, 1, "one");
+            fail("Should have thrown the event sink exception");
+        }
+        catch (IllegalStateException e)
+        {
+            assertTrue(e == failure);
+        }
+    }
+
+    @Test
+    public void shouldReleaseSlotsOfTerminatedThreads() throws Exception
+    {
+        for (int i = 0; i < 10; i++)
+        {
+            final int value = i;
+            Thread thread = new Thread(
+                new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        publisher.publishEvent(StubEvent.TRANSLATOR, value, "pooled");
+                    }
+                });
+            thread.start();
+            thread.join();
+
+            assertThat(publisher.getSlotCount(), is(1));
+        }
+
+        publisher.publishEvent(StubEvent.TRANSLATOR, 10, "main");
+
+        assertThat(publisher.getSlotCount(), is(1));
+        assertThat(ringBuffer.getCursor(), is(10L));
+        assertThat(ringBuffer.get(10).getValue(), is(10));
+    }
+
+    @Test
+    public void shouldReleaseSlotOfCallingThread() throws Exception
+    {
+        publisher.publishEvent(StubEvent.TRANSLATOR, 0, "zero");
+        assertThat(publisher.getSlotCount(), is(1));
+
+        publisher.release();
+        assertThat(publisher.getSlotCount(), is(0));
+        publisher.release();
+
+        publisher.publishEvent(StubEvent.TRANSLATOR, 1, "one");
+        assertThat(publisher.getSlotCount(), is(1));
+        assertThat(ringBuffer.get(1).getValue(), is(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAllowBatchesLargerThanTheBuffer() throws Exception
+    {
+        new FlatCombiningPublisher<StubEvent>(ringBuffer, BUFFER_SIZE + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAllowEmptyBatches() throws Exception
+    {
+        new FlatCombiningPublisher<StubEvent>(ringBuffer, 0);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2012 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class MinimumSequenceTreeTest
+{
+    @Test
+    public void shouldReturnDefaultMinimumWhenEmpty() throws Exception
+    {
+        MinimumSequenceTree tree = new MinimumSequenceTree(new Sequence[0]);
+
+        assertThat(tree.getMinimumSequence(7L), is(7L));
+        assertThat(tree.getMinimumSequence(3L, 7L), is(7L));
+    }
+
+    @Test
+    public void shouldReturnExactMinimumForAllSizes() throws Exception
+    {
+        for (int size = 1; size <= 40; size++)
+        {
+            CountingSequence[] sequences = newSequences(size, 100L);
+            MinimumSequenceTree tree = new MinimumSequenceTree(sequences);
+
+            assertThat(tree.getMinimumSequence(Long.MAX_VALUE), is(100L));
+
+            for (int i = 0; i < size; i++)
+            {
+                sequences[i].set(200L + i);
+            }
+            sequences[size / 2].set(150L);
+
+            assertThat(tree.getMinimumSequence(Long.MAX_VALUE), is(150L));
+            assertThat(tree.getMinimumSequence(120L), is(120L));
+        }
+    }
+
+    @Test
+    public void shouldOnlyReadSequencesThatAreBehindTheRequiredSequence() throws Exception
+    {
+        CountingSequence[] sequences = newSequences(32, 0L);
+        MinimumSequenceTree tree = new MinimumSequenceTree(sequences);
+        for (int i = 0; i < sequences.length; i++)
+        {
+            sequences[i].set(100L);
+        }
+        sequences[5].set(10L);
+
+        assertThat(tree.getMinimumSequence(10L, 1000L), is(10L));
+        resetReads(sequences);
+
+        assertThat(tree.getMinimumSequence(10L, 1000L), is(10L));
+        assertThat(totalReads(sequences), is(0));
+
+        sequences[5].set(50L);
+        assertThat(tree.getMinimumSequence(20L, 1000L), is(50L));
+        assertThat(sequences[5].reads, is(1));
+        assertThat(totalReads(sequences), is(4));
+    }
+
+    @Test
+    public void shouldReportMinimumWhenRequiredSequenceHasNotBeenReached() throws Exception
+    {
+        CountingSequence[] sequences = newSequences(9, 30L);
+        MinimumSequenceTree tree = new MinimumSequenceTree(sequences);
+        tree.getMinimumSequence(30L, 1000L);
+
+        sequences[8].set(40L);
+        sequences[2].set(35L);
+        for (int i = 0; i < sequences.length; i++)
+        {
+            if (i != 2 && i != 8)
+            {
+                sequences[i].set(60L);
+            }
+        }
+
+        assertThat(tree.getMinimumSequence(45L, 1000L), is(35L));
+        assertThat(tree.getMinimumSequence(Long.MAX_VALUE), is(35L));
+    }
+
+    @Test
+    public void shouldRefreshWhenCachedValueIsAheadOfTheCursor() throws Exception
+    {
+        CountingSequence[] sequences = newSequences(8, 127L);
+        MinimumSequenceTree tree = new MinimumSequenceTree(sequences);
+        assertThat(tree.getMinimumSequence(100L, 127L), is(127L));
+
+        for (int i = 0; i < sequences.length; i++)
+        {
+            sequences[i].set(31L);
+        }
+
+        assertThat(tree.getMinimumSequence(30L, 31L), is(31L));
+        assertThat(tree.getMinimumSequence(32L, 40L), is(31L));
+    }
+
+    private static CountingSequence[] newSequences(final int size, final long initialValue)
+    {
+        CountingSequence[] sequences = new CountingSequence[size];
+        for (int i = 0; i < size; i++)
+        {
+            sequences[i] = new CountingSequence(initialValue);
+        }
+        return sequences;
+    }
+
+    private static void resetReads(final CountingSequence[] sequences)
+    {
+        for (CountingSequence sequence : sequences)
+        {
+            sequence.reads = 0;
+        }
+    }
+
+    private static int totalReads(final CountingSequence[] sequences)
+    {
+        int reads = 0;
+        for (CountingSequence sequence : sequences)
+        {
+            reads += sequence.reads;
+        }
+        return reads;
+    }
+
+    private static final class CountingSequence extends Sequence
+    {
+        private int reads;
+
+        CountingSequence(final long initialValue)
+        {
+            super(initialValue);
+        }
+
+        @Override
+        public long get()
+        {
+            reads++;
+            return super.get();
+        }
+    }
+}
@@ -38,4 +38,31 @@ public class MultiProducerSequencerTest
         assertThat(publisher.isAvailable(5), is(true));
         assertThat(publisher.isAvailable(6), is(false));
     }
+
+    @Test
+    public void shouldShareTheHighestPublishedSequenceBetweenConsumers() throws Exception
+    {
+        publisher.publish(0, 4);
+        publisher.publish(6);
+
+        assertThat(publisher.getHighestPublishedSequence(0, 6), is(4L));
+        assertThat(publisher.getHighestPublishedSequence(2, 6), is(4L));
+        assertThat(publisher.getHighestPublishedSequence(0, 3), is(3L));
+
+        publisher.publish(5);
+
+        assertThat(publisher.getHighestPublishedSequence(3, 6), is(6L));
+        assertThat(publisher.getHighestPublishedSequence(0, 7), is(6L));
+    }
+
+    @Test
+    public void shouldScanFromTheLowerBoundWhenTheSharedSequenceStopsShortOfIt() throws Exception
+    {
+        publisher.publish(0, 2);
+        publisher.publish(5, 9);
+
+        assertThat(publisher.getHighestPublishedSequence(5, 9), is(9L));
+        assertThat(publisher.getHighestPublishedSequence(0, 9), is(2L));
+        assertThat(publisher.getHighestPublishedSequence(10, 12), is(9L));
+    }
 }
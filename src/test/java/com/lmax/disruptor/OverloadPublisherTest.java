@@ -0,0 +1,177 @@
+/*
+ * Copyright 2012 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import com.lmax.disruptor.support.StubEvent;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.lmax.disruptor.RingBuffer.createMultiProducer;
+import static com.lmax.disruptor.RingBuffer.createSingleProducer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class OverloadPublisherTest
+{
+    private final RingBuffer<StubEvent> ringBuffer = createSingleProducer(StubEvent.EVENT_FACTORY, 4);
+    private final Sequence criticalSequence = new Sequence();
+
+    @Test
+    public void shouldDropNewestEventsWhenFull() throws Exception
+    {
+        ringBuffer.addGatingSequences(criticalSequence);
+        OverloadPublisher<StubEvent> publisher = OverloadPublisher.dropNewest(ringBuffer);
+
+        for (int i = 0; i < 6; i++)
+        {
+            publisher.publishEvent(StubEvent.TRANSLATOR, i, "");
+        }
+
+        assertEquals(OverloadPolicy.DROP_NEWEST, publisher.getPolicy());
+        assertEquals(3L, ringBuffer.getCursor());
+        assertEquals(3, ringBuffer.get(3).getValue());
+        assertEquals(2L, publisher.getDroppedCount());
+
+        criticalSequence.set(0L);
+        assertTrue(publisher.publishEvent(StubEvent.TRANSLATOR, 6, ""));
+        assertEquals(6, ringBuffer.get(4).getValue());
+    }
+
+    @Test
+    public void shouldOverwriteEventsUnreadByNonCriticalConsumers() throws Exception
+    {
+        Sequence nonCriticalSequence = new Sequence();
+        OverloadPublisher<StubEvent> publisher = OverloadPublisher.dropOldest(ringBuffer, nonCriticalSequence);
+
+        for (int i = 0; i < 6; i++)
+        {
+            assertTrue(publisher.publishEvent(StubEvent.TRANSLATOR, i, ""));
+        }
+        nonCriticalSequence.set(3L);
+        assertTrue(publisher.publishEvent(StubEvent.TRANSLATOR, 6, ""));
+
+        assertEquals(6L, ringBuffer.getCursor());
+        assertEquals(2L, publisher.getOverwrittenCount());
+        assertEquals(0L, publisher.getDroppedCount());
+    }
+
+    @Test
+    public void shouldKeepConsumingAfterEventsOfNonCriticalConsumerAreOverwritten() throws Exception
+    {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        BatchEventProcessor<StubEvent> nonCritical = new BatchEventProcessor<StubEvent>(
+            ringBuffer, ringBuffer.newBarrier(), new EventHandler<StubEvent>()
+            {
+                @Override
+                public void onEvent(StubEvent event, long sequence, boolean endOfBatch) throws Exception
+                {
+                    if (sequence == 0L)
+                    {
+                        blocked.countDown();
+                        release.await();
+                    }
+                }
+            });
+        OverloadPublisher<StubEvent> publisher = OverloadPublisher.dropOldest(ringBuffer, nonCritical.getSequence());
+        Thread thread = new Thread(nonCritical);
+        thread.start();
+
+        publisher.publishEvent(StubEvent.TRANSLATOR, 0, "");
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < 10; i++)
+        {
+            assertTrue(publisher.publishEvent(StubEvent.TRANSLATOR, i, ""));
+        }
+        release.countDown();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (nonCritical.getSequence().get() != 9L && System.currentTimeMillis() < deadline)
+        {
+            Thread.yield();
+        }
+        nonCritical.halt();
+        thread.join();
+
+        assertEquals(9L, nonCritical.getSequence().get());
+        assertTrue(publisher.getOverwrittenCount() > 0L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectMultiProducerRingBufferForDropOldest() throws Exception
+    {
+        OverloadPublisher.dropOldest(createMultiProducer(StubEvent.EVENT_FACTORY, 4), new Sequence());
+    }
+
+    @Test
+    public void shouldDropNewestWhenCriticalConsumerHoldsUpDropOldest() throws Exception
+    {
+        ringBuffer.addGatingSequences(criticalSequence);
+        OverloadPublisher<StubEvent> publisher = OverloadPublisher.dropOldest(ringBuffer, new Sequence());
+
+        for (int i = 0; i < 5; i++)
+        {
+            publisher.publishEvent(StubEvent.TRANSLATOR, i, "");
+        }
+
+        assertEquals(3L, ringBuffer.getCursor());
+        assertEquals(1L, publisher.getDroppedCount());
+        assertEquals(0L, publisher.getOverwrittenCount());
+    }
+
+    @Test
+    public void shouldPublishEverythingBelowPressureThreshold() throws Exception
+    {
+        ringBuffer.addGatingSequences(criticalSequence);
+        OverloadPublisher<StubEvent> publisher = OverloadPublisher.sample(ringBuffer, 2, 0.0);
+
+        assertTrue(publisher.publishEvent(StubEvent.TRANSLATOR, 0, ""));
+        assertTrue(publisher.publishEvent(StubEvent.TRANSLATOR, 1, ""));
+        assertFalse(publisher.publishEvent(StubEvent.TRANSLATOR, 2, ""));
+
+        assertEquals(1L, ringBuffer.getCursor());
+        assertEquals(1L, publisher.getDroppedCount());
+    }
+
+    @Test
+    public void shouldSampleFractionOfEventsUnderPressure() throws Exception
+    {
+        final RingBuffer<StubEvent> ringBuffer = createSingleProducer(StubEvent.EVENT_FACTORY, 1024);
+        OverloadPublisher<StubEvent> publisher = OverloadPublisher.sample(ringBuffer, 1024, 0.25);
+
+        final int attempts = 1000;
+        int published = 0;
+        for (int i = 0; i < attempts; i++)
+        {
+            if (publisher.publishEvent(StubEvent.TRANSLATOR, i, ""))
+            {
+                published++;
+            }
+        }
+
+        assertTrue(published > 150 && published < 350);
+        assertEquals(attempts - published, publisher.getDroppedCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectSampleRateAboveOne() throws Exception
+    {
+        OverloadPublisher.sample(ringBuffer, 2, 1.5);
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import com.lmax.disruptor.support.StubEvent;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.lmax.disruptor.RingBuffer.createMultiProducer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class PartitionedEventProcessorTest
+{
+    private static final int PARTITIONS = 3;
+    private static final int KEYS = 5;
+
+    private final RingBuffer<StubEvent> ringBuffer = createMultiProducer(StubEvent.EVENT_FACTORY, 16);
+    private final SequenceBarrier sequenceBarrier = ringBuffer.newBarrier();
+    private final EventKeyFunction<StubEvent> keyFunction = new EventKeyFunction<StubEvent>()
+    {
+        @Override
+        public Object getKey(final StubEvent event)
+        {
+            return event.getValue() % KEYS;
+        }
+    };
+
+    @Test
+    public void shouldHandleEachEventInThePartitionOfItsKeyInOrder() throws Exception
+    {
+        final int events = 1000;
+        final CountDownLatch latch = new CountDownLatch(events);
+        final RecordingEventHandler[] handlers = new RecordingEventHandler[PARTITIONS];
+        for (int i = 0; i < PARTITIONS; i++)
+        {
+            handlers[i] = new RecordingEventHandler(latch);
+        }
+        final PartitionedEventProcessor<StubEvent>[] processors =
+            PartitionedEventProcessor.createGroup(ringBuffer, sequenceBarrier, keyFunction, handlers);
+        final Thread[] threads = start(processors);
+
+        for (int i = 0; i < events; i++)
+        {
+            ringBuffer.publishEvent(StubEvent.TRANSLATOR, i, "");
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        halt(processors, threads);
+
+        for (int partition = 0; partition < PARTITIONS; partition++)
+        {
+            final List<Integer> values = handlers[partition].values;
+            for (final int value : values)
+            {
+                assertEquals(partition, PartitionedEventProcessor.partitionFor(value % KEYS, PARTITIONS));
+            }
+            final List<Integer> sorted = new ArrayList<Integer>(values);
+            Collections.sort(sorted);
+            assertEquals(sorted, values);
+        }
+    }
+
+    @Test
+    public void shouldMoveSequencesPastEventsOfOtherPartitions() throws Exception
+    {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final RecordingEventHandler[] handlers = new RecordingEventHandler[PARTITIONS];
+        for (int i = 0; i < PARTITIONS; i++)
+        {
+            handlers[i] = new RecordingEventHandler(latch);
+        }
+        final PartitionedEventProcessor<StubEvent>[] processors =
+            PartitionedEventProcessor.createGroup(ringBuffer, sequenceBarrier, keyFunction, handlers);
+        final Thread[] threads = start(processors);
+
+        ringBuffer.publishEvent(StubEvent.TRANSLATOR, 0, "");
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        for (final PartitionedEventProcessor<StubEvent> processor : processors)
+        {
+            while (processor.getSequence().get() != 0L)
+            {
+                Thread.yield();
+            }
+        }
+        halt(processors, threads);
+
+        int handled = 0;
+        for (final RecordingEventHandler handler : handlers)
+        {
+            handled += handler.values.size();
+        }
+        assertEquals(1, handled);
+    }
+
+    @Test
+    public void shouldReportEventsWhoseKeyCannotBeExtracted() throws Exception
+    {
+        final CountDownLatch latch = new CountDownLatch(9);
+        final RecordingEventHandler[] handlers = new RecordingEventHandler[PARTITIONS];
+        for (int i = 0; i < PARTITIONS; i++)
+        {
+            handlers[i] = new RecordingEventHandler(latch);
+        }
+        final EventKeyFunction<StubEvent> failingKeyFunction = new EventKeyFunction<StubEvent>()
+        {
+            @Override
+            public Object getKey(final StubEvent event)
+            {
+                if (event.getValue() == 3)
+                {
+                    throw new IllegalArgumentException();
+                }
+                return event.getValue();
+            }
+        };
+        final List<Long> failedSequences = Collections.synchronizedList(new ArrayList<Long>());
+        final PartitionedEventProcessor<StubEvent>[] processors =
+            PartitionedEventProcessor.createGroup(ringBuffer, sequenceBarrier, failingKeyFunction, handlers);
+        for (final PartitionedEventProcessor<StubEvent> processor : processors)
+        {
+            processor.setExceptionHandler(new ExceptionHandler<Object>()
+            {
+                @Override
+                public void handleEventException(final Throwable ex, final long sequence, final Object event)
+                {
+                    failedSequences.add(sequence);
+                }
+
+                @Override
+                public void handleOnStartException(final Throwable ex)
+                {
+                }
+
+                @Override
+                public void handleOnShutdownException(final Throwable ex)
+                {
+                }
+            });
+        }
+        final Thread[] threads = start(processors);
+
+        for (int i = 0; i < 10; i++)
+        {
+            ringBuffer.publishEvent(StubEvent.TRANSLATOR, i, "");
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        halt(processors, threads);
+
+        assertEquals(Collections.singletonList(3L), failedSequences);
+    }
+
+    @Test
+    public void shouldKeepPartitionsOfEventsAfterTheRingBufferGrows() throws Exception
+    {
+        final int events = 64;
+        final CountDownLatch latch = new CountDownLatch(events);
+        final CountDownLatch release = new CountDownLatch(1);
+        final int blockedPartition = PartitionedEventProcessor.partitionFor(0, PARTITIONS);
+        final RecordingEventHandler[] handlers = new RecordingEventHandler[PARTITIONS];
+        for (int i = 0; i < PARTITIONS; i++)
+        {
+            handlers[i] = new RecordingEventHandler(latch, i == blockedPartition ? release : null);
+        }
+        final PartitionedEventProcessor<StubEvent>[] processors =
+            PartitionedEventProcessor.createGroup(ringBuffer, sequenceBarrier, keyFunction, handlers);
+        final Thread[] threads = start(processors);
+
+        ringBuffer.resize(events);
+        for (int i = 0; i < events; i++)
+        {
+            ringBuffer.publishEvent(StubEvent.TRANSLATOR, i, "");
+        }
+        //其他分区把所有序号都分区完之后才放开第一个事件的分区，它落后的距离超过了原来的大小
+        for (int i = 0; i < PARTITIONS; i++)
+        {
+            while (i != blockedPartition && processors[i].getSequence().get() != events - 1)
+            {
+                Thread.yield();
+            }
+        }
+        release.countDown();
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        halt(processors, threads);
+
+        for (int partition = 0; partition < PARTITIONS; partition++)
+        {
+            for (final int value : handlers[partition].values)
+            {
+                assertEquals(partition, PartitionedEventProcessor.partitionFor(value % KEYS, PARTITIONS));
+            }
+        }
+    }
+
+    private Thread[] start(final PartitionedEventProcessor<StubEvent>[] processors)
+    {
+        final Thread[] threads = new Thread[processors.length];
+        for (int i = 0; i < processors.length; i++)
+        {
+            ringBuffer.addGatingSequences(processors[i].getSequence());
+            threads[i] = new Thread(processors[i]);
+            threads[i].start();
+        }
+        return threads;
+    }
+
+    private static void halt(final PartitionedEventProcessor<StubEvent>[] processors, final Thread[] threads)
+        throws InterruptedException
+    {
+        for (int i = 0; i < processors.length; i++)
+        {
+            processors[i].halt();
+            threads[i].join();
+        }
+    }
+
+    private static final class RecordingEventHandler implements EventHandler<StubEvent>
+    {
+        private final List<Integer> values = new ArrayList<Integer>();
+        private final CountDownLatch latch;
+        private final CountDownLatch release;
+
+        RecordingEventHandler(final CountDownLatch latch)
+        {
+            this(latch, null);
+        }
+
+        RecordingEventHandler(final CountDownLatch latch, final CountDownLatch release)
+        {
+            this.latch = latch;
+            this.release = release;
+        }
+
+        @Override
+        public void onEvent(final StubEvent event, final long sequence, final boolean endOfBatch) throws Exception
+        {
+            if (release != null)
+            {
+                release.await();
+            }
+            values.add(event.getValue());
+            latch.countDown();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import com.lmax.disruptor.dsl.ProducerType;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(Parameterized.class)
+public class ProducerWaitStrategyTest
+{
+    private static final int BUFFER_SIZE = 16;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(DaemonThreadFactory.INSTANCE);
+
+    private final Sequencer sequencer;
+    private final Sequence gatingSequence = new Sequence();
+
+    public ProducerWaitStrategyTest(ProducerType producerType, ProducerWaitStrategy producerWaitStrategy)
+    {
+        switch (producerType)
+        {
+            case SINGLE:
+                sequencer = new SingleProducerSequencer(BUFFER_SIZE, new BlockingWaitStrategy(), producerWaitStrategy);
+                break;
+            case MULTI:
+                sequencer = new MultiProducerSequencer(BUFFER_SIZE, new BlockingWaitStrategy(), producerWaitStrategy);
+                break;
+            default:
+                throw new IllegalStateException(producerType.toString());
+        }
+    }
+
+    @Parameters
+    public static Collection<Object[]> generateData()
+    {
+        Object[][] strategies =
+            {
+                {ProducerType.SINGLE, new SleepingProducerWaitStrategy()},
+                {ProducerType.MULTI, new SleepingProducerWaitStrategy()},
+                {ProducerType.SINGLE, new BusySpinProducerWaitStrategy()},
+                {ProducerType.MULTI, new BusySpinProducerWaitStrategy()},
+                {ProducerType.SINGLE, new YieldingProducerWaitStrategy()},
+                {ProducerType.MULTI, new YieldingProducerWaitStrategy()},
+                {ProducerType.SINGLE, PhasedBackoffProducerWaitStrategy.withLock(1, 1, TimeUnit.MILLISECONDS)},
+                {ProducerType.MULTI, PhasedBackoffProducerWaitStrategy.withSleep(1, 1, TimeUnit.MILLISECONDS)},
+                {ProducerType.SINGLE, new BlockingProducerWaitStrategy()},
+                {ProducerType.MULTI, new BlockingProducerWaitStrategy()},
+            };
+        return Arrays.asList(strategies);
+    }
+
+    @Test
+    public void shouldHoldUpPublisherUntilGatingSequenceAdvances() throws Exception
+    {
+        sequencer.addGatingSequences(gatingSequence);
+        long sequence = sequencer.next(BUFFER_SIZE);
+        sequencer.publish(sequence - (BUFFER_SIZE - 1), sequence);
+
+        final CountDownLatch waitingLatch = new CountDownLatch(1);
+        final CountDownLatch doneLatch = new CountDownLatch(1);
+
+        executor.submit(
+            new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    waitingLatch.countDown();
+
+                    long next = sequencer.next();
+                    sequencer.publish(next);
+
+                    doneLatch.countDown();
+                }
+            });
+
+        waitingLatch.await();
+        assertThat(doneLatch.await(10, TimeUnit.MILLISECONDS), is(false));
+
+        gatingSequence.set(Sequencer.INITIAL_CURSOR_VALUE + 1L);
+
+        assertTrue(doneLatch.await(5, TimeUnit.SECONDS));
+        assertThat(sequencer.getCursor(), is((long) BUFFER_SIZE));
+    }
+}
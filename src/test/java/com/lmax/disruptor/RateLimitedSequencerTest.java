@@ -0,0 +1,125 @@
+/*
+ * Copyright 2012 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import com.lmax.disruptor.support.StubEvent;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class RateLimitedSequencerTest
+{
+    @Test
+    public void shouldLetBurstThroughThenRejectSingleProducerClaims() throws Exception
+    {
+        assertBurstThenReject(new SingleProducerSequencer(16, new BlockingWaitStrategy()));
+    }
+
+    @Test
+    public void shouldLetBurstThroughThenRejectMultiProducerClaims() throws Exception
+    {
+        assertBurstThenReject(new MultiProducerSequencer(16, new BlockingWaitStrategy()));
+    }
+
+    @Test
+    public void shouldPaceClaimsOnceBurstIsUsedUp() throws Exception
+    {
+        RateLimitedSequencer sequencer =
+            new RateLimitedSequencer(new MultiProducerSequencer(16, new BlockingWaitStrategy()), 100, 1);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 6; i++)
+        {
+            sequencer.publish(sequencer.next());
+        }
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals(5L, sequencer.getCursor());
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(45));
+    }
+
+    @Test
+    public void shouldReturnPermitsWhenRingBufferIsFull() throws Exception
+    {
+        Sequence gatingSequence = new Sequence();
+        RateLimitedSequencer sequencer =
+            new RateLimitedSequencer(new SingleProducerSequencer(4, new BlockingWaitStrategy()), 1, 8);
+        sequencer.addGatingSequences(gatingSequence);
+
+        sequencer.publish(sequencer.tryNext(4));
+        try
+        {
+            sequencer.tryNext();
+            fail("Should have thrown InsufficientCapacityException");
+        }
+        catch (InsufficientCapacityException e)
+        {
+            // expected
+        }
+
+        gatingSequence.set(3L);
+        sequencer.publish(sequencer.tryNext(4));
+        assertEquals(7L, sequencer.getCursor());
+    }
+
+    @Test
+    public void shouldPublishThroughRateLimitedRingBuffer() throws Exception
+    {
+        RingBuffer<StubEvent> ringBuffer = RingBuffer.createRateLimited(
+            StubEvent.EVENT_FACTORY, new SingleProducerSequencer(16, new BlockingWaitStrategy()), 1, 2);
+
+        assertTrue(ringBuffer.tryPublishEvent(StubEvent.TRANSLATOR, 1, ""));
+        assertTrue(ringBuffer.tryPublishEvent(StubEvent.TRANSLATOR, 2, ""));
+        assertFalse(ringBuffer.tryPublishEvent(StubEvent.TRANSLATOR, 3, ""));
+
+        assertEquals(1L, ringBuffer.getCursor());
+        assertEquals(2, ringBuffer.get(1).getValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectZeroBurstSize() throws Exception
+    {
+        new RateLimitedSequencer(new SingleProducerSequencer(16, new BlockingWaitStrategy()), 1, 0);
+    }
+
+    private static void assertBurstThenReject(final Sequencer delegate) throws Exception
+    {
+        RateLimitedSequencer sequencer = new RateLimitedSequencer(delegate, 1, 4);
+
+        for (int i = 0; i < 4; i++)
+        {
+            sequencer.publish(sequencer.tryNext());
+        }
+
+        try
+        {
+            sequencer.tryNext();
+            fail("Should have thrown InsufficientCapacityException");
+        }
+        catch (InsufficientCapacityException e)
+        {
+            // expected
+        }
+
+        assertEquals(3L, sequencer.getCursor());
+        assertTrue(sequencer.hasAvailableCapacity(1));
+    }
+}
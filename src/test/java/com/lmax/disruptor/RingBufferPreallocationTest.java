@@ -0,0 +1,164 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.lmax.disruptor.dsl.ProducerType;
+import com.lmax.disruptor.support.StubEvent;
+
+@RunWith(Parameterized.class)
+public class RingBufferPreallocationTest
+{
+    private static final int BUFFER_SIZE = 1 << 15;
+
+    private final Preallocation preallocation;
+    private final CountingEventFactory eventFactory = new CountingEventFactory();
+
+    public RingBufferPreallocationTest(Preallocation preallocation)
+    {
+        this.preallocation = preallocation;
+    }
+
+    @Parameters
+    public static Collection<Object[]> generateData()
+    {
+        Collection<Object[]> data = new ArrayList<Object[]>();
+        for (Preallocation preallocation : Preallocation.values())
+        {
+            data.add(new Object[] {preallocation});
+        }
+        return data;
+    }
+
+    @Test
+    public void shouldProvideADistinctEventForEverySlot() throws Exception
+    {
+        RingBuffer<StubEvent> ringBuffer = newRingBuffer(BUFFER_SIZE);
+
+        Set<StubEvent> events = Collections.newSetFromMap(new IdentityHashMap<StubEvent, Boolean>());
+        for (int i = 0; i < BUFFER_SIZE; i++)
+        {
+            StubEvent event = ringBuffer.get(i);
+            assertThat(event != null, is(true));
+            events.add(event);
+        }
+
+        assertThat(events.size(), is(BUFFER_SIZE));
+        assertThat(eventFactory.count.get(), is(BUFFER_SIZE));
+    }
+
+    @Test
+    public void shouldReuseEventsOnLaterLaps() throws Exception
+    {
+        RingBuffer<StubEvent> ringBuffer = newRingBuffer(8);
+        Sequence gatingSequence = new Sequence();
+        ringBuffer.addGatingSequences(gatingSequence);
+
+        StubEvent firstEvent = ringBuffer.get(ringBuffer.next());
+        ringBuffer.publish(0);
+        gatingSequence.set(0);
+        for (int i = 1; i < 8; i++)
+        {
+            ringBuffer.publish(ringBuffer.next());
+        }
+        gatingSequence.set(7);
+
+        long sequence = ringBuffer.next();
+
+        assertThat(sequence, is(8L));
+        assertThat(ringBuffer.get(sequence), sameInstance(firstEvent));
+        assertThat(ringBuffer.get(1), not(sameInstance(firstEvent)));
+    }
+
+    @Test
+    public void shouldOnlyCreateEventsWhenFirstReadIfLazy() throws Exception
+    {
+        RingBuffer<StubEvent> ringBuffer = newRingBuffer(BUFFER_SIZE);
+        int expectedOnConstruction = preallocation == Preallocation.LAZY ? 0 : BUFFER_SIZE;
+
+        assertThat(eventFactory.count.get(), is(expectedOnConstruction));
+
+        StubEvent event = ringBuffer.get(ringBuffer.next());
+
+        assertThat(ringBuffer.get(0), sameInstance(event));
+        assertThat(eventFactory.count.get(), is(expectedOnConstruction == 0 ? 1 : BUFFER_SIZE));
+    }
+
+    @Test
+    public void shouldPreallocateTheNewRegionWhenGrowing() throws Exception
+    {
+        RingBuffer<StubEvent> ringBuffer = newRingBuffer(8);
+        StubEvent firstEvent = ringBuffer.get(0);
+        int created = eventFactory.count.get();
+
+        ringBuffer.resize(16);
+
+        assertThat(ringBuffer.get(0), sameInstance(firstEvent));
+        assertThat(eventFactory.count.get(), is(preallocation == Preallocation.LAZY ? created : 16));
+        assertThat(ringBuffer.get(15) != null, is(true));
+    }
+
+    @Test
+    public void shouldPreallocateTheNewRegionWhenGrowingByLessThanTwoChunks() throws Exception
+    {
+        RingBuffer<StubEvent> ringBuffer = newRingBuffer(1024);
+        int created = eventFactory.count.get();
+
+        ringBuffer.resize(8192);
+
+        assertThat(eventFactory.count.get(), is(preallocation == Preallocation.LAZY ? created : 8192));
+        Set<StubEvent> events = Collections.newSetFromMap(new IdentityHashMap<StubEvent, Boolean>());
+        for (int i = 0; i < 8192; i++)
+        {
+            events.add(ringBuffer.get(i));
+        }
+        assertThat(events.size(), is(8192));
+    }
+
+    private RingBuffer<StubEvent> newRingBuffer(final int bufferSize)
+    {
+        return RingBuffer.create(
+            ProducerType.SINGLE, eventFactory, bufferSize, new BlockingWaitStrategy(),
+            new SleepingProducerWaitStrategy(), AvailabilityTracking.FLAGS, preallocation);
+    }
+
+    private static final class CountingEventFactory implements EventFactory<StubEvent>
+    {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public StubEvent newInstance()
+        {
+            return new StubEvent(count.getAndIncrement());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.lmax.disruptor.dsl.ProducerType;
+import com.lmax.disruptor.support.StubEvent;
+
+@RunWith(Parameterized.class)
+public class RingBufferResizeTest
+{
+    private final RingBuffer<StubEvent> ringBuffer;
+    private final Sequence gatingSequence = new Sequence();
+    private final SequenceBarrier sequenceBarrier;
+
+    public RingBufferResizeTest(ProducerType producerType, AvailabilityTracking availabilityTracking)
+    {
+        ringBuffer = RingBuffer.create(
+            producerType, StubEvent.EVENT_FACTORY, 8, new BlockingWaitStrategy(),
+            new SleepingProducerWaitStrategy(), availabilityTracking);
+        ringBuffer.addGatingSequences(gatingSequence);
+        sequenceBarrier = ringBuffer.newBarrier();
+    }
+
+    @Parameters
+    public static Collection<Object[]> generateData()
+    {
+        Collection<Object[]> data = new ArrayList<Object[]>();
+        data.add(new Object[] {ProducerType.SINGLE, AvailabilityTracking.FLAGS});
+        for (ProducerType producerType : new ProducerType[] {ProducerType.MULTI, ProducerType.MULTI_FETCH_ADD})
+        {
+            for (AvailabilityTracking availabilityTracking : AvailabilityTracking.values())
+            {
+                data.add(new Object[] {producerType, availabilityTracking});
+            }
+        }
+        return data;
+    }
+
+    @Test
+    public void shouldGrowAndKeepTheAllocatedEvents() throws Exception
+    {
+        publish(0, 8);
+        StubEvent firstEvent = ringBuffer.get(0);
+        gatingSequence.set(7);
+
+        ringBuffer.resize(32);
+
+        assertThat(ringBuffer.getBufferSize(), is(32));
+        assertThat(ringBuffer.getCursor(), is(7L));
+        assertThat(ringBuffer.remainingCapacity(), is(32L));
+        assertThat(ringBuffer.get(32), sameInstance(firstEvent));
+
+        publish(8, 32);
+
+        assertThat(ringBuffer.hasAvailableCapacity(1), is(false));
+        assertThat(sequenceBarrier.waitFor(8), is(39L));
+        for (long sequence = 8; sequence <= 39; sequence++)
+        {
+            assertThat(ringBuffer.get(sequence).getValue(), is((int) sequence));
+        }
+    }
+
+    @Test
+    public void shouldShrinkAndGateOnTheNewSize() throws Exception
+    {
+        ringBuffer.resize(16);
+        publish(0, 13);
+        gatingSequence.set(12);
+
+        ringBuffer.resize(4);
+
+        assertThat(ringBuffer.getBufferSize(), is(4));
+        assertThat(ringBuffer.isPublished(12), is(true));
+        assertThat(ringBuffer.isPublished(13), is(false));
+
+        publish(13, 4);
+
+        assertThat(ringBuffer.hasAvailableCapacity(1), is(false));
+        assertThat(sequenceBarrier.waitFor(13), is(16L));
+        assertThat(ringBuffer.get(16).getValue(), is(16));
+    }
+
+    @Test
+    public void shouldWaitForGatingSequencesBeforeResizing() throws Exception
+    {
+        publish(0, 4);
+        final AtomicBoolean resized = new AtomicBoolean(false);
+        Thread thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ringBuffer.resize(16);
+                resized.set(true);
+            }
+        });
+        thread.start();
+
+        Thread.sleep(50);
+        assertThat(resized.get(), is(false));
+        assertThat(ringBuffer.getBufferSize(), is(8));
+
+        gatingSequence.set(3);
+        thread.join(2000);
+
+        assertThat(resized.get(), is(true));
+        assertThat(ringBuffer.getBufferSize(), is(16));
+    }
+
+    @Test
+    public void shouldKeepPollingAfterResize() throws Exception
+    {
+        ringBuffer.removeGatingSequence(gatingSequence);
+        EventPoller<StubEvent> poller = ringBuffer.newPoller();
+        ringBuffer.addGatingSequences(poller.getSequence());
+        final RecordingHandler handler = new RecordingHandler();
+
+        publish(0, 8);
+        poller.poll(handler);
+        ringBuffer.resize(16);
+        publish(8, 16);
+
+        assertThat(poller.poll(handler), is(EventPoller.PollState.PROCESSING));
+        assertThat(handler.lastValue, is(23));
+        assertThat(poller.poll(handler), is(EventPoller.PollState.IDLE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectSizeThatIsNotAPowerOfTwo() throws Exception
+    {
+        ringBuffer.resize(12);
+    }
+
+    private void publish(final int firstValue, final int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            long sequence = ringBuffer.next();
+            ringBuffer.get(sequence).setValue(firstValue + i);
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    private static final class RecordingHandler implements EventPoller.Handler<StubEvent>
+    {
+        private int lastValue = -1;
+
+        @Override
+        public boolean onEvent(StubEvent event, long sequence, boolean endOfBatch) throws Exception
+        {
+            lastValue = event.getValue();
+            return true;
+        }
+    }
+}
@@ -25,8 +25,15 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutorService;
@@ -337,6 +344,163 @@ public class RingBufferTest
         assertThat(ringBuffer, ringBufferWithEvents("Foo-0", "Foo-1", "Foo-2", "Foo-3"));
     }
 
+    @Test
+    public void shouldPublishEventsOneArgFromCollection() throws Exception
+    {
+        RingBuffer<Object[]> ringBuffer = RingBuffer.createSingleProducer(new ArrayFactory(1), 4);
+        EventTranslatorOneArg<Object[], String> translator = new OneArgEventTranslator();
+
+        assertEquals(3L, ringBuffer.publishEvents(translator, Arrays.asList("Foo", "Bar", "Baz")));
+
+        assertThat(ringBuffer, ringBufferWithEvents("Foo-0", "Bar-1", "Baz-2"));
+        assertEquals(2L, ringBuffer.getCursor());
+    }
+
+    @Test
+    public void shouldPublishEventsOneArgFromIterator() throws Exception
+    {
+        RingBuffer<Object[]> ringBuffer = RingBuffer.createMultiProducer(new ArrayFactory(1), 4);
+        EventTranslatorOneArg<Object[], String> translator = new OneArgEventTranslator();
+        final List<String> values = Arrays.asList("Foo", "Bar", "Baz");
+
+        long published = ringBuffer.publishEvents(translator, new Iterable<String>()
+        {
+            @Override
+            public Iterator<String> iterator()
+            {
+                return values.iterator();
+            }
+        });
+
+        assertEquals(3L, published);
+        assertThat(ringBuffer, ringBufferWithEvents("Foo-0", "Bar-1", "Baz-2"));
+        assertEquals(0L, ringBuffer.publishEvents(translator, Collections.<String>emptyList().iterator()));
+    }
+
+    @Test
+    public void shouldTakeAChunkFromTheIteratorBeforeClaimingItsSequences() throws Exception
+    {
+        final RingBuffer<Object[]> ringBuffer = RingBuffer.createMultiProducer(new ArrayFactory(1), 8);
+        ringBuffer.addGatingSequences(new Sequence());
+        EventTranslatorOneArg<Object[], String> translator = new OneArgEventTranslator();
+        final List<String> values = Arrays.asList("Foo", "Bar", "Baz");
+        final List<Long> cursors = new ArrayList<Long>();
+        Iterator<String> source = new Iterator<String>()
+        {
+            private final Iterator<String> delegate = values.iterator();
+
+            @Override
+            public boolean hasNext()
+            {
+                return delegate.hasNext();
+            }
+
+            @Override
+            public String next()
+            {
+                cursors.add(ringBuffer.getCursor());
+                return delegate.next();
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        long published = ringBuffer.publishEvents(translator, source);
+
+        assertEquals(3L, published);
+        assertEquals(Arrays.asList(-1L, -1L, -1L), cursors);
+        assertThat(ringBuffer, ringBufferWithEvents("Foo-0", "Bar-1", "Baz-2"));
+    }
+
+    @Test
+    public void shouldOnlyPublishTheElementsOfACollectionThatShrinksWhilePublishing() throws Exception
+    {
+        RingBuffer<Object[]> ringBuffer = RingBuffer.createMultiProducer(new ArrayFactory(1), 8);
+        EventTranslatorOneArg<Object[], String> translator = new OneArgEventTranslator();
+        final List<String> values = Arrays.asList("Foo", "Bar", "Baz");
+        //size()还是旧的大小，但元素已经被并发地移除了一部分
+        Collection<String> shrinking = new AbstractCollection<String>()
+        {
+            @Override
+            public Iterator<String> iterator()
+            {
+                return values.iterator();
+            }
+
+            @Override
+            public int size()
+            {
+                return 5;
+            }
+        };
+
+        long published = ringBuffer.publishEvents(translator, shrinking);
+
+        assertEquals(3L, published);
+        assertEquals(2L, ringBuffer.getCursor());
+        assertThat(ringBuffer, ringBufferWithEvents("Foo-0", "Bar-1", "Baz-2"));
+    }
+
+    @Test
+    public void shouldPublishMoreEventsFromIteratorThanTheBufferSize() throws Exception
+    {
+        assertPublishesInOrder(false);
+    }
+
+    @Test
+    public void shouldPublishMoreEventsFromCollectionThanTheBufferSize() throws Exception
+    {
+        assertPublishesInOrder(true);
+    }
+
+    private void assertPublishesInOrder(final boolean sized) throws Exception
+    {
+        final RingBuffer<Object[]> ringBuffer = RingBuffer.createMultiProducer(new ArrayFactory(1), 8);
+        final Sequence consumed = new Sequence();
+        ringBuffer.addGatingSequences(consumed);
+        final SequenceBarrier barrier = ringBuffer.newBarrier();
+        final List<Integer> values = new ArrayList<Integer>();
+        for (int i = 0; i < 50; i++)
+        {
+            values.add(i);
+        }
+
+        Future<Long> published = executor.submit(new Callable<Long>()
+        {
+            @Override
+            public Long call() throws Exception
+            {
+                EventTranslatorOneArg<Object[], Integer> translator = new EventTranslatorOneArg<Object[], Integer>()
+                {
+                    @Override
+                    public void translateTo(Object[] event, long sequence, Integer arg0)
+                    {
+                        event[0] = arg0;
+                    }
+                };
+                return sized ?
+                    ringBuffer.publishEvents(translator, values) :
+                    ringBuffer.publishEvents(translator, values.iterator());
+            }
+        });
+
+        for (long sequence = 0; sequence < 50; )
+        {
+            long available = barrier.waitFor(sequence);
+            for (; sequence <= available; sequence++)
+            {
+                assertEquals((int) sequence, ringBuffer.get(sequence)[0]);
+            }
+            consumed.set(available);
+        }
+
+        assertEquals(50L, published.get().longValue());
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void shouldNotPublishEventsOneArgIfBatchIsLargerThanRingBuffer() throws Exception
     {
@@ -161,6 +161,12 @@ public class RingBufferWithAssertingStubTest
             return 0;
         }
 
+        @Override
+        public long getMinimumSequence(long required)
+        {
+            return 0;
+        }
+
         @Override
         public long getHighestPublishedSequence(long nextSequence, long availableSequence)
         {
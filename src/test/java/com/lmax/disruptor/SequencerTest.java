@@ -40,6 +40,7 @@ public class SequencerTest
             {
                 {ProducerType.SINGLE, new BlockingWaitStrategy()},
                 {ProducerType.MULTI, new BlockingWaitStrategy()},
+                {ProducerType.MULTI_FETCH_ADD, new BlockingWaitStrategy()},
             };
         return Arrays.asList(allocators);
     }
@@ -111,7 +112,12 @@ public class SequencerTest
             });
 
         waitingLatch.await();
-        assertThat(sequencer.getCursor(), is(expectedFullSequence));
+        if (producerType != ProducerType.MULTI_FETCH_ADD)
+        {
+            // A fetch-and-add claim moves the cursor before it waits for capacity
+            assertThat(sequencer.getCursor(), is(expectedFullSequence));
+        }
+        assertFalse(sequencer.isAvailable(expectedFullSequence + 1L));
 
         gatingSequence.set(Sequencer.INITIAL_CURSOR_VALUE + 1L);
 
@@ -143,6 +149,26 @@ public class SequencerTest
         }
     }
 
+    @Test
+    public void shouldOnlyReportMinimumSequenceAsFarAsRequired() throws Exception
+    {
+        Sequence laggingSequence = new Sequence();
+        sequencer.addGatingSequences(gatingSequence, laggingSequence);
+        long sequence = sequencer.next(BUFFER_SIZE);
+        sequencer.publish(sequence - (BUFFER_SIZE - 1), sequence);
+
+        gatingSequence.set(12L);
+        laggingSequence.set(5L);
+
+        assertThat(sequencer.getMinimumSequence(8L), is(5L));
+        assertThat(sequencer.getMinimumSequence(), is(5L));
+
+        laggingSequence.set(10L);
+
+        assertThat(sequencer.getMinimumSequence(8L) >= 8L, is(true));
+        assertThat(sequencer.getMinimumSequence(), is(10L));
+    }
+
     @Test
     public void shouldNotBeAvailableUntilPublished() throws Exception
     {
@@ -273,6 +299,8 @@ public class SequencerTest
                 return new SingleProducerSequencer(bufferSize, waitStrategy);
             case MULTI:
                 return new MultiProducerSequencer(bufferSize, waitStrategy);
+            case MULTI_FETCH_ADD:
+                return new FetchAddMultiProducerSequencer(bufferSize, waitStrategy);
             default:
                 throw new IllegalStateException(producerType.toString());
         }
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class WorkerPoolScalerTest
+{
+    private final RingBuffer<AtomicLong> ringBuffer = RingBuffer.createMultiProducer(
+        new EventFactory<AtomicLong>()
+        {
+            @Override
+            public AtomicLong newInstance()
+            {
+                return new AtomicLong();
+            }
+        }, 64);
+    private final List<Integer> createdIndexes = new ArrayList<Integer>();
+    private final WorkHandlerFactory<AtomicLong> workHandlerFactory = new WorkHandlerFactory<AtomicLong>()
+    {
+        @Override
+        public WorkHandler<? super AtomicLong> createWorkHandler(final int index)
+        {
+            createdIndexes.add(index);
+            return new NoOpWorkHandler();
+        }
+    };
+
+    @SuppressWarnings("unchecked")
+    private final WorkerPool<AtomicLong> pool = WorkerPool.elastic(
+        ringBuffer, ringBuffer.newBarrier(), new FatalExceptionHandler(), new NoOpWorkHandler());
+    private final WorkerPoolScaler<AtomicLong> scaler = new WorkerPoolScaler<AtomicLong>(pool, workHandlerFactory, 1, 3, 10, 2);
+
+    @Test
+    public void shouldAddWorkersWhileTheBacklogPerWorkerIsAboveTheThreshold()
+    {
+        ringBuffer.addGatingSequences(pool.getWorkerSequences());
+        publish(20);
+
+        scaler.run();
+        assertThat(pool.getWorkerCount(), is(2));
+
+        scaler.run();
+        assertThat(pool.getWorkerCount(), is(2));
+
+        publish(15);
+        scaler.run();
+        assertThat(pool.getWorkerCount(), is(3));
+
+        publish(20);
+        scaler.run();
+        assertThat(pool.getWorkerCount(), is(3));
+        assertThat(createdIndexes, is(Arrays.asList(0, 1)));
+    }
+
+    @Test
+    public void shouldRemoveWorkersAfterIdleSamplesDownToTheMinimum()
+    {
+        pool.addWorker(new NoOpWorkHandler());
+        pool.addWorker(new NoOpWorkHandler());
+
+        scaler.run();
+        assertThat(pool.getWorkerCount(), is(3));
+        scaler.run();
+        assertThat(pool.getWorkerCount(), is(2));
+
+        scaler.run();
+        assertThat(pool.getWorkerCount(), is(2));
+        scaler.run();
+        assertThat(pool.getWorkerCount(), is(1));
+
+        scaler.run();
+        scaler.run();
+        assertThat(pool.getWorkerCount(), is(1));
+    }
+
+    @Test
+    public void shouldStartCountingIdleSamplesAgainWhenThereIsABacklog()
+    {
+        ringBuffer.addGatingSequences(pool.getWorkerSequences());
+        pool.addWorker(new NoOpWorkHandler());
+
+        scaler.run();
+        publish(1);
+        scaler.run();
+        pool.getWorkerSequences()[0].set(ringBuffer.getCursor());
+        scaler.run();
+        assertThat(pool.getWorkerCount(), is(2));
+
+        scaler.run();
+        assertThat(pool.getWorkerCount(), is(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAllowMaximumBelowMinimum()
+    {
+        new WorkerPoolScaler<AtomicLong>(pool, workHandlerFactory, 2, 1, 10, 2);
+    }
+
+    private void publish(final int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            ringBuffer.publish(ringBuffer.next());
+        }
+    }
+
+    private static final class NoOpWorkHandler implements WorkHandler<AtomicLong>
+    {
+        @Override
+        public void onEvent(final AtomicLong event)
+        {
+        }
+    }
+}
@@ -3,8 +3,11 @@ package com.lmax.disruptor;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Test;
@@ -56,6 +59,324 @@ public class WorkerPoolTest
         assertThat(ringBuffer.get(1).get(), is(0L));
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldProcessEachMessageOnceWithBatchedClaims() throws Exception
+    {
+        Executor executor = Executors.newCachedThreadPool(DaemonThreadFactory.INSTANCE);
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong sum = new AtomicLong();
+        WorkHandler<AtomicLong> handler = new WorkHandler<AtomicLong>()
+        {
+            @Override
+            public void onEvent(AtomicLong event) throws Exception
+            {
+                count.incrementAndGet();
+                sum.addAndGet(event.get());
+            }
+        };
+        WorkerPool<AtomicLong> pool = new WorkerPool<AtomicLong>(
+            new AtomicLongEventFactory(), new FatalExceptionHandler(), handler, handler, handler);
+        pool.setClaimBatchSize(16);
+
+        RingBuffer<AtomicLong> ringBuffer = pool.start(executor);
+
+        final int events = 5000;
+        for (int i = 0; i < events; i++)
+        {
+            long sequence = ringBuffer.next();
+            ringBuffer.get(sequence).set(i);
+            ringBuffer.publish(sequence);
+        }
+        pool.drainAndHalt();
+
+        assertThat(count.get(), is((long) events));
+        assertThat(sum.get(), is((long) events * (events - 1) / 2));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotAllowClaimBatchSizeToBeSetAfterStart() throws Exception
+    {
+        WorkerPool<AtomicLong> pool = new WorkerPool<AtomicLong>(
+            new AtomicLongEventFactory(), new FatalExceptionHandler(), new AtomicLongWorkHandler());
+        pool.start(Executors.newCachedThreadPool(DaemonThreadFactory.INSTANCE));
+        try
+        {
+            pool.setClaimBatchSize(16);
+        }
+        finally
+        {
+            pool.halt();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldProcessEachMessageOnceWhenWorkStealing() throws Exception
+    {
+        Executor executor = Executors.newCachedThreadPool(DaemonThreadFactory.INSTANCE);
+        final int events = 5000;
+        final AtomicIntegerArray processed = new AtomicIntegerArray(events);
+        WorkHandler<AtomicLong> handler = new WorkHandler<AtomicLong>()
+        {
+            @Override
+            public void onEvent(AtomicLong event) throws Exception
+            {
+                final int value = (int) event.get();
+                if (value % 101 == 0)
+                {
+                    Thread.sleep(1);
+                }
+                processed.incrementAndGet(value);
+            }
+        };
+        RingBuffer<AtomicLong> ringBuffer = RingBuffer.createMultiProducer(new AtomicLongEventFactory(), 64);
+        WorkerPool<AtomicLong> pool = WorkerPool.workStealing(
+            ringBuffer, ringBuffer.newBarrier(), new FatalExceptionHandler(), 4, handler, handler, handler);
+        ringBuffer.addGatingSequences(pool.getWorkerSequences());
+
+        pool.start(executor);
+
+        for (int i = 0; i < events; i++)
+        {
+            long sequence = ringBuffer.next();
+            ringBuffer.get(sequence).set(i);
+            ringBuffer.publish(sequence);
+        }
+        pool.drainAndHalt();
+
+        for (int i = 0; i < events; i++)
+        {
+            assertThat(processed.get(i), is(1));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldDrainWorkStealingPoolWhenPublishingEndsInTheMiddleOfABlock() throws Exception
+    {
+        Executor executor = Executors.newCachedThreadPool(DaemonThreadFactory.INSTANCE);
+        RingBuffer<AtomicLong> ringBuffer = RingBuffer.createMultiProducer(new AtomicLongEventFactory(), 64);
+        WorkerPool<AtomicLong> pool = WorkerPool.workStealing(
+            ringBuffer, ringBuffer.newBarrier(), new FatalExceptionHandler(), 4,
+            new AtomicLongWorkHandler(), new AtomicLongWorkHandler());
+        ringBuffer.addGatingSequences(pool.getWorkerSequences());
+
+        pool.start(executor);
+
+        for (int i = 0; i < 5; i++)
+        {
+            ringBuffer.publish(ringBuffer.next());
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (ringBuffer.getMinimumGatingSequence() != 4L && System.currentTimeMillis() < deadline)
+        {
+            Thread.yield();
+        }
+        assertThat(ringBuffer.getMinimumGatingSequence(), is(4L));
+        pool.drainAndHalt();
+
+        for (int i = 0; i < 5; i++)
+        {
+            assertThat(ringBuffer.get(i).get(), is(1L));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldStealFromTheBlockOfABlockedWorker() throws Exception
+    {
+        Executor executor = Executors.newCachedThreadPool(DaemonThreadFactory.INSTANCE);
+        final CountDownLatch blocking = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch stolen = new CountDownLatch(7);
+        final Sequence[] workerSequences = new Sequence[2];
+        final AtomicLong lowestThiefSequence = new AtomicLong(Long.MAX_VALUE);
+        WorkHandler<AtomicLong> blocked = new WorkHandler<AtomicLong>()
+        {
+            @Override
+            public void onEvent(AtomicLong event) throws Exception
+            {
+                event.incrementAndGet();
+                blocking.countDown();
+                release.await();
+            }
+        };
+        WorkHandler<AtomicLong> thief = new WorkHandler<AtomicLong>()
+        {
+            @Override
+            public void onEvent(AtomicLong event) throws Exception
+            {
+                event.incrementAndGet();
+                //偷取时thief的sequence不能往回调
+                lowestThiefSequence.set(Math.min(lowestThiefSequence.get(), workerSequences[1].get()));
+                stolen.countDown();
+            }
+        };
+        RingBuffer<AtomicLong> ringBuffer = RingBuffer.createMultiProducer(new AtomicLongEventFactory(), 64);
+        WorkerPool<AtomicLong> pool = WorkerPool.workStealing(
+            ringBuffer, ringBuffer.newBarrier(), new FatalExceptionHandler(), 8, blocked, thief);
+        System.arraycopy(pool.getWorkerSequences(), 0, workerSequences, 0, 2);
+        ringBuffer.addGatingSequences(pool.getWorkerSequences());
+
+        pool.start(executor);
+
+        ringBuffer.publish(ringBuffer.next());
+        assertThat(blocking.await(5, TimeUnit.SECONDS), is(true));
+        long hi = ringBuffer.next(7);
+        ringBuffer.publish(hi - 6, hi);
+
+        assertThat(stolen.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(ringBuffer.getMinimumGatingSequence(), is(-1L));
+        assertThat(lowestThiefSequence.get(), is(7L));
+
+        release.countDown();
+        pool.drainAndHalt();
+
+        for (int i = 0; i < 8; i++)
+        {
+            assertThat(ringBuffer.get(i).get(), is(1L));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldOnlyReleaseCompletedEventsInOrderFromInOrderPool() throws Exception
+    {
+        Executor executor = Executors.newCachedThreadPool(DaemonThreadFactory.INSTANCE);
+        final int events = 2000;
+        WorkHandler<AtomicLong> handler = new WorkHandler<AtomicLong>()
+        {
+            @Override
+            public void onEvent(AtomicLong event) throws Exception
+            {
+                if (event.get() % 97 == 0)
+                {
+                    Thread.sleep(1);
+                }
+                event.set(-event.get() - 1);
+            }
+        };
+        RingBuffer<AtomicLong> ringBuffer = RingBuffer.createMultiProducer(new AtomicLongEventFactory(), 64);
+        WorkerPool<AtomicLong> pool = WorkerPool.inOrder(
+            ringBuffer, ringBuffer.newBarrier(), new FatalExceptionHandler(), handler, handler, handler);
+        assertThat(pool.getWorkerSequences().length, is(1));
+
+        final AtomicLong outOfOrder = new AtomicLong();
+        final CountDownLatch latch = new CountDownLatch(events);
+        BatchEventProcessor<AtomicLong> journal = new BatchEventProcessor<AtomicLong>(
+            ringBuffer, ringBuffer.newBarrier(pool.getWorkerSequences()), new EventHandler<AtomicLong>()
+            {
+                @Override
+                public void onEvent(AtomicLong event, long sequence, boolean endOfBatch) throws Exception
+                {
+                    //每个事件都应该已经被worker处理过
+                    if (event.get() != -sequence - 1)
+                    {
+                        outOfOrder.incrementAndGet();
+                    }
+                    latch.countDown();
+                }
+            });
+        ringBuffer.addGatingSequences(journal.getSequence());
+
+        pool.start(executor);
+        executor.execute(journal);
+
+        for (int i = 0; i < events; i++)
+        {
+            long sequence = ringBuffer.next();
+            ringBuffer.get(sequence).set(i);
+            ringBuffer.publish(sequence);
+        }
+
+        assertThat(latch.await(5, TimeUnit.SECONDS), is(true));
+        journal.halt();
+        pool.halt();
+
+        assertThat(outOfOrder.get(), is(0L));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldNotAllowClaimBatchSizeForWorkStealingPool() throws Exception
+    {
+        RingBuffer<AtomicLong> ringBuffer = RingBuffer.createMultiProducer(new AtomicLongEventFactory(), 64);
+        WorkerPool<AtomicLong> pool = WorkerPool.workStealing(
+            ringBuffer, ringBuffer.newBarrier(), new FatalExceptionHandler(), 8, new AtomicLongWorkHandler());
+        pool.setClaimBatchSize(16);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldProcessEachMessageOnceWhileWorkersAreAddedAndRemoved() throws Exception
+    {
+        Executor executor = Executors.newCachedThreadPool(DaemonThreadFactory.INSTANCE);
+        final int events = 5000;
+        final AtomicIntegerArray processed = new AtomicIntegerArray(events);
+        WorkHandler<AtomicLong> handler = new WorkHandler<AtomicLong>()
+        {
+            @Override
+            public void onEvent(AtomicLong event) throws Exception
+            {
+                processed.incrementAndGet((int) event.get());
+            }
+        };
+        RingBuffer<AtomicLong> ringBuffer = RingBuffer.createMultiProducer(new AtomicLongEventFactory(), 64);
+        WorkerPool<AtomicLong> pool = WorkerPool.elastic(
+            ringBuffer, ringBuffer.newBarrier(), new FatalExceptionHandler(), handler);
+        ringBuffer.addGatingSequences(pool.getWorkerSequences());
+
+        pool.start(executor);
+
+        for (int i = 0; i < events; i++)
+        {
+            if (i == 1000 || i == 2000)
+            {
+                pool.addWorker(handler);
+            }
+            else if (i == 3000 || i == 4000)
+            {
+                assertThat(pool.removeWorker(), is(true));
+            }
+            long sequence = ringBuffer.next();
+            ringBuffer.get(sequence).set(i);
+            ringBuffer.publish(sequence);
+        }
+        pool.drainAndHalt();
+
+        assertThat(pool.getWorkerCount(), is(1));
+        for (int i = 0; i < events; i++)
+        {
+            assertThat(processed.get(i), is(1));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldKeepTheLastWorkerOfAnElasticPool() throws Exception
+    {
+        RingBuffer<AtomicLong> ringBuffer = RingBuffer.createMultiProducer(new AtomicLongEventFactory(), 64);
+        WorkerPool<AtomicLong> pool = WorkerPool.elastic(
+            ringBuffer, ringBuffer.newBarrier(), new FatalExceptionHandler(), new AtomicLongWorkHandler());
+
+        pool.addWorker(new AtomicLongWorkHandler());
+
+        assertThat(pool.removeWorker(), is(true));
+        assertThat(pool.removeWorker(), is(false));
+        assertThat(pool.getWorkerCount(), is(1));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldNotAllowWorkersToBeAddedToAFixedPool() throws Exception
+    {
+        WorkerPool<AtomicLong> pool = new WorkerPool<AtomicLong>(
+            new AtomicLongEventFactory(), new FatalExceptionHandler(), new AtomicLongWorkHandler());
+        pool.addWorker(new AtomicLongWorkHandler());
+    }
+
     private static class AtomicLongWorkHandler implements WorkHandler<AtomicLong>
     {
         @Override
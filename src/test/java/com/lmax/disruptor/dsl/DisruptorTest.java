@@ -18,6 +18,7 @@ package com.lmax.disruptor.dsl;
 import com.lmax.disruptor.BatchEventProcessor;
 import com.lmax.disruptor.BlockingWaitStrategy;
 import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventKeyFunction;
 import com.lmax.disruptor.EventProcessor;
 import com.lmax.disruptor.EventTranslator;
 import com.lmax.disruptor.EventTranslatorOneArg;
@@ -27,6 +28,7 @@ import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.Sequence;
 import com.lmax.disruptor.SequenceBarrier;
 import com.lmax.disruptor.TimeoutException;
+import com.lmax.disruptor.WorkHandler;
 import com.lmax.disruptor.dsl.stubs.DelayedEventHandler;
 import com.lmax.disruptor.dsl.stubs.EventHandlerStub;
 import com.lmax.disruptor.dsl.stubs.EvilEqualsEventHandler;
@@ -42,11 +44,14 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static java.lang.Thread.yield;
@@ -136,6 +141,44 @@ public class DisruptorTest
     }
 
 
+    @Test
+    public void shouldLimitBatchSizeOfHandler() throws Exception
+    {
+        final CountDownLatch eventCounter = new CountDownLatch(4);
+        final List<Long> batchEnds = new ArrayList<Long>();
+        EventHandler<TestEvent> handler = new EventHandler<TestEvent>()
+        {
+            @Override
+            public void onEvent(final TestEvent event, final long sequence, final boolean endOfBatch) throws Exception
+            {
+                if (endOfBatch)
+                {
+                    batchEnds.add(sequence);
+                }
+                eventCounter.countDown();
+            }
+        };
+        disruptor.handleEventsWith(handler);
+        disruptor.setMaxBatchSize(handler, 2);
+
+        RingBuffer<TestEvent> ringBuffer = disruptor.getRingBuffer();
+        ringBuffer.publish(ringBuffer.next(4));
+        disruptor.start();
+
+        assertTrue(eventCounter.await(TIMEOUT_IN_SECONDS, TimeUnit.SECONDS));
+        assertThat(batchEnds, equalTo(Arrays.asList(1L, 3L)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotAllowMaxBatchSizeToBeSetAfterStart() throws Exception
+    {
+        EventHandler<TestEvent> handler = new SleepingEventHandler();
+        disruptor.handleEventsWith(handler);
+        disruptor.start();
+
+        disruptor.setMaxBatchSize(handler, 2);
+    }
+
     @Test
     public void shouldBatchOfEvents() throws Exception
     {
@@ -652,6 +695,136 @@ public class DisruptorTest
         workHandler2.processEvent();
     }
 
+    @Test
+    public void shouldGateDownstreamHandlersOnPartitionedHandlers() throws Exception
+    {
+        final List<Long> handled = new ArrayList<Long>();
+        final EventHandlerFactory<TestEvent> handlerFactory = new EventHandlerFactory<TestEvent>()
+        {
+            @Override
+            public EventHandler<? super TestEvent> createEventHandler(final int index)
+            {
+                return new EventHandler<TestEvent>()
+                {
+                    @Override
+                    public void onEvent(final TestEvent event, final long sequence, final boolean endOfBatch)
+                    {
+                        synchronized (handled)
+                        {
+                            handled.add(sequence);
+                        }
+                    }
+                };
+            }
+        };
+        final EventKeyFunction<TestEvent> keyFunction = new EventKeyFunction<TestEvent>()
+        {
+            @Override
+            public Object getKey(final TestEvent event)
+            {
+                return event.hashCode();
+            }
+        };
+        final CountDownLatch countDownLatch = new CountDownLatch(10);
+        final AtomicInteger handledBeforeDownstream = new AtomicInteger();
+        disruptor.handleEventsWithPartitioned(keyFunction, handlerFactory, 3)
+            .then(new EventHandler<TestEvent>()
+            {
+                @Override
+                public void onEvent(final TestEvent event, final long sequence, final boolean endOfBatch)
+                {
+                    synchronized (handled)
+                    {
+                        if (handled.contains(sequence))
+                        {
+                            handledBeforeDownstream.incrementAndGet();
+                        }
+                    }
+                    countDownLatch.countDown();
+                }
+            });
+
+        for (int i = 0; i < 10; i++)
+        {
+            publishEvent();
+        }
+
+        assertTrue(countDownLatch.await(5, SECONDS));
+        assertThat(handledBeforeDownstream.get(), is(10));
+    }
+
+    @Test
+    public void shouldSupportUsingOrderedWorkerPoolAsDependency() throws Exception
+    {
+        final TestWorkHandler workHandler1 = createTestWorkHandler();
+        final TestWorkHandler workHandler2 = createTestWorkHandler();
+        final DelayedEventHandler delayedEventHandler = createDelayedEventHandler();
+        disruptor.handleEventsWithOrderedWorkerPool(workHandler1, workHandler2).then(delayedEventHandler);
+
+        publishEvent();
+        publishEvent();
+
+        assertThat(disruptor.getBarrierFor(delayedEventHandler).getCursor(), equalTo(-1L));
+
+        workHandler2.processEvent();
+        workHandler1.processEvent();
+
+        delayedEventHandler.processEvent();
+    }
+
+    @Test
+    public void shouldAddWorkersToElasticWorkerPoolAfterStart() throws Exception
+    {
+        final AtomicInteger workCount = new AtomicInteger();
+        final WorkHandler<TestEvent> workHandler = new WorkHandler<TestEvent>()
+        {
+            @Override
+            public void onEvent(final TestEvent event) throws Exception
+            {
+                workCount.incrementAndGet();
+            }
+        };
+        final CountDownLatch countDownLatch = new CountDownLatch(10);
+        disruptor.handleEventsWithElasticWorkerPool(workHandler)
+            .then(new EventHandlerStub<TestEvent>(countDownLatch));
+
+        publishEvent();
+        disruptor.getWorkerPoolFor(workHandler).addWorker(workHandler);
+        for (int i = 1; i < 10; i++)
+        {
+            publishEvent();
+        }
+
+        assertTrue(countDownLatch.await(5, SECONDS));
+        assertThat(workCount.get(), is(10));
+        assertThat(disruptor.getWorkerPoolFor(workHandler).getWorkerCount(), is(2));
+    }
+
+    @Test
+    public void shouldSupportUsingWorkStealingPoolAsDependency() throws Exception
+    {
+        final AtomicInteger workCount = new AtomicInteger();
+        final WorkHandler<TestEvent> workHandler = new WorkHandler<TestEvent>()
+        {
+            @Override
+            public void onEvent(final TestEvent event) throws Exception
+            {
+                workCount.incrementAndGet();
+            }
+        };
+        final CountDownLatch countDownLatch = new CountDownLatch(10);
+        disruptor.handleEventsWithWorkStealingPool(2, workHandler, workHandler)
+            .then(new EventHandlerStub<TestEvent>(countDownLatch));
+
+        for (int i = 0; i < 10; i++)
+        {
+            publishEvent();
+        }
+
+        assertTrue(countDownLatch.await(5, SECONDS));
+        assertThat(workCount.get(), is(10));
+    }
+
     @Test
     public void shouldSupportCombiningWorkerPoolWithEventHandlerAsDependencyWhenNotPreviouslyRegistered()
         throws Exception
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2012 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.dsl;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.stubs.EventHandlerStub;
+import com.lmax.disruptor.dsl.stubs.StubThreadFactory;
+import com.lmax.disruptor.support.TestEvent;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FanInDisruptorTest
+{
+    private static final int TIMEOUT_IN_SECONDS = 2;
+
+    private final StubThreadFactory executor = new StubThreadFactory();
+    private final FanInDisruptor<TestEvent> disruptor =
+        new FanInDisruptor<TestEvent>(TestEvent.EVENT_FACTORY, 4, executor);
+
+    @After
+    public void tearDown() throws Exception
+    {
+        disruptor.halt();
+        executor.joinAllThreads();
+    }
+
+    @Test
+    public void shouldProcessEventsFromEveryProducer() throws Exception
+    {
+        final CountDownLatch eventCounter = new CountDownLatch(20);
+        disruptor.handleEventsWith(new EventHandlerStub<TestEvent>(eventCounter));
+        RingBuffer<TestEvent> producer1 = disruptor.addProducer();
+        RingBuffer<TestEvent> producer2 = disruptor.addProducer(1);
+        disruptor.start();
+
+        for (int i = 0; i < 10; i++)
+        {
+            producer1.publish(producer1.next());
+            producer2.publish(producer2.next());
+        }
+
+        assertTrue(eventCounter.await(TIMEOUT_IN_SECONDS, TimeUnit.SECONDS));
+        disruptor.shutdown(TIMEOUT_IN_SECONDS, TimeUnit.SECONDS);
+        assertFalse(disruptor.getEventProcessor().hasBacklog());
+    }
+
+    @Test
+    public void shouldAddAndRemoveProducersAfterStart() throws Exception
+    {
+        final CountDownLatch eventCounter = new CountDownLatch(2);
+        disruptor.handleEventsWith(new EventHandlerStub<TestEvent>(eventCounter));
+        RingBuffer<TestEvent> producer1 = disruptor.addProducer();
+        disruptor.start();
+
+        RingBuffer<TestEvent> producer2 = disruptor.addProducer();
+        producer1.publish(producer1.next());
+        producer2.publish(producer2.next());
+        assertTrue(eventCounter.await(TIMEOUT_IN_SECONDS, TimeUnit.SECONDS));
+
+        assertTrue(disruptor.removeProducer(producer1));
+        assertFalse(disruptor.removeProducer(producer1));
+    }
+
+    @Test
+    public void shouldProcessPriorityLaneBeforeBulkLane() throws Exception
+    {
+        final List<TestEvent> events = new ArrayList<TestEvent>();
+        final CountDownLatch eventCounter = new CountDownLatch(5);
+        disruptor.handleEventsWith(new EventHandler<TestEvent>()
+        {
+            @Override
+            public void onEvent(final TestEvent event, final long sequence, final boolean endOfBatch) throws Exception
+            {
+                events.add(event);
+                eventCounter.countDown();
+            }
+        });
+        RingBuffer<TestEvent> bulk = disruptor.addProducer(1);
+        RingBuffer<TestEvent> urgent = disruptor.addProducer(1, 1);
+
+        bulk.publish(bulk.next(4));
+        urgent.publish(urgent.next());
+        disruptor.start();
+
+        assertTrue(eventCounter.await(TIMEOUT_IN_SECONDS, TimeUnit.SECONDS));
+        assertSame(urgent.get(0), events.get(0));
+        assertSame(bulk.get(0), events.get(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRequireEventHandlerBeforeAddingProducers() throws Exception
+    {
+        disruptor.addProducer();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldOnlyAllowOneEventHandler() throws Exception
+    {
+        disruptor.handleEventsWith(new EventHandlerStub<TestEvent>(new CountDownLatch(1)));
+        disruptor.handleEventsWith(new EventHandlerStub<TestEvent>(new CountDownLatch(1)));
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2012 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.dsl;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.dsl.stubs.StubThreadFactory;
+import com.lmax.disruptor.support.StubEvent;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ShardedDisruptorTest
+{
+    private static final int TIMEOUT_IN_SECONDS = 2;
+    private static final int SHARDS = 4;
+
+    private final StubThreadFactory executor = new StubThreadFactory();
+    private final ShardedDisruptor<StubEvent> disruptor =
+        new ShardedDisruptor<StubEvent>(StubEvent.EVENT_FACTORY, 16, executor, SHARDS);
+
+    @After
+    public void tearDown() throws Exception
+    {
+        disruptor.halt();
+        executor.joinAllThreads();
+    }
+
+    @Test
+    public void shouldRouteEqualKeysToTheSameShardInOrder() throws Exception
+    {
+        final CountDownLatch latch = new CountDownLatch(200);
+        final List<RecordingHandler> handlers = new ArrayList<RecordingHandler>();
+        disruptor.handleEventsWith(new EventHandlerFactory<StubEvent>()
+        {
+            @Override
+            public EventHandler<? super StubEvent> createEventHandler(int index)
+            {
+                RecordingHandler handler = new RecordingHandler(index, latch);
+                handlers.add(handler);
+                return handler;
+            }
+        });
+        disruptor.start();
+
+        for (int i = 0; i < 200; i++)
+        {
+            String key = "key-" + (i % 10);
+            disruptor.publishEvent(key, StubEvent.TRANSLATOR, i, key);
+        }
+
+        assertTrue(latch.await(TIMEOUT_IN_SECONDS, TimeUnit.SECONDS));
+        disruptor.shutdown(TIMEOUT_IN_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals(SHARDS, handlers.size());
+        for (RecordingHandler handler : handlers)
+        {
+            int[] lastValues = new int[10];
+            Arrays.fill(lastValues, -1);
+            for (int j = 0; j < handler.keys.size(); j++)
+            {
+                String key = handler.keys.get(j);
+                int value = handler.values.get(j);
+                assertEquals(handler.index, disruptor.shardFor(key));
+                int keyIndex = value % 10;
+                assertTrue(value > lastValues[keyIndex]);
+                lastValues[keyIndex] = value;
+            }
+        }
+    }
+
+    @Test
+    public void shouldSpreadKeysOverShards() throws Exception
+    {
+        boolean[] used = new boolean[SHARDS];
+        for (int i = 0; i < 100; i++)
+        {
+            int shard = disruptor.shardFor(Integer.valueOf(i));
+            assertEquals(shard, disruptor.shardFor(Integer.valueOf(i)));
+            used[shard] = true;
+        }
+
+        for (boolean shardUsed : used)
+        {
+            assertTrue(shardUsed);
+        }
+        assertEquals(SHARDS, disruptor.getShardCount());
+    }
+
+    @Test
+    public void shouldCreateAWaitStrategyForEveryShard() throws Exception
+    {
+        final List<Integer> indexes = new ArrayList<Integer>();
+        new ShardedDisruptor<StubEvent>(
+            StubEvent.EVENT_FACTORY, 16, executor, ProducerType.MULTI, new WaitStrategyFactory()
+            {
+                @Override
+                public WaitStrategy createWaitStrategy(int index)
+                {
+                    indexes.add(index);
+                    return new BlockingWaitStrategy();
+                }
+            }, SHARDS);
+
+        assertEquals(Arrays.asList(0, 1, 2, 3), indexes);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRequireAtLeastOneShard() throws Exception
+    {
+        new ShardedDisruptor<StubEvent>(StubEvent.EVENT_FACTORY, 16, executor, 0);
+    }
+
+    private static final class RecordingHandler implements EventHandler<StubEvent>
+    {
+        private final int index;
+        private final CountDownLatch latch;
+        private final List<String> keys = new ArrayList<String>();
+        private final List<Integer> values = new ArrayList<Integer>();
+
+        RecordingHandler(final int index, final CountDownLatch latch)
+        {
+            this.index = index;
+            this.latch = latch;
+        }
+
+        @Override
+        public void onEvent(StubEvent event, long sequence, boolean endOfBatch) throws Exception
+        {
+            keys.add(event.getTestString());
+            values.add(event.getValue());
+            latch.countDown();
+        }
+    }
+}